@@ -0,0 +1,128 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
+
+/**
+ * Asynchronous facade over {@link TimeseriesLoader} for UI code.
+ *
+ * Tasks run on a bounded I/O executor and return futures. Cancelling a future
+ * interrupts its running queries through {@link QueryCancellation}. Tasks
+ * submitted on the same channel follow latest-wins: a new submission cancels
+ * the previous one, whether it is still queued or already reading.
+ */
+public final class AsyncTimeseriesLoader {
+
+	private final TimeseriesLoader loader;
+	private final ThreadPoolExecutor executor;
+	private final Map<String, CompletableFuture<?>> latest = new ConcurrentHashMap<>();
+
+	public AsyncTimeseriesLoader(TimeseriesLoader loader) {
+		this(loader, ExplorerConfig.asyncLoaderThreads(), ExplorerConfig.asyncLoaderQueueSize());
+	}
+
+	public AsyncTimeseriesLoader(TimeseriesLoader loader, int threads, int queueSize) {
+		this.loader = loader;
+		AtomicInteger counter = new AtomicInteger();
+		int size = Math.max(1, threads);
+		this.executor = new ThreadPoolExecutor(size, size, 30L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(Math.max(1, queueSize)), r -> {
+					Thread t = new Thread(r, "timeseries-io-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	public TimeseriesLoader loader() {
+		return loader;
+	}
+
+	/**
+	 * Runs {@code task} on the I/O executor. When {@code channel} is not null
+	 * the previous task of the same channel is cancelled. The future fails with
+	 * {@link RejectedExecutionException} when the queue is full.
+	 */
+	public <T> CompletableFuture<T> submit(String channel, Function<TimeseriesLoader, T> task) {
+		QueryCancellation token = new QueryCancellation();
+		AtomicReference<Future<?>> running = new AtomicReference<>();
+		CompletableFuture<T> result = new CompletableFuture<>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				token.cancel();
+				Future<?> f = running.get();
+				if (f != null) {
+					f.cancel(mayInterruptIfRunning);
+				}
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		if (channel != null) {
+			CompletableFuture<?> previous = latest.put(channel, result);
+			if (previous != null) {
+				previous.cancel(true);
+			}
+			result.whenComplete((v, e) -> latest.remove(channel, result));
+		}
+		try {
+			running.set(executor.submit(() -> {
+				if (result.isDone()) {
+					return;
+				}
+				try {
+					T value = token.call(() -> task.apply(loader));
+					if (token.isCancelled()) {
+						result.cancel(false);
+					} else {
+						result.complete(value);
+					}
+				} catch (RuntimeException | Error ex) {
+					result.completeExceptionally(ex);
+				}
+			}));
+		} catch (RejectedExecutionException ex) {
+			result.completeExceptionally(ex);
+		}
+		return result;
+	}
+
+	public CompletableFuture<SeriesBlock> loadRows(String channel, ProjectConfig config, String table,
+			String basinId, String... valueColumns) {
+		return submit(channel, l -> l.loadRowsFromAnyInput(config, table, basinId, valueColumns));
+	}
+
+	public CompletableFuture<SeriesBlock> loadSeries(String channel, ProjectConfig config, String table,
+			String basinId, boolean isGaugeSeries, TimeRange range) {
+		return submit(channel, l -> l.loadSeries(config, table, basinId, isGaugeSeries, range));
+	}
+
+	/**
+	 * Cancels the task currently registered on the channel, if any.
+	 */
+	public void cancel(String channel) {
+		CompletableFuture<?> current = latest.remove(channel);
+		if (current != null) {
+			current.cancel(true);
+		}
+	}
+
+	public void shutdown() {
+		for (CompletableFuture<?> f : latest.values()) {
+			f.cancel(true);
+		}
+		latest.clear();
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,76 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One column of an aggregated read (see
+ * {@link TimeseriesLoader#loadBucketAggregates}): a per-row term, the sum of
+ * the {@code plus} columns minus the {@code minus} ones, combined over each
+ * time bucket. Missing values are NULLs; -9999 is not treated as missing, as
+ * in {@link TimeseriesLoader#loadRowsFromAnyInput}.
+ */
+public record BucketAggregate(String name, Kind kind, List<String> plus, List<String> minus) {
+
+	public enum Kind {
+		/** sum of the terms; missing when any row of the bucket is */
+		SUM,
+		/** mean of the rows where the term is present */
+		MEAN,
+		/**
+		 * sum of the steps between consecutive present values of one column,
+		 * the first value of the series counting as no step
+		 */
+		STEP_DELTA
+	}
+
+	public BucketAggregate {
+		plus = List.copyOf(plus);
+		minus = List.copyOf(minus);
+		if (plus.isEmpty() || (kind == Kind.STEP_DELTA && (plus.size() != 1 || !minus.isEmpty()))) {
+			throw new IllegalArgumentException("Invalid terms for " + kind + ": " + plus + " - " + minus);
+		}
+	}
+
+	public static BucketAggregate sum(String name, String... columns) {
+		return new BucketAggregate(name, Kind.SUM, List.of(columns), List.of());
+	}
+
+	public static BucketAggregate difference(String name, String column, String subtracted) {
+		return new BucketAggregate(name, Kind.SUM, List.of(column), List.of(subtracted));
+	}
+
+	public static BucketAggregate mean(String name, String column) {
+		return new BucketAggregate(name, Kind.MEAN, List.of(column), List.of());
+	}
+
+	public static BucketAggregate stepDelta(String name, String column) {
+		return new BucketAggregate(name, Kind.STEP_DELTA, List.of(column), List.of());
+	}
+
+	/**
+	 * SQLite expression for the start (UTC epoch milliseconds) of the bucket
+	 * holding {@code ts}, an integer epoch-millisecond expression; buckets are
+	 * named as in the charts: {@code 1h}, {@code 12h}, {@code 24h},
+	 * {@code settimana} (from Monday), {@code anno}, and months otherwise.
+	 * Timestamps before 1970 are floored, not truncated towards zero.
+	 */
+	static String bucketStart(String ts, String aggregation) {
+		long width = switch (aggregation.toLowerCase(Locale.ROOT)) {
+		case "1h" -> 3_600_000L;
+		case "12h" -> 43_200_000L;
+		case "24h" -> 86_400_000L;
+		default -> 0L;
+		};
+		if (width > 0) {
+			return "((" + ts + " / " + width + " - (" + ts + " % " + width + " < 0)) * " + width + ")";
+		}
+		String modifiers = switch (aggregation.toLowerCase(Locale.ROOT)) {
+		case "settimana" -> "'start of day', 'weekday 0', '-6 days'";
+		case "anno" -> "'start of year'";
+		default -> "'start of month'";
+		};
+		return "(CAST(strftime('%s', " + ts + " / 1000 - (" + ts + " % 1000 < 0), 'unixepoch', " + modifiers
+				+ ") AS INTEGER) * 1000)";
+	}
+}
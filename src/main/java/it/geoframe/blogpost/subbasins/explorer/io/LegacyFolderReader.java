@@ -0,0 +1,251 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+
+/**
+ * Time series of a legacy OMS project folder: one subfolder per subbasin,
+ * each holding the OMS CSV outputs of that subbasin.
+ *
+ * A "table" is the name of an output file with the subbasin id stripped
+ * ({@code 12/Q_12.csv} and {@code 13/Q_13.csv} are both table {@code Q}), so
+ * legacy series are addressed like the database ones: table plus basin id.
+ * Subfolders are scanned and files parsed in parallel on a small I/O pool.
+ */
+public final class LegacyFolderReader {
+
+	private static final Map<Path, LegacyFolderReader> READERS = new ConcurrentHashMap<>();
+	private static final Pattern TRAILING_NUMBER = Pattern.compile("(\\d+)$");
+	private static final int SCAN_DEPTH = 3;
+	private static final AtomicInteger THREADS = new AtomicInteger();
+	private static final ExecutorService IO = Executors.newFixedThreadPool(ExplorerConfig.legacyReaderThreads(),
+			r -> {
+				Thread t = new Thread(r, "legacy-io-" + THREADS.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+
+	private final Path root;
+	/** table -> basin id -> file */
+	private volatile Map<String, Map<String, Path>> index;
+
+	private LegacyFolderReader(Path root) {
+		this.root = root;
+	}
+
+	public static LegacyFolderReader forRoot(Path root) {
+		return READERS.computeIfAbsent(root.toAbsolutePath().normalize(), LegacyFolderReader::new);
+	}
+
+	/**
+	 * Drops the file index of the folder; the next lookup scans it again.
+	 */
+	public static void invalidate(Path root) {
+		if (root != null) {
+			READERS.remove(root.toAbsolutePath().normalize());
+		}
+	}
+
+	public List<String> tableNames() {
+		return new ArrayList<>(index().keySet());
+	}
+
+	public List<String> basinIds() {
+		Set<String> ids = new TreeSet<>();
+		for (Map<String, Path> files : index().values()) {
+			ids.addAll(files.keySet());
+		}
+		return new ArrayList<>(ids);
+	}
+
+	public Optional<Path> file(String table, String basinId) {
+		Map<String, Path> files = table == null ? null : index().get(table);
+		return files == null || basinId == null ? Optional.empty() : Optional.ofNullable(files.get(basinId));
+	}
+
+	public Collection<Path> files(String table) {
+		Map<String, Path> files = table == null ? null : index().get(table);
+		return files == null ? List.of() : files.values();
+	}
+
+	/**
+	 * Files of the table by basin id; a file answering to several ids (folder
+	 * {@code basin_12} is also {@code 12}) appears once per id.
+	 */
+	Map<String, Path> filesById(String table) {
+		Map<String, Path> files = table == null ? null : index().get(table);
+		return files == null ? Map.of() : files;
+	}
+
+	/**
+	 * Value columns of the table, read from the header of one of its files.
+	 */
+	public List<String> columnNames(String table) {
+		for (Path file : files(table)) {
+			Optional<OmsCsvParser.Header> header = OmsCsvParser.header(file);
+			if (header.isPresent()) {
+				return header.get().columns();
+			}
+		}
+		return List.of();
+	}
+
+	/**
+	 * Series of one subbasin; without columns the first value column is read
+	 * as {@link SeriesCursor#VALUE}.
+	 */
+	public SeriesBlock read(String table, String basinId, String... columns) {
+		Optional<Path> file = file(table, basinId);
+		return file.isEmpty() ? emptyBlock(columns) : OmsCsvParser.parse(file.get(), columns);
+	}
+
+	/**
+	 * Series of several subbasins, parsed in parallel; the result follows the
+	 * order of {@code basinIds}.
+	 */
+	public Map<String, SeriesBlock> readBatch(String table, Collection<String> basinIds, String... columns) {
+		Map<String, Future<SeriesBlock>> pending = new LinkedHashMap<>();
+		for (String id : basinIds) {
+			pending.put(id, IO.submit(() -> read(table, id, columns)));
+		}
+		Map<String, SeriesBlock> out = new LinkedHashMap<>();
+		for (Map.Entry<String, Future<SeriesBlock>> e : pending.entrySet()) {
+			out.put(e.getKey(), join(e.getValue(), emptyBlock(columns)));
+		}
+		return out;
+	}
+
+	/**
+	 * Runs a task on the pool that parses legacy files.
+	 */
+	static <T> Future<T> submit(Callable<T> task) {
+		return IO.submit(task);
+	}
+
+	private Map<String, Map<String, Path>> index() {
+		Map<String, Map<String, Path>> current = index;
+		if (current == null) {
+			synchronized (this) {
+				current = index;
+				if (current == null) {
+					current = scan();
+					index = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private Map<String, Map<String, Path>> scan() {
+		List<Path> folders;
+		try (Stream<Path> list = Files.list(root)) {
+			folders = list.filter(Files::isDirectory).sorted().toList();
+		} catch (IOException ex) {
+			return Map.of();
+		}
+		List<Future<List<Path>>> scans = new ArrayList<>();
+		for (Path folder : folders) {
+			scans.add(IO.submit((Callable<List<Path>>) () -> csvFiles(folder)));
+		}
+		Map<String, Map<String, Path>> out = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (int i = 0; i < folders.size(); i++) {
+			List<String> ids = basinIds(folders.get(i).getFileName().toString());
+			for (Path file : join(scans.get(i), List.<Path>of())) {
+				String table = null;
+				for (String id : ids) {
+					String candidate = tableName(file, id);
+					if (table == null || candidate.length() < table.length()) {
+						table = candidate;
+					}
+				}
+				Map<String, Path> files = out.computeIfAbsent(table, t -> new TreeMap<>());
+				for (String id : ids) {
+					files.putIfAbsent(id, file);
+				}
+			}
+		}
+		out.replaceAll((t, files) -> Collections.unmodifiableMap(files));
+		return Collections.unmodifiableMap(out);
+	}
+
+	private static List<Path> csvFiles(Path folder) throws IOException {
+		try (Stream<Path> walk = Files.walk(folder, SCAN_DEPTH)) {
+			return walk.filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv"))
+					.filter(Files::isRegularFile).sorted().toList();
+		}
+	}
+
+	/**
+	 * Ids a subbasin folder answers to: its name and, for names like
+	 * {@code basin_12}, the trailing number.
+	 */
+	private static List<String> basinIds(String folderName) {
+		Matcher m = TRAILING_NUMBER.matcher(folderName);
+		if (m.find() && !m.group(1).equals(folderName)) {
+			return List.of(folderName, m.group(1));
+		}
+		return List.of(folderName);
+	}
+
+	static String tableName(Path file, String basinId) {
+		String name = file.getFileName().toString();
+		return stripBasinId(name.substring(0, name.length() - 4), basinId);
+	}
+
+	/**
+	 * {@code stem} without the basin id, either as {@code _id} suffix or as
+	 * {@code id_} prefix.
+	 */
+	static String stripBasinId(String stem, String basinId) {
+		String lower = stem.toLowerCase(Locale.ROOT);
+		String id = basinId.toLowerCase(Locale.ROOT);
+		if (lower.endsWith("_" + id) && stem.length() > id.length() + 1) {
+			return stem.substring(0, stem.length() - id.length() - 1);
+		}
+		if (lower.startsWith(id + "_") && stem.length() > id.length() + 1) {
+			return stem.substring(id.length() + 1);
+		}
+		return stem;
+	}
+
+	private static SeriesBlock emptyBlock(String... columns) {
+		return columns == null || columns.length == 0 ? SeriesBlock.empty(SeriesCursor.VALUE)
+				: SeriesBlock.empty(columns);
+	}
+
+	private static <T> T join(Future<T> future, T fallback) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+			return fallback;
+		} catch (ExecutionException ex) {
+			return fallback;
+		}
+	}
+}
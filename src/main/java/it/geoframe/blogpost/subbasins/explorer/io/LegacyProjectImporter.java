@@ -0,0 +1,570 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.DataStoreFinder;
+import org.geotools.api.data.FeatureWriter;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
+import it.geoframe.blogpost.subbasins.explorer.services.ProjectMode;
+import it.geoframe.blogpost.subbasins.explorer.services.ProjectValidator;
+
+/**
+ * Converts a legacy OMS project folder into the GeoPackage + SQLite pair read
+ * in GEOPACKAGE mode.
+ *
+ * The subbasin and network shapefiles become the basin and network layers
+ * (with a {@code basin_id} attribute taken from the configured id field),
+ * {@code subbasins.csv} the topology table and every per-basin output a
+ * {@code <simulation prefix>_<table>} table of the GeoPackage; observed series
+ * go to the measurement SQLite.
+ *
+ * CSV files are parsed on the legacy I/O pool a few basins ahead of the single
+ * writer, which uses batched prepared inserts in large transactions with
+ * journal and sync off; the (basin_id, ts) indexes are built once, at the
+ * end. Both outputs are written next to their targets and moved into place
+ * only when complete.
+ */
+public final class LegacyProjectImporter {
+
+	/**
+	 * {@code done} of {@code total} units of a step: layers, basins of a table
+	 * or indexes.
+	 */
+	public record Progress(String step, int done, int total) {
+	}
+
+	public record Result(Path geopackage, Path sqlite, int basins, int tables, long rows, List<String> warnings) {
+	}
+
+	private static final String BASIN_ID = "basin_id";
+	private static final String TIMESTEP = "timestep";
+	private static final int INSERT_BATCH = 10_000;
+	private static final long COMMIT_ROWS = 1_000_000L;
+	private static final Pattern UNSAFE_NAME = Pattern.compile("[^A-Za-z0-9_]+");
+	private static final Pattern NAME_TOKENS = Pattern.compile("[^a-z0-9]+");
+
+	private LegacyProjectImporter() {
+	}
+
+	public static Result importProject(ProjectConfig config, Path geopackage, Path sqlite,
+			Consumer<Progress> progress) throws IOException {
+		if (config == null || config.mode() != ProjectMode.LEGACY_FOLDER) {
+			throw new IOException("Not a legacy folder project.");
+		}
+		ProjectValidator.ValidationResult validation = ProjectValidator.validate(config);
+		if (!validation.ok()) {
+			throw new IOException(validation.errors().isEmpty() ? "Legacy project validation failed."
+					: validation.errors().get(0));
+		}
+		Path root = config.legacyRootPath();
+		Path geopackageBuilding = building(geopackage);
+		Path sqliteBuilding = building(sqlite);
+		List<String> warnings = new ArrayList<>(validation.warnings());
+		try {
+			Files.createDirectories(geopackage.toAbsolutePath().getParent());
+			Files.createDirectories(sqlite.toAbsolutePath().getParent());
+			Files.deleteIfExists(geopackageBuilding);
+			Files.deleteIfExists(sqliteBuilding);
+
+			progress.accept(new Progress("layers", 0, 2));
+			copyLayer(root.resolve("subbasin_complete.shp"), geopackageBuilding, ExplorerConfig.geopackageBasinTable(),
+					config.legacyShpIdField());
+			progress.accept(new Progress("layers", 1, 2));
+			Path network = root.resolve("network_complete.shp");
+			copyLayer(Files.exists(network) ? network : root.resolve("network_compete.shp"), geopackageBuilding,
+					ExplorerConfig.geopackageNetworkTable(), null);
+			progress.accept(new Progress("layers", 2, 2));
+
+			LegacyFolderReader.invalidate(root);
+			LegacyFolderReader reader = LegacyFolderReader.forRoot(root);
+			List<String> tables = reader.tableNames();
+			List<String> observed = tables.stream().filter(LegacyProjectImporter::isObservation).toList();
+			String measurementSource = measurementSource(observed);
+			if (!observed.isEmpty()) {
+				warnings.add("Observed outputs imported into the measurement SQLite: " + String.join(", ", observed)
+						+ ".");
+			}
+			Set<String> basins = new TreeSet<>();
+			long rows = 0L;
+			int imported = 0;
+			try (Connection gpkg = openForImport(geopackageBuilding);
+					Connection obs = openForImport(sqliteBuilding)) {
+				Map<String, Connection> written = new LinkedHashMap<>();
+				String topology = ExplorerConfig.geopackageTopologyPrefix();
+				progress.accept(new Progress(topology, 0, 1));
+				writeTopology(gpkg, topology, root.resolve("subbasins.csv"), config.legacyCsvIdColumn());
+				progress.accept(new Progress(topology, 1, 1));
+
+				boolean simulatedDischarge = false;
+				for (String table : tables) {
+					boolean observation = isObservation(table);
+					String target = observation ? observationTable(table, measurementSource) : simulationTable(table);
+					if (written.containsKey(target)) {
+						warnings.add("Legacy table '" + table + "' skipped: '" + target + "' already imported.");
+						continue;
+					}
+					Connection out = observation ? obs : gpkg;
+					Map<String, Path> files = canonicalFiles(reader.filesById(table));
+					rows += importTable(out, target, files, observation, warnings, progress);
+					basins.addAll(files.keySet());
+					written.put(target, out);
+					imported++;
+					simulatedDischarge |= !observation && target.toLowerCase(Locale.ROOT).contains("discharge");
+				}
+				if (measurementSource == null) {
+					createSeriesTable(obs, ExplorerConfig.sqliteMeasurementTable(),
+							new String[] { ExplorerConfig.timeseriesValueColumn() }, true);
+					obs.commit();
+					written.put(ExplorerConfig.sqliteMeasurementTable(), obs);
+					warnings.add("No observed series found: the measurement table is empty.");
+				}
+				if (!simulatedDischarge) {
+					warnings.add("No simulated discharge table imported: GeoPackage validation expects a '"
+							+ ExplorerConfig.geopackageSimulationPrefix() + "*discharge*' table.");
+				}
+
+				int done = 0;
+				progress.accept(new Progress("indexes", 0, written.size()));
+				for (Map.Entry<String, Connection> e : written.entrySet()) {
+					createBasinIndex(e.getValue(), e.getKey());
+					progress.accept(new Progress("indexes", ++done, written.size()));
+				}
+			}
+
+			SqliteConnectionPool.close(geopackage, sqlite);
+			Files.move(geopackageBuilding, geopackage, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(sqliteBuilding, sqlite, StandardCopyOption.REPLACE_EXISTING);
+			ProjectCatalog.invalidate(geopackage, sqlite);
+			return new Result(geopackage, sqlite, basins.size(), imported, rows, warnings);
+		} catch (SQLException ex) {
+			throw new IOException("SQLite: " + ex.getMessage(), ex);
+		} finally {
+			Files.deleteIfExists(geopackageBuilding);
+			Files.deleteIfExists(sqliteBuilding);
+		}
+	}
+
+	private static Path building(Path target) {
+		return target.toAbsolutePath().resolveSibling("importing-" + target.getFileName());
+	}
+
+	/**
+	 * Copies a shapefile into a layer of the GeoPackage, adding
+	 * {@code basin_id} from {@code idField} when given.
+	 */
+	private static void copyLayer(Path shapefile, Path geopackage, String layer, String idField) throws IOException {
+		Map<String, Object> sourceParams = new HashMap<>();
+		sourceParams.put("url", shapefile.toUri().toURL());
+		Map<String, Object> targetParams = new HashMap<>();
+		targetParams.put("dbtype", "geopkg");
+		targetParams.put("database", geopackage.toFile());
+		DataStore source = DataStoreFinder.getDataStore(sourceParams);
+		if (source == null) {
+			throw new IOException("GeoTools: cannot open shapefile " + shapefile.getFileName());
+		}
+		DataStore target = null;
+		try {
+			target = DataStoreFinder.getDataStore(targetParams);
+			if (target == null) {
+				throw new IOException("GeoTools: cannot create GeoPackage " + geopackage.getFileName());
+			}
+			SimpleFeatureSource features = source.getFeatureSource(source.getTypeNames()[0]);
+			SimpleFeatureType schema = features.getSchema();
+			String idAttribute = null;
+			for (AttributeDescriptor d : schema.getAttributeDescriptors()) {
+				if (idField != null && d.getLocalName().equalsIgnoreCase(idField.trim())) {
+					idAttribute = d.getLocalName();
+				}
+			}
+			boolean addId = idAttribute != null && schema.getDescriptor(BASIN_ID) == null;
+			SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+			builder.init(schema);
+			builder.setName(layer);
+			if (addId) {
+				builder.add(BASIN_ID, String.class);
+			}
+			target.createSchema(builder.buildFeatureType());
+			try (Transaction tx = new DefaultTransaction("import-" + layer)) {
+				try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = target.getFeatureWriterAppend(layer,
+						tx); SimpleFeatureIterator it = features.getFeatures().features()) {
+					while (it.hasNext()) {
+						SimpleFeature in = it.next();
+						SimpleFeature out = writer.next();
+						for (AttributeDescriptor d : schema.getAttributeDescriptors()) {
+							out.setAttribute(d.getLocalName(), in.getAttribute(d.getLocalName()));
+						}
+						if (addId) {
+							out.setAttribute(BASIN_ID, basinId(in.getAttribute(idAttribute)));
+						}
+						writer.write();
+					}
+				} catch (IOException | RuntimeException ex) {
+					tx.rollback();
+					throw ex;
+				}
+				tx.commit();
+			}
+		} finally {
+			if (target != null) {
+				target.dispose();
+			}
+			source.dispose();
+		}
+	}
+
+	/**
+	 * Ids read from shapefiles are often doubles: {@code 12.0} becomes
+	 * {@code 12} to match the subbasin folders.
+	 */
+	private static String basinId(Object value) {
+		if (value instanceof Number n && n.doubleValue() == Math.rint(n.doubleValue())) {
+			return Long.toString(n.longValue());
+		}
+		return value == null ? null : String.valueOf(value).trim();
+	}
+
+	private static Connection openForImport(Path path) throws SQLException {
+		Connection c = DriverManager.getConnection("jdbc:sqlite:" + path);
+		try (Statement st = c.createStatement()) {
+			// the file is discarded if the import fails, so no journal is needed
+			st.execute("PRAGMA journal_mode=OFF");
+			st.execute("PRAGMA synchronous=OFF");
+			st.execute("PRAGMA locking_mode=EXCLUSIVE");
+			// the (basin, ts) index sorts the whole imported table: spill to disk
+			st.execute("PRAGMA temp_store=FILE");
+			st.execute("PRAGMA cache_size=-" + ExplorerConfig.sqliteReadCacheSizeKib());
+		} catch (SQLException ex) {
+			c.close();
+			throw ex;
+		}
+		c.setAutoCommit(false);
+		return c;
+	}
+
+	private static void writeTopology(Connection out, String table, Path csv, String idColumn)
+			throws IOException, SQLException {
+		List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+		if (lines.isEmpty()) {
+			throw new IOException("Legacy CSV: header row is empty.");
+		}
+		String header = lines.get(0);
+		String delimiter = header.chars().filter(ch -> ch == ';').count() > header.chars().filter(ch -> ch == ',')
+				.count() ? ";" : ",";
+		String[] columns = splitCsv(header, delimiter);
+		int idIndex = -1;
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].equalsIgnoreCase(idColumn.trim())) {
+				idIndex = i;
+			}
+		}
+		if (idIndex < 0) {
+			throw new IOException("Legacy CSV: missing column '" + idColumn + "'.");
+		}
+		boolean copyId = !columns[idIndex].equalsIgnoreCase(BASIN_ID);
+		StringBuilder create = new StringBuilder("CREATE TABLE ").append(quote(table)).append(" (");
+		StringBuilder placeholders = new StringBuilder();
+		if (copyId) {
+			create.append(quote(BASIN_ID)).append(" TEXT, ");
+			placeholders.append("?, ");
+		}
+		for (int i = 0; i < columns.length; i++) {
+			create.append(i > 0 ? ", " : "").append(quote(columns[i])).append(i == idIndex ? " TEXT" : " NUMERIC");
+			placeholders.append(i > 0 ? ", " : "").append('?');
+		}
+		try (Statement st = out.createStatement()) {
+			st.execute(create.append(')').toString());
+		}
+		try (PreparedStatement ps = out
+				.prepareStatement("INSERT INTO " + quote(table) + " VALUES (" + placeholders + ")")) {
+			for (String line : lines.subList(1, lines.size())) {
+				if (line.isBlank()) {
+					continue;
+				}
+				String[] values = splitCsv(line, delimiter);
+				int param = 1;
+				if (copyId) {
+					ps.setString(param++, idIndex < values.length ? values[idIndex] : null);
+				}
+				for (int i = 0; i < columns.length; i++) {
+					ps.setString(param++, i < values.length && !values[i].isEmpty() ? values[i] : null);
+				}
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+		out.commit();
+	}
+
+	private static String[] splitCsv(String line, String delimiter) {
+		String[] parts = line.split(Pattern.quote(delimiter), -1);
+		for (int i = 0; i < parts.length; i++) {
+			String p = parts[i].trim();
+			parts[i] = p.length() >= 2 && p.startsWith("\"") && p.endsWith("\"") ? p.substring(1, p.length() - 1) : p;
+		}
+		return parts;
+	}
+
+	/**
+	 * One file per basin: a file answering to several ids is imported once,
+	 * under its shortest id ({@code 12} rather than {@code basin_12}).
+	 */
+	private static Map<String, Path> canonicalFiles(Map<String, Path> filesById) {
+		Map<Path, String> idByFile = new LinkedHashMap<>();
+		for (Map.Entry<String, Path> e : filesById.entrySet()) {
+			idByFile.merge(e.getValue(), e.getKey(), (a, b) -> b.length() < a.length() ? b : a);
+		}
+		Map<String, Path> out = new TreeMap<>();
+		for (Map.Entry<Path, String> e : idByFile.entrySet()) {
+			out.put(e.getValue(), e.getKey());
+		}
+		return out;
+	}
+
+	private static long importTable(Connection out, String table, Map<String, Path> files, boolean observation,
+			List<String> warnings, Consumer<Progress> progress) throws IOException, SQLException {
+		if (files.isEmpty()) {
+			return 0L;
+		}
+		List<Map.Entry<String, Path>> basins = new ArrayList<>(files.entrySet());
+		String[] columns = observation ? new String[] { ExplorerConfig.timeseriesValueColumn() }
+				: valueColumns(basins.get(0).getValue(), basins.get(0).getKey());
+		createSeriesTable(out, table, columns, observation);
+
+		StringBuilder insert = new StringBuilder("INSERT INTO ").append(quote(table)).append(" (")
+				.append(quote(ExplorerConfig.timeseriesTimestampColumn())).append(", ").append(quote(BASIN_ID));
+		for (String c : columns) {
+			insert.append(", ").append(quote(c));
+		}
+		if (observation) {
+			insert.append(", ").append(quote(TIMESTEP));
+		}
+		insert.append(") VALUES (?, ?").append(", ?".repeat(columns.length + (observation ? 1 : 0))).append(')');
+
+		// parse a few basins ahead of the writer, without holding the whole table
+		int ahead = ExplorerConfig.legacyReaderThreads() * 2;
+		ArrayDeque<Future<SeriesBlock>> parsing = new ArrayDeque<>();
+		int next = 0;
+		long rows = 0L;
+		long uncommitted = 0L;
+		int batched = 0;
+		try (PreparedStatement ps = out.prepareStatement(insert.toString())) {
+			for (int b = 0; b < basins.size(); b++) {
+				for (; next < basins.size() && next < b + ahead; next++) {
+					Path file = basins.get(next).getValue();
+					parsing.add(LegacyFolderReader.submit(() -> OmsCsvParser.parsePositional(file, columns)));
+				}
+				SeriesBlock block = await(parsing.poll());
+				String basinId = basins.get(b).getKey();
+				if (block.isEmpty()) {
+					warnings.add("Empty or unreadable file skipped: " + basins.get(b).getValue());
+				}
+				for (int i = 0; i < block.size(); i++) {
+					ps.setLong(1, block.timestamp(i));
+					ps.setString(2, basinId);
+					for (int c = 0; c < columns.length; c++) {
+						double v = block.value(c, i);
+						if (Double.isNaN(v)) {
+							ps.setNull(3 + c, Types.REAL);
+						} else {
+							ps.setDouble(3 + c, v);
+						}
+					}
+					if (observation) {
+						long step = timestepSeconds(block, i);
+						if (step < 0) {
+							ps.setNull(3 + columns.length, Types.INTEGER);
+						} else {
+							ps.setLong(3 + columns.length, step);
+						}
+					}
+					ps.addBatch();
+					if (++batched == INSERT_BATCH) {
+						ps.executeBatch();
+						batched = 0;
+					}
+				}
+				rows += block.size();
+				uncommitted += block.size();
+				if (uncommitted >= COMMIT_ROWS) {
+					if (batched > 0) {
+						ps.executeBatch();
+						batched = 0;
+					}
+					out.commit();
+					uncommitted = 0L;
+				}
+				progress.accept(new Progress(table, b + 1, basins.size()));
+			}
+			if (batched > 0) {
+				ps.executeBatch();
+			}
+			out.commit();
+		} finally {
+			for (Future<SeriesBlock> f : parsing) {
+				f.cancel(true);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Value columns of a table, named after the header of one of its files
+	 * without the basin id ({@code value_12} becomes {@code value}); a
+	 * single column takes the configured value column name.
+	 */
+	private static String[] valueColumns(Path file, String basinId) {
+		List<String> header = OmsCsvParser.header(file).map(OmsCsvParser.Header::columns).orElse(List.of());
+		if (header.size() <= 1) {
+			return new String[] { ExplorerConfig.timeseriesValueColumn() };
+		}
+		Set<String> used = new LinkedHashSet<>();
+		used.add(ExplorerConfig.timeseriesTimestampColumn().toLowerCase(Locale.ROOT));
+		used.add(BASIN_ID);
+		String[] out = new String[header.size()];
+		for (int i = 0; i < out.length; i++) {
+			String name = UNSAFE_NAME.matcher(LegacyFolderReader.stripBasinId(header.get(i), basinId)).replaceAll("_");
+			if (name.isEmpty() || name.equals("_")) {
+				name = "value_" + (i + 1);
+			}
+			String unique = name;
+			for (int n = 2; !used.add(unique.toLowerCase(Locale.ROOT)); n++) {
+				unique = name + "_" + n;
+			}
+			out[i] = unique;
+		}
+		return out;
+	}
+
+	private static void createSeriesTable(Connection out, String table, String[] columns, boolean withTimestep)
+			throws SQLException {
+		StringBuilder create = new StringBuilder("CREATE TABLE ").append(quote(table)).append(" (")
+				.append(quote(ExplorerConfig.timeseriesTimestampColumn())).append(" INTEGER NOT NULL, ")
+				.append(quote(BASIN_ID)).append(" TEXT NOT NULL");
+		for (String c : columns) {
+			create.append(", ").append(quote(c)).append(" REAL");
+		}
+		if (withTimestep) {
+			create.append(", ").append(quote(TIMESTEP)).append(" INTEGER");
+		}
+		try (Statement st = out.createStatement()) {
+			st.execute(create.append(')').toString());
+		}
+	}
+
+	private static void createBasinIndex(Connection out, String table) throws SQLException {
+		try (Statement st = out.createStatement()) {
+			st.execute("CREATE INDEX " + quote("idx_" + table + "_basin_ts") + " ON " + quote(table) + " ("
+					+ quote(BASIN_ID) + ", " + quote(ExplorerConfig.timeseriesTimestampColumn()) + ")");
+		}
+		out.commit();
+	}
+
+	/**
+	 * Seconds from the previous row (from the next one for the first row), or
+	 * -1 for a single-row series.
+	 */
+	private static long timestepSeconds(SeriesBlock block, int row) {
+		if (block.size() < 2) {
+			return -1L;
+		}
+		return row == 0 ? (block.timestamp(1) - block.timestamp(0)) / 1000L
+				: (block.timestamp(row) - block.timestamp(row - 1)) / 1000L;
+	}
+
+	/**
+	 * Outputs holding observations go to the measurement SQLite: names
+	 * starting with the stream-gauge data prefix or with an {@code obs} or
+	 * {@code observed} word ({@code obs_q}, {@code discharge_obs}), so that
+	 * simulation outputs merely containing those letters stay simulations.
+	 */
+	static boolean isObservation(String table) {
+		String lower = table.toLowerCase(Locale.ROOT);
+		if (lower.startsWith(ExplorerConfig.geopackageStreamGaugeDataPrefix().toLowerCase(Locale.ROOT))) {
+			return true;
+		}
+		for (String token : NAME_TOKENS.split(lower)) {
+			if (token.equals("obs") || token.equals("observed")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Observed table imported as the measurement table: the first one about
+	 * discharge, or else the first one.
+	 */
+	private static String measurementSource(List<String> observed) {
+		Optional<String> discharge = observed.stream().filter(t -> t.toLowerCase(Locale.ROOT).contains("discharge"))
+				.findFirst();
+		return discharge.orElse(observed.isEmpty() ? null : observed.get(0));
+	}
+
+	private static String observationTable(String table, String measurementSource) {
+		return table.equals(measurementSource) ? ExplorerConfig.sqliteMeasurementTable() : safeName(table);
+	}
+
+	private static String simulationTable(String table) {
+		String prefix = ExplorerConfig.geopackageSimulationPrefix();
+		String name = safeName(table);
+		return name.toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT)) ? name
+				: prefix + "_" + name;
+	}
+
+	private static String safeName(String table) {
+		return UNSAFE_NAME.matcher(table).replaceAll("_");
+	}
+
+	private static SeriesBlock await(Future<SeriesBlock> parse) throws IOException {
+		try {
+			return parse.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Import interrupted.");
+		} catch (ExecutionException ex) {
+			throw new IOException("Cannot parse legacy file: " + ex.getCause(), ex.getCause());
+		}
+	}
+
+	private static String quote(String identifier) {
+		return "\"" + identifier.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -0,0 +1,343 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Parser of the CSV time series written by OMS/GEOframe components:
+ *
+ * <pre>
+ * &#64;T,Table
+ * Created,2021-03-01 10:00
+ * &#64;H,datetime,value_12
+ * Type,Date,Double
+ * Format,yyyy-MM-dd HH:mm,
+ * ,2000-01-01 00:00,1.25
+ * </pre>
+ *
+ * The file is memory-mapped and data rows are decoded straight from the
+ * bytes: dates in the usual {@code yyyy-MM-dd HH:mm[:ss]} layout and plain
+ * decimal numbers are parsed without allocating. Other date formats fall back
+ * to {@link DateTimeFormatter}. Dates are read as UTC and -9999 as NaN.
+ */
+final class OmsCsvParser {
+
+	/**
+	 * Names of the value columns (the date column excluded), the date format
+	 * and the offset of the first data row.
+	 */
+	record Header(List<String> columns, String dateFormat, int dataStart) {
+	}
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+	private OmsCsvParser() {
+	}
+
+	static Optional<Header> header(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return header(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException | RuntimeException ex) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Reads the requested value columns (matched ignoring case; missing ones
+	 * stay NaN). Without columns the first value column is read and named
+	 * {@link SeriesCursor#VALUE}. Returns an empty block when the file cannot
+	 * be read.
+	 */
+	static SeriesBlock parse(Path file, String... columns) {
+		boolean single = columns == null || columns.length == 0;
+		return parse(file, single ? new String[] { SeriesCursor.VALUE } : columns, single);
+	}
+
+	/**
+	 * Reads the first {@code names.length} value columns by position, naming
+	 * them {@code names}; useful when the header names differ between files
+	 * ({@code value_12}, {@code value_13}).
+	 */
+	static SeriesBlock parsePositional(Path file, String... names) {
+		return parse(file, names, true);
+	}
+
+	private static SeriesBlock parse(Path file, String[] names, boolean positional) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			Optional<Header> header = header(buf);
+			if (header.isEmpty()) {
+				return SeriesBlock.empty(names);
+			}
+			// field index (0 = first value column) -> requested column, -1 to skip
+			List<String> available = header.get().columns();
+			int[] target = new int[available.size()];
+			for (int f = 0; f < target.length; f++) {
+				target[f] = -1;
+				for (int c = 0; c < names.length; c++) {
+					if (positional ? f == c : available.get(f).equalsIgnoreCase(names[c])) {
+						target[f] = c;
+						break;
+					}
+				}
+			}
+			return readRows(buf, header.get(), target, names);
+		} catch (IOException | RuntimeException ex) {
+			return SeriesBlock.empty(names);
+		}
+	}
+
+	private static Optional<Header> header(ByteBuffer buf) {
+		int limit = buf.limit();
+		int pos = 0;
+		List<String> columns = null;
+		String format = "yyyy-MM-dd HH:mm";
+		while (pos < limit) {
+			int end = lineEnd(buf, pos, limit);
+			if (end > pos && buf.get(pos) == ',') {
+				return columns == null ? Optional.empty() : Optional.of(new Header(columns, format, pos));
+			}
+			String line = ascii(buf, pos, end).trim();
+			if (line.startsWith("@H")) {
+				String[] tokens = line.split(",", -1);
+				columns = new ArrayList<>();
+				for (int i = 2; i < tokens.length; i++) {
+					columns.add(tokens[i].trim());
+				}
+			} else if (line.regionMatches(true, 0, "Format", 0, 6)) {
+				String[] tokens = line.split(",", -1);
+				if (tokens.length > 1 && !tokens[1].isBlank()) {
+					format = tokens[1].trim();
+				}
+			}
+			pos = end + 1;
+		}
+		return Optional.empty();
+	}
+
+	private static SeriesBlock readRows(ByteBuffer buf, Header header, int[] target, String[] names) {
+		int limit = buf.limit();
+		SeriesBlock.Builder out = SeriesBlock.builder(Math.max(16, (limit - header.dataStart()) / 24), names);
+		DateTimeFormatter fallback = fastDateLayout(header.dateFormat()) ? null
+				: DateTimeFormatter.ofPattern(header.dateFormat(), Locale.ROOT);
+		int pos = header.dataStart();
+		while (pos < limit) {
+			int end = lineEnd(buf, pos, limit);
+			int lineEnd = end > pos && buf.get(end - 1) == '\r' ? end - 1 : end;
+			if (lineEnd > pos && buf.get(pos) == ',') {
+				int dateStart = pos + 1;
+				int dateEnd = fieldEnd(buf, dateStart, lineEnd);
+				long ts = fallback == null ? fastTimestamp(buf, dateStart, dateEnd)
+						: slowTimestamp(buf, dateStart, dateEnd, fallback);
+				if (ts != NO_TIMESTAMP) {
+					out.add(ts);
+					int start = dateEnd + 1;
+					for (int f = 0; f < target.length && start <= lineEnd; f++) {
+						int fieldEnd = fieldEnd(buf, start, lineEnd);
+						if (target[f] >= 0) {
+							double v = parseDouble(buf, start, fieldEnd);
+							out.set(target[f], v == -9999.0 ? Double.NaN : v);
+						}
+						start = fieldEnd + 1;
+					}
+				}
+			}
+			pos = end + 1;
+		}
+		return out.build();
+	}
+
+	private static boolean fastDateLayout(String format) {
+		return format.equals("yyyy-MM-dd HH:mm") || format.equals("yyyy-MM-dd HH:mm:ss")
+				|| format.equals("yyyy-MM-dd");
+	}
+
+	/**
+	 * {@code yyyy-MM-dd[ HH:mm[:ss]]} decoded from fixed offsets.
+	 */
+	private static long fastTimestamp(ByteBuffer buf, int start, int end) {
+		while (start < end && buf.get(start) == ' ') {
+			start++;
+		}
+		int len = end - start;
+		if (len < 10) {
+			return NO_TIMESTAMP;
+		}
+		int year = digits(buf, start, 4);
+		int month = digits(buf, start + 5, 2);
+		int day = digits(buf, start + 8, 2);
+		int hour = len >= 16 ? digits(buf, start + 11, 2) : 0;
+		int minute = len >= 16 ? digits(buf, start + 14, 2) : 0;
+		int second = len >= 19 ? digits(buf, start + 17, 2) : 0;
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || minute < 0 || second < 0) {
+			return NO_TIMESTAMP;
+		}
+		return ((daysFromCivil(year, month, day) * 24 + hour) * 60 + minute) * 60_000L + second * 1000L;
+	}
+
+	private static long slowTimestamp(ByteBuffer buf, int start, int end, DateTimeFormatter formatter) {
+		String text = ascii(buf, start, end).trim();
+		try {
+			return LocalDateTime.parse(text, formatter).toInstant(ZoneOffset.UTC).toEpochMilli();
+		} catch (DateTimeParseException ex) {
+			try {
+				return LocalDate.parse(text, formatter).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+			} catch (DateTimeParseException ignored) {
+				return NO_TIMESTAMP;
+			}
+		}
+	}
+
+	/**
+	 * Days since 1970-01-01 of a proleptic Gregorian date (H. Hinnant's
+	 * days_from_civil).
+	 */
+	private static long daysFromCivil(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yoe = y - era * 400;
+		int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097L + doe - 719468L;
+	}
+
+	private static int digits(ByteBuffer buf, int start, int count) {
+		int v = 0;
+		for (int i = start; i < start + count; i++) {
+			int d = buf.get(i) - '0';
+			if (d < 0 || d > 9) {
+				return -1;
+			}
+			v = v * 10 + d;
+		}
+		return v;
+	}
+
+	/**
+	 * Plain decimals ({@code -12.5}, {@code 3.1e-4}) are decoded in place; the
+	 * rare value with more than 15 significant digits or a large exponent goes
+	 * through {@link Double#parseDouble}. Empty or unparsable fields are NaN.
+	 */
+	static double parseDouble(ByteBuffer buf, int start, int end) {
+		while (start < end && buf.get(start) == ' ') {
+			start++;
+		}
+		while (end > start && buf.get(end - 1) == ' ') {
+			end--;
+		}
+		if (start == end) {
+			return Double.NaN;
+		}
+		int i = start;
+		boolean negative = false;
+		byte b = buf.get(i);
+		if (b == '-' || b == '+') {
+			negative = b == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean dot = false;
+		boolean any = false;
+		for (; i < end; i++) {
+			b = buf.get(i);
+			if (b >= '0' && b <= '9') {
+				any = true;
+				if (digits < 18) {
+					mantissa = mantissa * 10 + (b - '0');
+					if (mantissa != 0) {
+						digits++;
+					}
+					if (dot) {
+						scale--;
+					}
+				} else if (!dot) {
+					scale++;
+				}
+			} else if (b == '.' && !dot) {
+				dot = true;
+			} else {
+				break;
+			}
+		}
+		if (i < end && (b == 'e' || b == 'E')) {
+			int j = i + 1;
+			boolean expNegative = false;
+			if (j < end && (buf.get(j) == '-' || buf.get(j) == '+')) {
+				expNegative = buf.get(j) == '-';
+				j++;
+			}
+			int exp = 0;
+			boolean expAny = false;
+			for (; j < end && buf.get(j) >= '0' && buf.get(j) <= '9'; j++) {
+				exp = Math.min(1000, exp * 10 + (buf.get(j) - '0'));
+				expAny = true;
+			}
+			if (!expAny) {
+				return slowDouble(buf, start, end);
+			}
+			scale += expNegative ? -exp : exp;
+			i = j;
+		}
+		if (!any || i != end || digits > 15) {
+			// beyond 15 digits the mantissa may not be exact in a double
+			return slowDouble(buf, start, end);
+		}
+		double value;
+		if (scale == 0) {
+			value = mantissa;
+		} else if (scale > 0 && scale < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[scale];
+		} else if (scale < 0 && -scale < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-scale];
+		} else {
+			return slowDouble(buf, start, end);
+		}
+		return negative ? -value : value;
+	}
+
+	private static double slowDouble(ByteBuffer buf, int start, int end) {
+		try {
+			return Double.parseDouble(ascii(buf, start, end).trim());
+		} catch (NumberFormatException ex) {
+			return Double.NaN;
+		}
+	}
+
+	private static int lineEnd(ByteBuffer buf, int pos, int limit) {
+		while (pos < limit && buf.get(pos) != '\n') {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int fieldEnd(ByteBuffer buf, int pos, int limit) {
+		while (pos < limit && buf.get(pos) != ',') {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static String ascii(ByteBuffer buf, int start, int end) {
+		byte[] bytes = new byte[Math.max(0, end - start)];
+		buf.get(start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,286 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesRepository.TableColumnDetail;
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
+
+/**
+ * Schema catalog of the project inputs: for every table it records the owning
+ * database, the column layout and the resolved timestamp/basin/value columns.
+ *
+ * The schema of each database file is read once and kept until the file size
+ * or modification time changes.
+ */
+public final class ProjectCatalog {
+
+	public record TableInfo(String name, Path dbPath, List<TableColumnDetail> columns, String timestampColumn,
+			String basinColumn, String valueColumn) {
+
+		public Set<String> columnNames() {
+			Set<String> out = new LinkedHashSet<>();
+			for (TableColumnDetail c : columns) {
+				out.add(c.name());
+			}
+			return out;
+		}
+
+		public Optional<String> column(String name) {
+			if (name == null || name.isBlank()) {
+				return Optional.empty();
+			}
+			String trimmed = name.trim();
+			for (TableColumnDetail c : columns) {
+				if (c.name().equalsIgnoreCase(trimmed)) {
+					return Optional.of(c.name());
+				}
+			}
+			return Optional.empty();
+		}
+
+		public boolean hasTimeseriesLayout() {
+			return timestampColumn != null && valueColumn != null;
+		}
+	}
+
+	private record FileStamp(long size, long modifiedMillis) {
+		static FileStamp of(Path path) {
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+				return new FileStamp(attrs.size(), attrs.lastModifiedTime().toMillis());
+			} catch (IOException ex) {
+				return new FileStamp(-1L, -1L);
+			}
+		}
+	}
+
+	private static final class DatabaseSchema {
+		private final FileStamp stamp;
+		private final Map<String, TableInfo> tables;
+		private final Map<String, Long> rowCounts = new ConcurrentHashMap<>();
+
+		private DatabaseSchema(FileStamp stamp, Map<String, TableInfo> tables) {
+			this.stamp = stamp;
+			this.tables = tables;
+		}
+	}
+
+	private static final TimeseriesRepository REPOSITORY = new TimeseriesRepository();
+	private static final Map<Path, DatabaseSchema> SCHEMAS = new ConcurrentHashMap<>();
+	private static final Map<Path, Object> LOAD_LOCKS = new ConcurrentHashMap<>();
+	/** Resolved owner of a table, keyed by the input list and the lower-case table name. */
+	private static final Map<String, Path> OWNERS = new ConcurrentHashMap<>();
+	private static final ExecutorService PROBES = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "catalog-probe");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final List<Path> inputs;
+
+	private ProjectCatalog(List<Path> inputs) {
+		this.inputs = inputs;
+	}
+
+	public static ProjectCatalog forProject(ProjectConfig config) {
+		if (config == null) {
+			return of();
+		}
+		return of(config.geopackagePath(), config.sqlitePath());
+	}
+
+	/**
+	 * Catalog over the given database files; lookups by table name return the
+	 * first input that owns the table.
+	 */
+	public static ProjectCatalog of(Path... dbPaths) {
+		List<Path> inputs = new ArrayList<>();
+		if (dbPaths != null) {
+			for (Path p : dbPaths) {
+				if (p != null) {
+					inputs.add(p.toAbsolutePath().normalize());
+				}
+			}
+		}
+		return new ProjectCatalog(Collections.unmodifiableList(inputs));
+	}
+
+	public static void invalidate(Path... dbPaths) {
+		if (dbPaths == null) {
+			return;
+		}
+		for (Path p : dbPaths) {
+			if (p != null) {
+				SCHEMAS.remove(p.toAbsolutePath().normalize());
+			}
+		}
+		OWNERS.clear();
+	}
+
+	public List<Path> inputs() {
+		return inputs;
+	}
+
+	public List<String> tableNames() {
+		List<String> out = new ArrayList<>();
+		for (Path input : inputs) {
+			out.addAll(tableNames(input));
+		}
+		return out;
+	}
+
+	public List<String> tableNames(Path dbPath) {
+		DatabaseSchema schema = schema(dbPath);
+		List<String> out = new ArrayList<>();
+		for (TableInfo t : schema.tables.values()) {
+			out.add(t.name());
+		}
+		return out;
+	}
+
+	public List<String> tableNamesStartingWith(String prefix) {
+		List<String> out = new ArrayList<>();
+		for (Path input : inputs) {
+			out.addAll(tableNamesStartingWith(input, prefix));
+		}
+		return out;
+	}
+
+	public List<String> tableNamesStartingWith(Path dbPath, String prefix) {
+		String lowerPrefix = prefix == null ? "" : prefix.toLowerCase(Locale.ROOT);
+		List<String> out = new ArrayList<>();
+		for (String name : tableNames(dbPath)) {
+			if (name.toLowerCase(Locale.ROOT).startsWith(lowerPrefix)) {
+				out.add(name);
+			}
+		}
+		return out;
+	}
+
+	public Optional<TableInfo> table(String tableName) {
+		return owner(tableName).flatMap(input -> table(input, tableName));
+	}
+
+	public Optional<TableInfo> table(Path dbPath, String tableName) {
+		if (dbPath == null || tableName == null || tableName.isBlank()) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(schema(dbPath).tables.get(tableName.toLowerCase(Locale.ROOT)));
+	}
+
+	/**
+	 * Input that owns the table, the first one in input order when several do.
+	 * Resolved once per table; while ownership is unknown the schemas of all
+	 * inputs are probed in parallel instead of one after the other.
+	 */
+	public Optional<Path> owner(String tableName) {
+		if (tableName == null || tableName.isBlank() || inputs.isEmpty()) {
+			return Optional.empty();
+		}
+		String lower = tableName.toLowerCase(Locale.ROOT);
+		String key = inputs + "|" + lower;
+		Path known = OWNERS.get(key);
+		if (known != null && schema(known).tables.containsKey(lower)) {
+			return Optional.of(known);
+		}
+		List<CompletableFuture<Boolean>> probes = new ArrayList<>();
+		for (Path input : inputs) {
+			probes.add(CompletableFuture.supplyAsync(() -> schema(input).tables.containsKey(lower), PROBES));
+		}
+		for (int i = 0; i < inputs.size(); i++) {
+			if (Boolean.TRUE.equals(probes.get(i).join())) {
+				OWNERS.put(key, inputs.get(i));
+				return Optional.of(inputs.get(i));
+			}
+		}
+		OWNERS.remove(key);
+		return Optional.empty();
+	}
+
+	public boolean hasTable(Path dbPath, String tableName) {
+		return table(dbPath, tableName).isPresent();
+	}
+
+	/**
+	 * Row count of a table, computed on first request and cached with the
+	 * schema. Returns -1 when the table cannot be read.
+	 */
+	public long rowCount(Path dbPath, String tableName) {
+		Optional<TableInfo> info = table(dbPath, tableName);
+		if (info.isEmpty()) {
+			return -1L;
+		}
+		DatabaseSchema schema = schema(dbPath);
+		return schema.rowCounts.computeIfAbsent(info.get().name().toLowerCase(Locale.ROOT),
+				k -> REPOSITORY.countRows(info.get().dbPath(), info.get().name()));
+	}
+
+	private static DatabaseSchema schema(Path dbPath) {
+		Path key = dbPath.toAbsolutePath().normalize();
+		FileStamp stamp = FileStamp.of(key);
+		DatabaseSchema cached = SCHEMAS.get(key);
+		if (cached != null && cached.stamp.equals(stamp)) {
+			return cached;
+		}
+		synchronized (LOAD_LOCKS.computeIfAbsent(key, k -> new Object())) {
+			cached = SCHEMAS.get(key);
+			if (cached != null && cached.stamp.equals(stamp)) {
+				return cached;
+			}
+			DatabaseSchema loaded = load(key, stamp);
+			if (!loaded.tables.isEmpty()) {
+				// an unreadable file is probed again on the next lookup
+				SCHEMAS.put(key, loaded);
+			}
+			return loaded;
+		}
+	}
+
+	private static DatabaseSchema load(Path dbPath, FileStamp stamp) {
+		if (stamp.size() < 0) {
+			return new DatabaseSchema(stamp, Map.of());
+		}
+		String[] tsCandidates = timestampCandidates();
+		String[] valueCandidates = valueCandidates();
+		String[] basinCandidates = ExplorerConfig.timeseriesBasinIdCandidates();
+		Map<String, TableInfo> tables = new LinkedHashMap<>();
+		for (Map.Entry<String, List<TableColumnDetail>> e : REPOSITORY.listSchema(dbPath).entrySet()) {
+			List<TableColumnDetail> columns = List.copyOf(e.getValue());
+			Set<String> names = new LinkedHashSet<>();
+			for (TableColumnDetail c : columns) {
+				names.add(c.name());
+			}
+			TableInfo info = new TableInfo(e.getKey(), dbPath, columns,
+					REPOSITORY.findFirstColumnIgnoreCase(names, tsCandidates).orElse(null),
+					REPOSITORY.findFirstColumnIgnoreCase(names, basinCandidates).orElse(null),
+					REPOSITORY.findFirstColumnIgnoreCase(names, valueCandidates).orElse(null));
+			tables.put(e.getKey().toLowerCase(Locale.ROOT), info);
+		}
+		return new DatabaseSchema(stamp, tables);
+	}
+
+	private static String[] timestampCandidates() {
+		return new String[] { ExplorerConfig.timeseriesTimestampColumn(), "ts", "timestamp", "date", "time" };
+	}
+
+	private static String[] valueCandidates() {
+		return new String[] { ExplorerConfig.timeseriesValueColumn(), "value", "simulated", "obs", "q" };
+	}
+}
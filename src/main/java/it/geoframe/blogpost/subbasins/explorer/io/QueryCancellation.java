@@ -0,0 +1,114 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cancellation token for the queries run by one loader task.
+ *
+ * While a task runs inside {@link #call(Supplier)}, every statement the
+ * {@code io} package executes on that thread is registered with the token;
+ * {@link #cancel()} then calls {@link Statement#cancel()} on them, which
+ * interrupts SQLite in the middle of a scan instead of waiting for it.
+ */
+public final class QueryCancellation {
+
+	private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+	private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+	private volatile boolean cancelled;
+
+	/**
+	 * Registration of a statement with the token of the current thread;
+	 * closing it unregisters the statement.
+	 */
+	public static final class Registration implements AutoCloseable {
+		private final QueryCancellation token;
+		private final Statement statement;
+
+		private Registration(QueryCancellation token, Statement statement) {
+			this.token = token;
+			this.statement = statement;
+		}
+
+		@Override
+		public void close() {
+			if (token != null) {
+				token.statements.remove(statement);
+			}
+		}
+	}
+
+	/**
+	 * Runs {@code task} with this token as the current one of the calling
+	 * thread.
+	 */
+	public <T> T call(Supplier<T> task) {
+		QueryCancellation previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return task.get();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	public void cancel() {
+		cancelled = true;
+		for (Statement st : statements) {
+			cancelQuietly(st);
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Registers a statement with the token of the current thread, if any. A
+	 * statement registered after cancellation is cancelled right away.
+	 */
+	static Registration track(Statement statement) {
+		QueryCancellation token = CURRENT.get();
+		if (token == null) {
+			return new Registration(null, statement);
+		}
+		token.statements.add(statement);
+		if (token.cancelled) {
+			cancelQuietly(statement);
+		}
+		return new Registration(token, statement);
+	}
+
+	/**
+	 * True when the current thread runs a task whose token was cancelled;
+	 * partial results must then not be cached.
+	 */
+	static boolean currentCancelled() {
+		QueryCancellation token = CURRENT.get();
+		return token != null && token.cancelled;
+	}
+
+	/**
+	 * Fails fast between chunks when the current task has been cancelled.
+	 */
+	static void checkCurrent() throws SQLException {
+		if (currentCancelled()) {
+			throw new SQLException("Query cancelled");
+		}
+	}
+
+	private static void cancelQuietly(Statement st) {
+		try {
+			st.cancel();
+		} catch (SQLException ignored) {
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar block of a time series: one {@code long[]} of timestamps (epoch
+ * millis, ascending) and one {@code double[]} per value column. Missing values
+ * are stored as {@link Double#NaN}.
+ *
+ * Arrays returned by {@link #timestamps()} and {@link #column(int)} are the
+ * backing storage of the block and must be treated as read-only; only the
+ * first {@link #size()} entries are meaningful.
+ */
+public final class SeriesBlock {
+
+	private final List<String> columnNames;
+	private final Map<String, Integer> columnIndex;
+	private final long[] timestamps;
+	private final double[][] columns;
+	private final int size;
+
+	private SeriesBlock(List<String> columnNames, long[] timestamps, double[][] columns, int size) {
+		this.columnNames = columnNames;
+		this.timestamps = timestamps;
+		this.columns = columns;
+		this.size = size;
+		Map<String, Integer> idx = new HashMap<>();
+		for (int i = 0; i < columnNames.size(); i++) {
+			idx.putIfAbsent(columnNames.get(i), i);
+		}
+		this.columnIndex = idx;
+	}
+
+	public static SeriesBlock empty(String... columnNames) {
+		return new Builder(0, columnNames).build();
+	}
+
+	public static Builder builder(String... columnNames) {
+		return new Builder(1024, columnNames);
+	}
+
+	public static Builder builder(int expectedRows, String... columnNames) {
+		return new Builder(expectedRows, columnNames);
+	}
+
+	/**
+	 * Block backed by the given arrays, which must not be modified afterwards.
+	 */
+	static SeriesBlock wrap(long[] timestamps, double[][] columns, String... columnNames) {
+		return new SeriesBlock(List.of(columnNames), timestamps, columns, timestamps.length);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public List<String> columnNames() {
+		return columnNames;
+	}
+
+	public int columnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * Index of the named column, or -1 when the block does not carry it.
+	 */
+	public int columnIndex(String name) {
+		Integer i = name == null ? null : columnIndex.get(name);
+		return i == null ? -1 : i;
+	}
+
+	public long timestamp(int row) {
+		return timestamps[row];
+	}
+
+	public double value(int column, int row) {
+		return columns[column][row];
+	}
+
+	/**
+	 * Value of the named column at the given row, or NaN when the column is
+	 * not part of the block.
+	 */
+	public double value(String column, int row) {
+		int c = columnIndex(column);
+		return c < 0 ? Double.NaN : columns[c][row];
+	}
+
+	public long[] timestamps() {
+		return timestamps;
+	}
+
+	public double[] column(int column) {
+		return columns[column];
+	}
+
+	public double[] column(String name) {
+		int c = columnIndex(name);
+		return c < 0 ? null : columns[c];
+	}
+
+	public long firstTimestamp() {
+		return timestamps[0];
+	}
+
+	public long lastTimestamp() {
+		return timestamps[size - 1];
+	}
+
+	/**
+	 * First row whose timestamp is not before {@code ts}; {@link #size()} when
+	 * every row is earlier.
+	 */
+	public int rowAtOrAfter(long ts) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timestamps[mid] < ts) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Copy of rows {@code [fromRow, toRow)}.
+	 */
+	public SeriesBlock slice(int fromRow, int toRow) {
+		double[][] cols = new double[columns.length][];
+		for (int c = 0; c < columns.length; c++) {
+			cols[c] = Arrays.copyOfRange(columns[c], fromRow, toRow);
+		}
+		return new SeriesBlock(columnNames, Arrays.copyOfRange(timestamps, fromRow, toRow), cols, toRow - fromRow);
+	}
+
+	/**
+	 * Approximate heap footprint of the primitive arrays, in bytes.
+	 */
+	public long sizeInBytes() {
+		return 8L * timestamps.length * (1 + columns.length);
+	}
+
+	public static final class Builder {
+		private final List<String> columnNames;
+		private long[] timestamps;
+		private double[][] columns;
+		private int size;
+
+		private Builder(int expectedRows, String... names) {
+			this.columnNames = List.of(names == null ? new String[0] : names);
+			int capacity = Math.max(0, expectedRows);
+			this.timestamps = new long[capacity];
+			this.columns = new double[columnNames.size()][capacity];
+		}
+
+		/**
+		 * Appends a row whose values are all NaN; fill it with
+		 * {@link #set(int, double)}.
+		 */
+		public Builder add(long timestamp) {
+			ensureCapacity(size + 1);
+			timestamps[size] = timestamp;
+			for (double[] column : columns) {
+				column[size] = Double.NaN;
+			}
+			size++;
+			return this;
+		}
+
+		/**
+		 * Sets a value of the last appended row.
+		 */
+		public Builder set(int column, double value) {
+			columns[column][size - 1] = value;
+			return this;
+		}
+
+		public Builder addRow(long timestamp, double... values) {
+			add(timestamp);
+			for (int c = 0; c < values.length && c < columns.length; c++) {
+				columns[c][size - 1] = values[c];
+			}
+			return this;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public SeriesBlock build() {
+			long[] ts = timestamps.length == size ? timestamps : Arrays.copyOf(timestamps, size);
+			double[][] cols = new double[columns.length][];
+			for (int c = 0; c < columns.length; c++) {
+				cols[c] = columns[c].length == size ? columns[c] : Arrays.copyOf(columns[c], size);
+			}
+			return new SeriesBlock(columnNames, ts, cols, size);
+		}
+
+		private void ensureCapacity(int required) {
+			if (required <= timestamps.length) {
+				return;
+			}
+			int capacity = Math.max(required, Math.max(16, timestamps.length + (timestamps.length >> 1)));
+			timestamps = Arrays.copyOf(timestamps, capacity);
+			for (int c = 0; c < columns.length; c++) {
+				columns[c] = Arrays.copyOf(columns[c], capacity);
+			}
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+
+/**
+ * Process-wide in-memory cache of decoded series blocks.
+ *
+ * Blocks are held strongly up to a byte budget ({@code cache.series.maxBytes})
+ * and evicted in least-recently-used order. Evicted blocks, and blocks larger
+ * than the whole budget, are kept through soft references only: they are
+ * still served while the heap has room and are dropped by the GC before it
+ * runs out of memory.
+ */
+public final class SeriesCache {
+
+	public record Stats(long hits, long softHits, long misses, long evictions, int entries, long bytes,
+			long maxBytes, int softEntries) {
+	}
+
+	private static final SeriesCache SHARED = new SeriesCache(ExplorerConfig.seriesCacheMaxBytes());
+
+	private static final class Spilled extends SoftReference<SeriesBlock> {
+		private final String key;
+
+		private Spilled(String key, SeriesBlock block, ReferenceQueue<SeriesBlock> queue) {
+			super(block, queue);
+			this.key = key;
+		}
+	}
+
+	private final long maxBytes;
+	private final LinkedHashMap<String, SeriesBlock> entries = new LinkedHashMap<>(64, 0.75f, true);
+	private final Map<String, Spilled> spilled = new HashMap<>();
+	private final ReferenceQueue<SeriesBlock> cleared = new ReferenceQueue<>();
+	private long bytes;
+	private long hits;
+	private long softHits;
+	private long misses;
+	private long evictions;
+
+	public SeriesCache(long maxBytes) {
+		this.maxBytes = Math.max(0L, maxBytes);
+	}
+
+	public static SeriesCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Cached block for {@code key}, or null. A block found among the soft
+	 * references is moved back under the byte budget.
+	 */
+	public synchronized SeriesBlock get(String key) {
+		expunge();
+		SeriesBlock block = entries.get(key);
+		if (block != null) {
+			hits++;
+			return block;
+		}
+		Spilled ref = spilled.get(key);
+		block = ref == null ? null : ref.get();
+		if (block == null) {
+			misses++;
+			return null;
+		}
+		softHits++;
+		store(key, block);
+		return block;
+	}
+
+	public synchronized void put(String key, SeriesBlock block) {
+		if (key == null || block == null) {
+			return;
+		}
+		expunge();
+		store(key, block);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		spilled.clear();
+		bytes = 0L;
+	}
+
+	public synchronized Stats stats() {
+		expunge();
+		return new Stats(hits, softHits, misses, evictions, entries.size(), bytes, maxBytes, spilled.size());
+	}
+
+	private void store(String key, SeriesBlock block) {
+		SeriesBlock previous = entries.remove(key);
+		if (previous != null) {
+			bytes -= previous.sizeInBytes();
+		}
+		long size = block.sizeInBytes();
+		if (size > maxBytes) {
+			spill(key, block);
+			return;
+		}
+		spilled.remove(key);
+		entries.put(key, block);
+		bytes += size;
+		Iterator<Map.Entry<String, SeriesBlock>> it = entries.entrySet().iterator();
+		while (bytes > maxBytes && it.hasNext()) {
+			Map.Entry<String, SeriesBlock> eldest = it.next();
+			it.remove();
+			bytes -= eldest.getValue().sizeInBytes();
+			evictions++;
+			spill(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	private void spill(String key, SeriesBlock block) {
+		spilled.put(key, new Spilled(key, block, cleared));
+	}
+
+	private void expunge() {
+		Reference<? extends SeriesBlock> ref;
+		while ((ref = cleared.poll()) != null) {
+			Spilled s = (Spilled) ref;
+			spilled.remove(s.key, s);
+		}
+	}
+}
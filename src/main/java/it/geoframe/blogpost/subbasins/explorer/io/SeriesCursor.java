@@ -0,0 +1,155 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Forward-only cursor over a time-series query that hands out fixed-size
+ * {@link SeriesBlock} chunks. Only one chunk is materialized at a time, so a
+ * consumer that does not retain chunks reads any series length in constant
+ * memory; the query only advances when the consumer asks for the next chunk.
+ *
+ * The cursor holds a pooled connection until it is closed. Cursors over an
+ * in-memory block (legacy folder series) hold nothing.
+ */
+public final class SeriesCursor implements AutoCloseable {
+
+	public static final String VALUE = "value";
+
+	private final SqliteConnectionPool.Lease lease;
+	private final PreparedStatement statement;
+	private final QueryCancellation.Registration cancellation;
+	private final ResultSet resultSet;
+	private final String[] columns;
+	private final int chunkSize;
+	private final boolean singleSeries;
+	private final SeriesBlock source;
+	private int position;
+	private SeriesBlock chunk;
+	private long rowsRead;
+	private boolean exhausted;
+
+	SeriesCursor(SqliteConnectionPool.Lease lease, PreparedStatement statement, String[] columns, int chunkSize,
+			boolean singleSeries) throws SQLException {
+		this.lease = lease;
+		this.statement = statement;
+		this.columns = columns;
+		this.chunkSize = Math.max(1, chunkSize);
+		this.singleSeries = singleSeries;
+		this.source = null;
+		this.cancellation = QueryCancellation.track(statement);
+		this.resultSet = statement.executeQuery();
+	}
+
+	/**
+	 * A cursor that yields nothing, used when the table cannot be resolved.
+	 */
+	static SeriesCursor empty(String... columns) {
+		return new SeriesCursor(SeriesBlock.empty(columns), 1);
+	}
+
+	/**
+	 * A cursor that hands out an already loaded block in chunks.
+	 */
+	static SeriesCursor over(SeriesBlock block, int chunkSize) {
+		return new SeriesCursor(block, chunkSize);
+	}
+
+	private SeriesCursor(SeriesBlock block, int chunkSize) {
+		this.lease = null;
+		this.statement = null;
+		this.cancellation = null;
+		this.resultSet = null;
+		this.columns = block.columnNames().toArray(new String[0]);
+		this.chunkSize = Math.max(1, chunkSize);
+		this.singleSeries = false;
+		this.source = block;
+		this.exhausted = block.isEmpty();
+	}
+
+	/**
+	 * Reads the next chunk; returns false when the query is exhausted.
+	 */
+	public boolean next() throws SQLException {
+		if (exhausted) {
+			chunk = null;
+			return false;
+		}
+		QueryCancellation.checkCurrent();
+		if (source != null) {
+			int to = Math.min(source.size(), position + chunkSize);
+			chunk = source.slice(position, to);
+			position = to;
+			exhausted = to == source.size();
+			rowsRead += chunk.size();
+			return true;
+		}
+		SeriesBlock.Builder builder = SeriesBlock.builder(chunkSize, columns);
+		while (builder.size() < chunkSize && resultSet.next()) {
+			if (singleSeries) {
+				// -9999 is the model no-data marker; NULL rows are skipped.
+				double value = resultSet.getDouble(2);
+				if (resultSet.wasNull()) {
+					continue;
+				}
+				builder.add(resultSet.getLong(1)).set(0, value == -9999.0 ? Double.NaN : value);
+			} else {
+				builder.add(resultSet.getLong(1));
+				for (int i = 0; i < columns.length; i++) {
+					double v = resultSet.getDouble(i + 2);
+					if (!resultSet.wasNull()) {
+						builder.set(i, v);
+					}
+				}
+			}
+		}
+		if (builder.size() < chunkSize) {
+			exhausted = true;
+		}
+		if (builder.size() == 0) {
+			chunk = null;
+			return false;
+		}
+		chunk = builder.build();
+		rowsRead += chunk.size();
+		return true;
+	}
+
+	/**
+	 * The chunk read by the last successful {@link #next()}.
+	 */
+	public SeriesBlock chunk() {
+		return chunk;
+	}
+
+	public String[] columns() {
+		return columns.clone();
+	}
+
+	public long rowsRead() {
+		return rowsRead;
+	}
+
+	@Override
+	public void close() {
+		if (cancellation != null) {
+			cancellation.close();
+		}
+		try {
+			if (resultSet != null) {
+				resultSet.close();
+			}
+		} catch (SQLException ignored) {
+		}
+		try {
+			if (statement != null) {
+				statement.close();
+			}
+		} catch (SQLException ignored) {
+		}
+		if (lease != null) {
+			lease.close();
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+
+/**
+ * Persistent cache of decoded series, one binary file per (database, table,
+ * basin, columns) under {@code <cache.dir>/series}.
+ *
+ * Layout (little endian): magic, version, source size and mtime, size and
+ * mtime of the source WAL file, row count, column count, key and column names (length-prefixed UTF-8), padding
+ * to 8 bytes, then the timestamps and one block of doubles per column. Files
+ * are read and written whole through a heap buffer rather than mapped: the
+ * values end up in heap arrays anyway, and a mapping outliving the read would
+ * keep the file from being replaced on Windows. An entry is ignored as soon
+ * as size or modification time of the source database or of its WAL file
+ * differ from the ones recorded in its header.
+ */
+public final class SeriesFileCache {
+
+	private static final int MAGIC = 0x47534331; // "GSC1"
+	private static final int VERSION = 2;
+
+	private static final Map<String, Boolean> PENDING_FILLS = new ConcurrentHashMap<>();
+	private static final ExecutorService FILLER = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "series-file-cache");
+		t.setDaemon(true);
+		t.setPriority(Thread.MIN_PRIORITY);
+		return t;
+	});
+
+	private SeriesFileCache() {
+	}
+
+	/**
+	 * Cached block for the key, or empty when missing, stale or unreadable.
+	 */
+	public static Optional<SeriesBlock> read(Path dbPath, String table, String basinId, String... columns) {
+		if (!ExplorerConfig.seriesFileCacheEnabled() || dbPath == null) {
+			return Optional.empty();
+		}
+		String key = key(dbPath, table, basinId, columns);
+		Path file = fileFor(key);
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		SourceStamp stamp = SourceStamp.of(dbPath);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return Optional.empty();
+			}
+			ByteBuffer buf = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+			while (buf.hasRemaining()) {
+				if (channel.read(buf) < 0) {
+					return Optional.empty();
+				}
+			}
+			buf.flip();
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION || buf.getLong() != stamp.size()
+					|| buf.getLong() != stamp.modifiedMillis() || buf.getLong() != stamp.walSize()
+					|| buf.getLong() != stamp.walModifiedMillis()) {
+				return Optional.empty();
+			}
+			int rows = buf.getInt();
+			int cols = buf.getInt();
+			if (!key.equals(readString(buf)) || cols != columns.length) {
+				return Optional.empty();
+			}
+			String[] names = new String[cols];
+			for (int c = 0; c < cols; c++) {
+				names[c] = readString(buf);
+			}
+			buf.position(align(buf.position()));
+			long[] timestamps = new long[rows];
+			buf.asLongBuffer().get(timestamps);
+			buf.position(buf.position() + rows * Long.BYTES);
+			double[][] values = new double[cols][rows];
+			for (int c = 0; c < cols; c++) {
+				buf.asDoubleBuffer().get(values[c]);
+				buf.position(buf.position() + rows * Double.BYTES);
+			}
+			return Optional.of(SeriesBlock.wrap(timestamps, values, names));
+		} catch (IOException | RuntimeException ex) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Writes a block for the key, read from the source when it had
+	 * {@code readFrom} as stamp (taken before the read). Nothing is written if
+	 * the source has changed since, as the block may hold rows of either
+	 * version. The file is replaced atomically so that concurrent readers see
+	 * either the old or the new entry.
+	 */
+	static void write(Path dbPath, SourceStamp readFrom, String table, String basinId, SeriesBlock block) {
+		if (!ExplorerConfig.seriesFileCacheEnabled() || dbPath == null || block == null) {
+			return;
+		}
+		String[] columns = block.columnNames().toArray(new String[0]);
+		String key = key(dbPath, table, basinId, columns);
+		Path file = fileFor(key);
+		if (!readFrom.exists() || !readFrom.equals(SourceStamp.of(dbPath))) {
+			return;
+		}
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int header = 4 + 4 + 4 * 8 + 4 + 4 + 4 + keyBytes.length;
+		for (String c : columns) {
+			header += 4 + c.getBytes(StandardCharsets.UTF_8).length;
+		}
+		int rows = block.size();
+		long total = align(header) + (long) rows * Long.BYTES * (1 + columns.length);
+		if (total > Integer.MAX_VALUE) {
+			return;
+		}
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp" + Thread.currentThread().getId());
+		try {
+			Files.createDirectories(file.getParent());
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				ByteBuffer buf = ByteBuffer.allocate((int) total).order(ByteOrder.LITTLE_ENDIAN);
+				buf.putInt(MAGIC).putInt(VERSION).putLong(readFrom.size()).putLong(readFrom.modifiedMillis())
+						.putLong(readFrom.walSize()).putLong(readFrom.walModifiedMillis()).putInt(rows).putInt(columns.length);
+				writeString(buf, key);
+				for (String c : columns) {
+					writeString(buf, c);
+				}
+				buf.position(align(buf.position()));
+				buf.asLongBuffer().put(block.timestamps(), 0, rows);
+				buf.position(buf.position() + rows * Long.BYTES);
+				for (int c = 0; c < columns.length; c++) {
+					buf.asDoubleBuffer().put(block.column(c), 0, rows);
+					buf.position(buf.position() + rows * Double.BYTES);
+				}
+				buf.flip();
+				while (buf.hasRemaining()) {
+					channel.write(buf);
+				}
+				channel.force(false);
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException ex) {
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	/**
+	 * Loads the full block with {@code loader} on a background thread and
+	 * stores it, unless the same key is already being filled. Used when the
+	 * caller only needed part of the series.
+	 */
+	static void fillAsync(Path dbPath, String table, String basinId, String[] columns,
+			Supplier<SeriesBlock> loader) {
+		if (!ExplorerConfig.seriesFileCacheEnabled() || dbPath == null) {
+			return;
+		}
+		String key = key(dbPath, table, basinId, columns);
+		if (PENDING_FILLS.putIfAbsent(key, Boolean.TRUE) != null) {
+			return;
+		}
+		FILLER.execute(() -> {
+			try {
+				SourceStamp stamp = SourceStamp.of(dbPath);
+				if (read(dbPath, table, basinId, columns).isEmpty()) {
+					SeriesBlock block = loader.get();
+					if (block != null && !block.isEmpty()) {
+						write(dbPath, stamp, table, basinId, block);
+					}
+				}
+			} finally {
+				PENDING_FILLS.remove(key);
+			}
+		});
+	}
+
+	private static String key(Path dbPath, String table, String basinId, String... columns) {
+		return dbPath.toAbsolutePath().normalize() + "|" + table + "|" + (basinId == null ? "" : basinId) + "|"
+				+ String.join(",", columns);
+	}
+
+	private static Path fileFor(String key) {
+		String name = Integer.toHexString(key.hashCode()) + "-" + Integer.toHexString(key.length()) + ".series";
+		return ExplorerConfig.cacheDirectory().resolve("series").resolve(name);
+	}
+
+	private static int align(int position) {
+		return (position + 7) & ~7;
+	}
+
+	private static String readString(ByteBuffer buf) {
+		byte[] bytes = new byte[buf.getInt()];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(ByteBuffer buf, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		buf.putInt(bytes.length).put(bytes);
+	}
+}
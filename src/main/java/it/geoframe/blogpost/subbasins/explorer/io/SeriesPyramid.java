@@ -0,0 +1,175 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Multi-resolution summary of a single-value series.
+ *
+ * Level {@code k} groups the rows in buckets of {@code 4^k} consecutive rows
+ * and keeps, per bucket, its first timestamp and min, max, mean and count of
+ * the finite values. No level is built with fewer than {@link #MIN_BUCKETS}
+ * buckets, unless the series is that short. All levels are packed in one
+ * {@link SeriesBlock} (finest first, with a {@link #LEVEL} column) so the
+ * pyramid can be kept by the same caches as the series it summarizes.
+ */
+public final class SeriesPyramid {
+
+	public static final String LEVEL = "level";
+	public static final String MIN = "min";
+	public static final String MAX = "max";
+	public static final String MEAN = "mean";
+	public static final String COUNT = "count";
+	static final String[] COLUMNS = { LEVEL, MIN, MAX, MEAN, COUNT };
+
+	/** Each level is 4 times coarser than the previous one. */
+	private static final int FAN_OUT = 4;
+	private static final int MIN_BUCKETS = 64;
+
+	private final SeriesBlock packed;
+	private final int[] levelStart;
+
+	private SeriesPyramid(SeriesBlock packed) {
+		this.packed = packed;
+		double[] level = packed.column(0);
+		List<Integer> starts = new ArrayList<>();
+		for (int i = 0; i < packed.size(); i++) {
+			if (i == 0 || level[i] != level[i - 1]) {
+				starts.add(i);
+			}
+		}
+		starts.add(packed.size());
+		levelStart = starts.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Pyramid restored from the block returned by {@link #packed()}.
+	 */
+	public static SeriesPyramid of(SeriesBlock packed) {
+		return new SeriesPyramid(packed);
+	}
+
+	public static SeriesPyramid build(SeriesBlock series) {
+		int n = series.size();
+		SeriesBlock.Builder out = SeriesBlock.builder(n / (FAN_OUT - 1) + 1, COLUMNS);
+		// level 1 from the raw rows
+		int size = (n + FAN_OUT - 1) / FAN_OUT;
+		long[] ts = new long[size];
+		double[] min = new double[size];
+		double[] max = new double[size];
+		double[] sum = new double[size];
+		long[] count = new long[size];
+		for (int b = 0; b < size; b++) {
+			ts[b] = series.timestamp(b * FAN_OUT);
+			min[b] = Double.POSITIVE_INFINITY;
+			max[b] = Double.NEGATIVE_INFINITY;
+			for (int i = b * FAN_OUT, end = Math.min(n, i + FAN_OUT); i < end; i++) {
+				double v = series.value(0, i);
+				if (Double.isFinite(v)) {
+					min[b] = Math.min(min[b], v);
+					max[b] = Math.max(max[b], v);
+					sum[b] += v;
+					count[b]++;
+				}
+			}
+		}
+		int level = 1;
+		while (true) {
+			for (int b = 0; b < size; b++) {
+				boolean empty = count[b] == 0;
+				out.addRow(ts[b], level, empty ? Double.NaN : min[b], empty ? Double.NaN : max[b],
+						empty ? Double.NaN : sum[b] / count[b], count[b]);
+			}
+			if (size < MIN_BUCKETS * FAN_OUT) {
+				break;
+			}
+			// next level: merge FAN_OUT buckets of this one, in place
+			int next = (size + FAN_OUT - 1) / FAN_OUT;
+			for (int b = 0; b < next; b++) {
+				int first = b * FAN_OUT;
+				long t = ts[first];
+				double mn = Double.POSITIVE_INFINITY;
+				double mx = Double.NEGATIVE_INFINITY;
+				double s = 0;
+				long c = 0;
+				for (int i = first, end = Math.min(size, first + FAN_OUT); i < end; i++) {
+					mn = Math.min(mn, min[i]);
+					mx = Math.max(mx, max[i]);
+					s += sum[i];
+					c += count[i];
+				}
+				ts[b] = t;
+				min[b] = mn;
+				max[b] = mx;
+				sum[b] = s;
+				count[b] = c;
+			}
+			size = next;
+			level++;
+		}
+		return new SeriesPyramid(out.build());
+	}
+
+	public SeriesBlock packed() {
+		return packed;
+	}
+
+	public int levelCount() {
+		return levelStart.length - 1;
+	}
+
+	/**
+	 * Rows of the source series summarized by one bucket of the level (1 is
+	 * the finest).
+	 */
+	public static long bucketRows(int level) {
+		return 1L << (2 * level);
+	}
+
+	/**
+	 * Buckets of one level (1 is the finest) overlapping {@code range}.
+	 */
+	public SeriesBlock level(int level, TimeRange range) {
+		int start = levelStart[level - 1];
+		int end = levelStart[level];
+		int from = Math.max(start, search(start, end, range.from()) - 1);
+		int to = range.to() == Long.MAX_VALUE ? end : search(start, end, range.to() + 1);
+		return packed.slice(from, Math.max(from, to));
+	}
+
+	/**
+	 * Finest level that covers {@code range} with at most {@code maxBuckets}
+	 * buckets, or empty when the raw rows in the range are few enough (about
+	 * two per bucket) to be drawn as they are.
+	 */
+	public Optional<SeriesBlock> query(TimeRange range, int maxBuckets) {
+		if (levelCount() == 0) {
+			return Optional.empty();
+		}
+		SeriesBlock finest = level(1, range);
+		if (finest.size() * bucketRows(1) <= 2L * maxBuckets) {
+			return Optional.empty();
+		}
+		SeriesBlock chosen = finest;
+		for (int k = 2; k <= levelCount() && chosen.size() > maxBuckets; k++) {
+			chosen = level(k, range);
+		}
+		return Optional.of(chosen);
+	}
+
+	private int search(int start, int end, long ts) {
+		long[] timestamps = packed.timestamps();
+		int lo = start;
+		int hi = end;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timestamps[mid] < ts) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+}
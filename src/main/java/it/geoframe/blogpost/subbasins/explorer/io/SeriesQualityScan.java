@@ -0,0 +1,237 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+
+/**
+ * Data-quality summary of time-series tables, computed in one streaming pass
+ * per table: per basin the row count, first and last timestamp, the usual
+ * time step and the steps that depart from it (gaps, irregular steps,
+ * duplicate timestamps) and the share of missing (-9999 or NULL) values.
+ *
+ * Summaries are kept for the session while the database file is unchanged,
+ * so the loader can report on a series without scanning it again.
+ */
+public final class SeriesQualityScan {
+
+	public record BasinQuality(String basinId, long rows, long firstTs, long lastTs, long stepMillis,
+			long gaps, long irregularSteps, long duplicates, long missing) {
+
+		public double missingFraction() {
+			return rows == 0 ? 0.0 : missing / (double) rows;
+		}
+
+		public boolean hasIssues() {
+			return gaps > 0 || irregularSteps > 0 || duplicates > 0 || missing > 0;
+		}
+	}
+
+	public record TableQuality(String table, long rows, Map<String, BasinQuality> basins) {
+	}
+
+	private record Scanned(SourceStamp stamp, TableQuality quality) {
+	}
+
+	private static final Map<String, Scanned> RESULTS = new ConcurrentHashMap<>();
+	private static final AtomicInteger THREADS = new AtomicInteger();
+	private static final ExecutorService SCANS = Executors.newFixedThreadPool(ExplorerConfig.sqlitePoolSize(), r -> {
+		Thread t = new Thread(r, "quality-scan-" + THREADS.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	});
+
+	private SeriesQualityScan() {
+	}
+
+	/**
+	 * Summary from an earlier scan, if the database has not changed since.
+	 */
+	public static Optional<TableQuality> cached(Path dbPath, String table) {
+		if (dbPath == null || table == null) {
+			return Optional.empty();
+		}
+		Scanned scanned = RESULTS.get(key(dbPath, table));
+		return scanned != null && scanned.stamp().equals(SourceStamp.of(dbPath)) ? Optional.of(scanned.quality())
+				: Optional.empty();
+	}
+
+	/**
+	 * Scans the tables in parallel (at most {@code sqlite.pool.size} at a
+	 * time, each on its own connection), reporting each finished table to
+	 * {@code progress}; tables without a (basin, ts, value) layout or that
+	 * cannot be read are left out. When interrupted the scans still running
+	 * are cancelled and no partial list is returned.
+	 */
+	public static List<TableQuality> scanAll(Path dbPath, List<String> tables, Consumer<TableQuality> progress)
+			throws InterruptedException {
+		List<Future<Optional<TableQuality>>> running = new ArrayList<>();
+		for (String table : tables) {
+			running.add(SCANS.submit(() -> {
+				Optional<TableQuality> quality = scan(dbPath, table);
+				quality.ifPresent(progress);
+				return quality;
+			}));
+		}
+		List<TableQuality> out = new ArrayList<>();
+		try {
+			for (Future<Optional<TableQuality>> f : running) {
+				f.get().ifPresent(out::add);
+			}
+		} catch (InterruptedException ex) {
+			running.forEach(f -> f.cancel(true));
+			throw ex;
+		} catch (ExecutionException ex) {
+			running.forEach(f -> f.cancel(true));
+			throw new IllegalStateException("Quality scan failed: " + dbPath.getFileName(), ex.getCause());
+		}
+		return out;
+	}
+
+	public static Optional<TableQuality> scan(Path dbPath, String table) {
+		Optional<TableQuality> cached = cached(dbPath, table);
+		if (cached.isPresent()) {
+			return cached;
+		}
+		ProjectCatalog.TableInfo info = ProjectCatalog.of(dbPath).table(dbPath, table).orElse(null);
+		if (info == null || !info.hasTimeseriesLayout() || info.basinColumn() == null) {
+			return Optional.empty();
+		}
+		SourceStamp stamp = SourceStamp.of(dbPath);
+		String basin = "\"" + info.basinColumn() + "\"";
+		String ts = "\"" + info.timestampColumn() + "\"";
+		String sql = "SELECT " + basin + ", " + ts + ", \"" + info.valueColumn() + "\" FROM \""
+				+ info.name().replace("\"", "\"\"") + "\" ORDER BY " + basin + ", " + ts;
+		Map<String, BasinQuality> basins = new LinkedHashMap<>();
+		long rows = 0L;
+		// without a sidecar the ORDER BY sorts the whole table: a dedicated
+		// connection keeps a temp_store=memory read profile out of it
+		try (Connection connection = SqliteReadProfile.fromConfig().withFileTempStore()
+				.open(SidecarIndex.route(dbPath, table)); PreparedStatement ps = connection.prepareStatement(sql);
+				QueryCancellation.Registration cancellation = QueryCancellation.track(ps)) {
+			ps.setFetchSize(ExplorerConfig.streamChunkRows());
+			try (ResultSet rs = ps.executeQuery()) {
+				Accumulator acc = new Accumulator();
+				while (rs.next()) {
+					String id = rs.getString(1);
+					if (acc.basinId == null || !acc.basinId.equals(id)) {
+						if (acc.basinId != null) {
+							basins.put(acc.basinId, acc.finish());
+						}
+						acc.start(id);
+					}
+					long t = rs.getLong(2);
+					double v = rs.getDouble(3);
+					acc.add(t, rs.wasNull() || v == -9999.0);
+					rows++;
+				}
+				if (acc.basinId != null) {
+					basins.put(acc.basinId, acc.finish());
+				}
+			}
+		} catch (SQLException ex) {
+			return Optional.empty();
+		}
+		if (QueryCancellation.currentCancelled() || Thread.currentThread().isInterrupted()) {
+			return Optional.empty();
+		}
+		TableQuality quality = new TableQuality(info.name(), rows, Collections.unmodifiableMap(basins));
+		RESULTS.put(key(dbPath, table), new Scanned(stamp, quality));
+		return Optional.of(quality);
+	}
+
+	/**
+	 * Per-basin counters; the steps between consecutive rows are kept in a
+	 * buffer reused across basins and sorted once to find the usual step.
+	 */
+	static final class Accumulator {
+		private String basinId;
+		private long[] steps = new long[1024];
+		private int stepCount;
+		private long rows;
+		private long first;
+		private long last;
+		private long missing;
+
+		void start(String id) {
+			basinId = id;
+			stepCount = 0;
+			rows = 0L;
+			missing = 0L;
+		}
+
+		void add(long ts, boolean isMissing) {
+			if (rows == 0) {
+				first = ts;
+			} else {
+				if (stepCount == steps.length) {
+					steps = Arrays.copyOf(steps, stepCount * 2);
+				}
+				steps[stepCount++] = ts - last;
+			}
+			last = ts;
+			rows++;
+			if (isMissing) {
+				missing++;
+			}
+		}
+
+		BasinQuality finish() {
+			Arrays.sort(steps, 0, stepCount);
+			long duplicates = 0L;
+			long mode = 0L;
+			int bestRun = 0;
+			for (int i = 0; i < stepCount;) {
+				int j = i;
+				while (j < stepCount && steps[j] == steps[i]) {
+					j++;
+				}
+				if (steps[i] == 0) {
+					duplicates = j - i;
+				} else if (j - i > bestRun) {
+					bestRun = j - i;
+					mode = steps[i];
+				}
+				i = j;
+			}
+			// a gap skips at least one step; anything else off the usual step is irregular
+			long gaps = 0L;
+			long irregular = 0L;
+			for (int i = 0; i < stepCount; i++) {
+				long step = steps[i];
+				if (step == 0 || step == mode) {
+					continue;
+				}
+				if (mode > 0 && step >= 2 * mode) {
+					gaps++;
+				} else {
+					irregular++;
+				}
+			}
+			return new BasinQuality(basinId, rows, first, last, mode, gaps, irregular, duplicates, missing);
+		}
+	}
+
+	private static String key(Path dbPath, String table) {
+		return dbPath.toAbsolutePath().normalize() + "|" + table.toLowerCase(Locale.ROOT);
+	}
+}
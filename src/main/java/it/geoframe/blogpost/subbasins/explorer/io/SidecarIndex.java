@@ -0,0 +1,290 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesRepository.TableColumnDetail;
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+
+/**
+ * Sidecar databases holding indexed copies of the time-series tables of a
+ * read-only input.
+ *
+ * Model outputs often lack an index on (basin, ts), so every basin load is a
+ * full scan, and the files cannot be modified. For such tables a copy sorted
+ * by (basin, ts) and indexed on those columns is written, in a background
+ * task, to a separate SQLite file under {@link ExplorerConfig#cacheDirectory()}.
+ * The sidecar records size and modification time of its source and of the
+ * source WAL file, and is only used while they still match.
+ */
+public final class SidecarIndex {
+
+	private static final String META_TABLE = "sidecar_meta";
+	private static final String TABLES_TABLE = "sidecar_tables";
+	private static final int INSERT_BATCH = 10_000;
+
+	private record Sidecar(Path path, SourceStamp stamp, Set<String> tables) {
+	}
+
+	private static final Map<Path, Sidecar> SIDECARS = new ConcurrentHashMap<>();
+	private static final Map<Path, CompletableFuture<Optional<Path>>> BUILDS = new ConcurrentHashMap<>();
+	private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "sidecar-index");
+		t.setDaemon(true);
+		t.setPriority(Thread.MIN_PRIORITY);
+		return t;
+	});
+
+	private SidecarIndex() {
+	}
+
+	/**
+	 * Database to query for {@code table} of {@code dbPath}: the sidecar when it
+	 * is fresh and holds an indexed copy of the table, otherwise the source.
+	 */
+	public static Path route(Path dbPath, String table) {
+		if (dbPath == null || table == null || !ExplorerConfig.sidecarEnabled()) {
+			return dbPath;
+		}
+		Path source = dbPath.toAbsolutePath().normalize();
+		Sidecar sidecar = SIDECARS.computeIfAbsent(source, SidecarIndex::readSidecar);
+		if (sidecar == null || !sidecar.stamp().equals(SourceStamp.of(source))) {
+			return dbPath;
+		}
+		return sidecar.tables().contains(table.toLowerCase(Locale.ROOT)) ? sidecar.path() : dbPath;
+	}
+
+	/**
+	 * Builds or refreshes the sidecar of an input in the background. Tables
+	 * already indexed on their basin column in the source are not copied.
+	 * Completes with the sidecar path, or empty when nothing needed indexing or
+	 * the build failed.
+	 */
+	public static CompletableFuture<Optional<Path>> ensureAsync(Path dbPath) {
+		if (dbPath == null || !ExplorerConfig.sidecarEnabled() || !Files.isRegularFile(dbPath)) {
+			return CompletableFuture.completedFuture(Optional.empty());
+		}
+		Path source = dbPath.toAbsolutePath().normalize();
+		return BUILDS.compute(source, (k, running) -> {
+			if (running != null && !running.isDone()) {
+				return running;
+			}
+			return CompletableFuture.supplyAsync(() -> ensure(source), BUILDER);
+		});
+	}
+
+	public static Path sidecarPath(Path dbPath) {
+		Path source = dbPath.toAbsolutePath().normalize();
+		String name = source.getFileName().toString();
+		String key = Integer.toHexString(source.toString().hashCode());
+		return ExplorerConfig.cacheDirectory().resolve(name + "-" + key + ".sidecar.sqlite");
+	}
+
+	private static Optional<Path> ensure(Path source) {
+		SourceStamp stamp = SourceStamp.of(source);
+		Sidecar existing = readSidecar(source);
+		if (existing != null && existing.stamp().equals(stamp)) {
+			SIDECARS.put(source, existing);
+			return Optional.of(existing.path());
+		}
+		List<ProjectCatalog.TableInfo> toCopy = new ArrayList<>();
+		ProjectCatalog catalog = ProjectCatalog.of(source);
+		for (String name : catalog.tableNames()) {
+			ProjectCatalog.TableInfo info = catalog.table(source, name).orElse(null);
+			if (info != null && info.hasTimeseriesLayout() && info.basinColumn() != null
+					&& !hasBasinIndex(source, info)) {
+				toCopy.add(info);
+			}
+		}
+		if (toCopy.isEmpty()) {
+			return Optional.empty();
+		}
+		Path target = sidecarPath(source);
+		Path building = target.resolveSibling(target.getFileName() + ".building");
+		try {
+			Files.createDirectories(target.getParent());
+			Files.deleteIfExists(building);
+			build(source, building, stamp, toCopy);
+			if (!stamp.equals(SourceStamp.of(source))) {
+				// the source changed while copying: the copy may be inconsistent
+				Files.deleteIfExists(building);
+				return Optional.empty();
+			}
+			SIDECARS.remove(source);
+			SqliteConnectionPool.close(target);
+			Files.move(building, target, StandardCopyOption.REPLACE_EXISTING);
+			Sidecar sidecar = readSidecar(source);
+			if (sidecar != null) {
+				SIDECARS.put(source, sidecar);
+			}
+			return Optional.of(target);
+		} catch (IOException | SQLException ex) {
+			try {
+				Files.deleteIfExists(building);
+			} catch (IOException ignored) {
+			}
+			return Optional.empty();
+		}
+	}
+
+	private static void build(Path source, Path target, SourceStamp stamp, List<ProjectCatalog.TableInfo> tables)
+			throws SQLException {
+		// the ORDER BY of an unindexed table spills to disk: a dedicated
+		// connection keeps a temp_store=memory read profile out of it
+		try (Connection in = SqliteReadProfile.fromConfig().withFileTempStore().open(source);
+				Connection out = DriverManager.getConnection("jdbc:sqlite:" + target)) {
+			try (Statement st = out.createStatement()) {
+				st.execute("PRAGMA journal_mode=OFF");
+				st.execute("PRAGMA synchronous=OFF");
+				st.execute("PRAGMA temp_store=FILE");
+				st.execute("CREATE TABLE " + META_TABLE
+						+ " (source_path TEXT, source_size INTEGER, source_mtime INTEGER, wal_size INTEGER,"
+						+ " wal_mtime INTEGER)");
+				st.execute("CREATE TABLE " + TABLES_TABLE + " (name TEXT PRIMARY KEY)");
+			}
+			out.setAutoCommit(false);
+			for (ProjectCatalog.TableInfo info : tables) {
+				copyTable(in, out, info);
+				try (PreparedStatement ps = out.prepareStatement("INSERT INTO " + TABLES_TABLE + " VALUES (?)")) {
+					ps.setString(1, info.name().toLowerCase(Locale.ROOT));
+					ps.executeUpdate();
+				}
+				out.commit();
+			}
+			try (PreparedStatement ps = out.prepareStatement("INSERT INTO " + META_TABLE + " VALUES (?, ?, ?, ?, ?)")) {
+				ps.setString(1, source.toString());
+				ps.setLong(2, stamp.size());
+				ps.setLong(3, stamp.modifiedMillis());
+				ps.setLong(4, stamp.walSize());
+				ps.setLong(5, stamp.walModifiedMillis());
+				ps.executeUpdate();
+			}
+			out.commit();
+		}
+	}
+
+	private static void copyTable(Connection in, Connection out, ProjectCatalog.TableInfo info) throws SQLException {
+		String table = quote(info.name());
+		StringBuilder create = new StringBuilder("CREATE TABLE ").append(table).append(" (");
+		StringBuilder placeholders = new StringBuilder();
+		List<TableColumnDetail> columns = info.columns();
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				create.append(", ");
+				placeholders.append(", ");
+			}
+			TableColumnDetail c = columns.get(i);
+			create.append(quote(c.name()));
+			if (c.type() != null && !c.type().isBlank()) {
+				create.append(' ').append(c.type());
+			}
+			placeholders.append('?');
+		}
+		create.append(')');
+		String basin = quote(info.basinColumn());
+		String ts = quote(info.timestampColumn());
+		try (Statement st = out.createStatement()) {
+			st.execute(create.toString());
+		}
+		String select = "SELECT * FROM " + table + " ORDER BY " + basin + ", " + ts;
+		try (PreparedStatement read = in.prepareStatement(select);
+				PreparedStatement write = out
+						.prepareStatement("INSERT INTO " + table + " VALUES (" + placeholders + ")")) {
+			read.setFetchSize(ExplorerConfig.streamChunkRows());
+			try (ResultSet rs = read.executeQuery()) {
+				int pending = 0;
+				while (rs.next()) {
+					for (int i = 1; i <= columns.size(); i++) {
+						write.setObject(i, rs.getObject(i));
+					}
+					write.addBatch();
+					if (++pending == INSERT_BATCH) {
+						write.executeBatch();
+						pending = 0;
+					}
+				}
+				if (pending > 0) {
+					write.executeBatch();
+				}
+			}
+		}
+		try (Statement st = out.createStatement()) {
+			st.execute("CREATE INDEX " + quote("idx_" + info.name() + "_basin_ts") + " ON " + table + " (" + basin
+					+ ", " + ts + ")");
+		}
+	}
+
+	/**
+	 * True when an index of the source table starts with the basin column, so
+	 * that basin loads are already index lookups.
+	 */
+	private static boolean hasBasinIndex(Path source, ProjectCatalog.TableInfo info) {
+		String sql = "SELECT ii.name FROM pragma_index_list(?) il JOIN pragma_index_info(il.name) ii "
+				+ "WHERE ii.seqno = 0";
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(source).borrow();
+				PreparedStatement ps = lease.connection().prepareStatement(sql)) {
+			ps.setString(1, info.name());
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					if (info.basinColumn().equalsIgnoreCase(rs.getString(1))) {
+						return true;
+					}
+				}
+			}
+			return false;
+		} catch (SQLException ex) {
+			return false;
+		}
+	}
+
+	private static Sidecar readSidecar(Path source) {
+		Path path = sidecarPath(source);
+		if (!Files.isRegularFile(path)) {
+			return null;
+		}
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(path).borrow();
+				Statement st = lease.connection().createStatement()) {
+			SourceStamp stamp;
+			// sidecars written before the WAL columns fail here and are rebuilt
+			try (ResultSet rs = st
+					.executeQuery("SELECT source_size, source_mtime, wal_size, wal_mtime FROM " + META_TABLE)) {
+				if (!rs.next()) {
+					return null;
+				}
+				stamp = new SourceStamp(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+			}
+			Set<String> tables = new HashSet<>();
+			try (ResultSet rs = st.executeQuery("SELECT name FROM " + TABLES_TABLE)) {
+				while (rs.next()) {
+					tables.add(rs.getString(1));
+				}
+			}
+			return new Sidecar(path, stamp, Set.copyOf(tables));
+		} catch (SQLException ex) {
+			return null;
+		}
+	}
+
+	private static String quote(String identifier) {
+		return "\"" + identifier.replace("\"", "\"\"") + "\"";
+	}
+}
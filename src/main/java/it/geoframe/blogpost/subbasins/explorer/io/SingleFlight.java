@@ -0,0 +1,60 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the
+ * loader on its own thread, callers arriving while it runs wait for and share
+ * its result. Completed results are not kept: see {@link SeriesCache}.
+ *
+ * When the leading load is cancelled through {@link QueryCancellation} its
+ * (partial) result is not shared; waiting callers run the load themselves.
+ */
+final class SingleFlight<K, V> {
+
+	record Result<V>(V value, boolean shared) {
+	}
+
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	Result<V> load(K key, Supplier<V> loader) {
+		while (true) {
+			CompletableFuture<V> mine = new CompletableFuture<>();
+			CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+			if (running == null) {
+				return lead(key, mine, loader);
+			}
+			try {
+				return new Result<>(running.join(), true);
+			} catch (CancellationException ex) {
+				// the leader was cancelled: try again, possibly as the new leader
+			} catch (CompletionException ex) {
+				if (!(ex.getCause() instanceof CancellationException)) {
+					throw ex;
+				}
+			}
+		}
+	}
+
+	private Result<V> lead(K key, CompletableFuture<V> mine, Supplier<V> loader) {
+		try {
+			V value = loader.get();
+			if (QueryCancellation.currentCancelled()) {
+				mine.cancel(false);
+				return new Result<>(value, false);
+			}
+			mine.complete(value);
+			return new Result<>(value, false);
+		} catch (RuntimeException | Error ex) {
+			mine.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Size and modification time of a SQLite input and of its {@code -wal} file.
+ * In WAL mode a writer commits to the log and the main file only changes at
+ * the next checkpoint, so the log is part of the stamp; a missing file counts
+ * as size and mtime -1.
+ */
+record SourceStamp(long size, long modifiedMillis, long walSize, long walModifiedMillis) {
+
+	static SourceStamp of(Path dbPath) {
+		long[] main = attributes(dbPath);
+		long[] wal = attributes(dbPath.resolveSibling(dbPath.getFileName() + "-wal"));
+		return new SourceStamp(main[0], main[1], wal[0], wal[1]);
+	}
+
+	boolean exists() {
+		return size >= 0;
+	}
+
+	/**
+	 * Compact form for cache keys.
+	 */
+	String token() {
+		return size + ":" + modifiedMillis + ":" + walSize + ":" + walModifiedMillis;
+	}
+
+	private static long[] attributes(Path file) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+			return new long[] { attrs.size(), attrs.lastModifiedTime().toMillis() };
+		} catch (IOException ex) {
+			return new long[] { -1L, -1L };
+		}
+	}
+}
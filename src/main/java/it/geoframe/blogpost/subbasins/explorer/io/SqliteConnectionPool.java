@@ -0,0 +1,197 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+
+/**
+ * Per-path registry of long-lived, read-only SQLite connections.
+ *
+ * Opening a connection re-reads the database header and schema, which on
+ * multi-GB GeoPackages costs more than a single basin query. Connections are
+ * therefore kept open and lent out with {@link #borrow()}; closing the
+ * returned {@link Lease} gives the connection back to the pool.
+ */
+public final class SqliteConnectionPool {
+
+	public record Stats(Path dbPath, long opened, long reused, long waits, int idle) {
+	}
+
+	private static final Map<Path, SqliteConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+	private final Path dbPath;
+	private final SqliteReadProfile profile = SqliteReadProfile.fromConfig();
+	private final Semaphore permits;
+	private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+	private final AtomicLong opened = new AtomicLong();
+	private final AtomicLong reused = new AtomicLong();
+	private final AtomicLong waits = new AtomicLong();
+	private volatile boolean closed;
+
+	private SqliteConnectionPool(Path dbPath, int size) {
+		this.dbPath = dbPath;
+		this.permits = new Semaphore(Math.max(1, size), true);
+	}
+
+	public static SqliteConnectionPool forPath(Path dbPath) {
+		Path key = dbPath.toAbsolutePath().normalize();
+		return POOLS.computeIfAbsent(key, p -> new SqliteConnectionPool(p, ExplorerConfig.sqlitePoolSize()));
+	}
+
+	/**
+	 * Closes the pools of the given database files, typically the inputs of a
+	 * project that is being closed.
+	 */
+	public static void close(Path... dbPaths) {
+		if (dbPaths == null) {
+			return;
+		}
+		for (Path dbPath : dbPaths) {
+			if (dbPath == null) {
+				continue;
+			}
+			SqliteConnectionPool pool = POOLS.remove(dbPath.toAbsolutePath().normalize());
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	public static void closeAll() {
+		for (Path dbPath : new ArrayList<>(POOLS.keySet())) {
+			close(dbPath);
+		}
+	}
+
+	public static List<Stats> allStats() {
+		List<Stats> out = new ArrayList<>();
+		for (SqliteConnectionPool pool : POOLS.values()) {
+			out.add(pool.stats());
+		}
+		return out;
+	}
+
+	public Stats stats() {
+		return new Stats(dbPath, opened.get(), reused.get(), waits.get(), idle.size());
+	}
+
+	public Lease borrow() throws SQLException {
+		if (closed) {
+			throw new SQLException("Connection pool closed for " + dbPath);
+		}
+		acquirePermit();
+		try {
+			Connection c;
+			while ((c = idle.pollFirst()) != null) {
+				if (!c.isClosed()) {
+					reused.incrementAndGet();
+					return new Lease(c);
+				}
+			}
+			c = open();
+			opened.incrementAndGet();
+			return new Lease(c);
+		} catch (SQLException | RuntimeException ex) {
+			permits.release();
+			throw ex;
+		}
+	}
+
+	private void acquirePermit() throws SQLException {
+		if (permits.tryAcquire()) {
+			return;
+		}
+		waits.incrementAndGet();
+		try {
+			if (!permits.tryAcquire(ExplorerConfig.sqlitePoolWaitSeconds(), TimeUnit.SECONDS)) {
+				throw new SQLException("Timed out waiting for a connection to " + dbPath);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection to " + dbPath, ex);
+		}
+	}
+
+	private Connection open() throws SQLException {
+		// read-only: the explorer never writes into model outputs
+		return profile.open(dbPath);
+	}
+
+	private void giveBack(Connection c) {
+		try {
+			if (closed || c.isClosed()) {
+				closeQuietly(c);
+				return;
+			}
+			if (!c.getAutoCommit()) {
+				c.rollback();
+				c.setAutoCommit(true);
+			}
+			idle.offerFirst(c);
+		} catch (SQLException ex) {
+			closeQuietly(c);
+		} finally {
+			permits.release();
+		}
+		if (closed) {
+			drainIdle();
+		}
+	}
+
+	private void shutdown() {
+		closed = true;
+		drainIdle();
+	}
+
+	private void drainIdle() {
+		Connection c;
+		while ((c = idle.pollFirst()) != null) {
+			closeQuietly(c);
+		}
+	}
+
+	private static void closeQuietly(Connection c) {
+		try {
+			c.close();
+		} catch (SQLException ignored) {
+		}
+	}
+
+	/**
+	 * A borrowed connection. Closing the lease returns the connection to its
+	 * pool instead of closing it.
+	 */
+	public final class Lease implements AutoCloseable {
+		private Connection connection;
+
+		private Lease(Connection connection) {
+			this.connection = connection;
+		}
+
+		public Connection connection() {
+			if (connection == null) {
+				throw new IllegalStateException("Lease already returned");
+			}
+			return connection;
+		}
+
+		@Override
+		public void close() {
+			Connection c = connection;
+			connection = null;
+			if (c != null) {
+				giveBack(c);
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Properties;
+
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+
+/**
+ * Settings applied to every read-only SQLite connection the explorer opens.
+ *
+ * Connections are always opened with {@code SQLITE_OPEN_READONLY}; the
+ * remaining knobs come from the {@code sqlite.read.*} keys of
+ * explorer.properties. A non-positive mmap or cache size keeps the SQLite
+ * default.
+ *
+ * @param immutable    open with {@code immutable=1}: no locking and no change
+ *                     detection, only safe when the file is not rewritten
+ *                     while the explorer is running
+ * @param mmapSize     {@code PRAGMA mmap_size}, in bytes
+ * @param cacheSizeKib page cache size, in KiB ({@code PRAGMA cache_size=-N})
+ * @param tempStore    {@code PRAGMA temp_store}: default, file or memory
+ * @param queryOnly    {@code PRAGMA query_only}
+ */
+public record SqliteReadProfile(boolean immutable, long mmapSize, int cacheSizeKib, String tempStore,
+		boolean queryOnly) {
+
+	private static final int OPEN_READONLY = 0x00000001;
+	private static final int OPEN_URI = 0x00000040;
+
+	public static SqliteReadProfile fromConfig() {
+		return new SqliteReadProfile(ExplorerConfig.sqliteReadImmutable(), ExplorerConfig.sqliteReadMmapSize(),
+				ExplorerConfig.sqliteReadCacheSizeKib(), ExplorerConfig.sqliteReadTempStore(),
+				ExplorerConfig.sqliteReadQueryOnly());
+	}
+
+	/**
+	 * Read-only connection with every other setting left to SQLite.
+	 */
+	public static SqliteReadProfile plain() {
+		return new SqliteReadProfile(false, 0L, 0, "default", false);
+	}
+
+	/**
+	 * Same settings with temporary data kept on disk, for bulk jobs whose
+	 * full-table sorts could not fit in memory.
+	 */
+	public SqliteReadProfile withFileTempStore() {
+		return new SqliteReadProfile(immutable, mmapSize, cacheSizeKib, "file", queryOnly);
+	}
+
+	public Connection open(Path dbPath) throws SQLException {
+		Properties props = new Properties();
+		String url;
+		if (immutable) {
+			props.setProperty("open_mode", String.valueOf(OPEN_READONLY | OPEN_URI));
+			url = "jdbc:sqlite:" + dbPath.toAbsolutePath().toUri() + "?immutable=1";
+		} else {
+			props.setProperty("open_mode", String.valueOf(OPEN_READONLY));
+			url = "jdbc:sqlite:" + dbPath;
+		}
+		Connection c = DriverManager.getConnection(url, props);
+		try (Statement st = c.createStatement()) {
+			if (mmapSize > 0) {
+				st.execute("PRAGMA mmap_size=" + mmapSize);
+			}
+			if (cacheSizeKib > 0) {
+				st.execute("PRAGMA cache_size=-" + cacheSizeKib);
+			}
+			String store = tempStore == null ? "default" : tempStore.toLowerCase(Locale.ROOT);
+			if (store.equals("file") || store.equals("memory")) {
+				st.execute("PRAGMA temp_store=" + store);
+			}
+			if (queryOnly) {
+				st.execute("PRAGMA query_only=1");
+			}
+			return c;
+		} catch (SQLException ex) {
+			c.close();
+			throw ex;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+/**
+ * Closed interval of epoch milliseconds, {@code from <= ts <= to}.
+ */
+public record TimeRange(long from, long to) {
+
+	public TimeRange {
+		if (from > to) {
+			throw new IllegalArgumentException("Invalid time range: " + from + " > " + to);
+		}
+	}
+
+	public boolean contains(long ts) {
+		return ts >= from && ts <= to;
+	}
+
+	public boolean contains(TimeRange other) {
+		return other.from >= from && other.to <= to;
+	}
+
+	/**
+	 * Intersection with another range, or null when they do not overlap.
+	 */
+	public TimeRange intersect(TimeRange other) {
+		long lo = Math.max(from, other.from);
+		long hi = Math.min(to, other.to);
+		return lo > hi ? null : new TimeRange(lo, hi);
+	}
+
+	public long length() {
+		return to - from;
+	}
+}
@@ -0,0 +1,85 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Set of disjoint {@link TimeRange}s, kept merged. Used to remember which
+ * windows of a series have already been fetched so that only the missing
+ * parts of a requested window are read again.
+ *
+ * Adjacent ranges (one ending at t, the next starting at t + 1) are merged,
+ * since timestamps are integral milliseconds. Ranges may be open-ended
+ * ({@link Long#MIN_VALUE} or {@link Long#MAX_VALUE} bounds).
+ */
+public final class TimeRangeSet {
+
+	private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+	public void add(TimeRange range) {
+		long from = range.from();
+		long to = range.to();
+		Map.Entry<Long, Long> before = ranges.floorEntry(from);
+		if (before != null && before.getValue() >= (from == Long.MIN_VALUE ? from : from - 1)) {
+			from = before.getKey();
+			to = Math.max(to, before.getValue());
+		}
+		Map.Entry<Long, Long> next = ranges.ceilingEntry(from);
+		while (next != null && next.getKey() <= (to == Long.MAX_VALUE ? to : to + 1)) {
+			to = Math.max(to, next.getValue());
+			ranges.remove(next.getKey());
+			next = ranges.ceilingEntry(from);
+		}
+		ranges.put(from, to);
+	}
+
+	/**
+	 * Parts of {@code range} not covered by this set, in ascending order.
+	 */
+	public List<TimeRange> missing(TimeRange range) {
+		List<TimeRange> out = new ArrayList<>();
+		long cursor = range.from();
+		Map.Entry<Long, Long> first = ranges.floorEntry(range.from());
+		if (first != null && first.getValue() >= cursor) {
+			if (first.getValue() >= range.to()) {
+				return out;
+			}
+			cursor = first.getValue() + 1;
+		}
+		for (Map.Entry<Long, Long> e : ranges.subMap(cursor, true, range.to(), true).entrySet()) {
+			if (e.getKey() > cursor) {
+				out.add(new TimeRange(cursor, e.getKey() - 1));
+			}
+			if (e.getValue() >= range.to()) {
+				return out;
+			}
+			cursor = e.getValue() + 1;
+		}
+		if (cursor <= range.to()) {
+			out.add(new TimeRange(cursor, range.to()));
+		}
+		return out;
+	}
+
+	public boolean covers(TimeRange range) {
+		return missing(range).isEmpty();
+	}
+
+	public List<TimeRange> ranges() {
+		List<TimeRange> out = new ArrayList<>();
+		for (Map.Entry<Long, Long> e : ranges.entrySet()) {
+			out.add(new TimeRange(e.getKey(), e.getValue()));
+		}
+		return out;
+	}
+
+	public boolean isEmpty() {
+		return ranges.isEmpty();
+	}
+
+	public void clear() {
+		ranges.clear();
+	}
+}
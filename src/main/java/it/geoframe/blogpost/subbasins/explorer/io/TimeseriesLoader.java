@@ -1,30 +1,37 @@
 package it.geoframe.blogpost.subbasins.explorer.io;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.sql.Connection;
-import java.sql.DriverManager;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesRepository.TableColumnDetail;
-
-import org.jfree.data.time.Millisecond;
-import org.jfree.data.time.TimeSeries;
-
 import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
+import it.geoframe.blogpost.subbasins.explorer.services.ProjectMode;
 
 public final class TimeseriesLoader {
-	public record TimeValueRow(long timestamp, Map<String, Double> values) {
-	}
+
+	/** Basin ids bound per IN list, below the SQLite host-parameter limit. */
+	private static final int BATCH_PARAMETERS = 500;
+
+	private static final SingleFlight<String, SeriesBlock> FLIGHTS = new SingleFlight<>();
 
 	private final TimeseriesRepository repository;
 
@@ -32,32 +39,387 @@ public final class TimeseriesLoader {
 		this.repository = repository;
 	}
 
+	/**
+	 * Releases the pooled connections held for the project inputs.
+	 */
+	public void closeProject(ProjectConfig config) {
+		if (config == null) {
+			return;
+		}
+		if (isLegacy(config)) {
+			LegacyFolderReader.invalidate(config.legacyRootPath());
+			return;
+		}
+		SqliteConnectionPool.close(config.geopackagePath(), config.sqlitePath());
+	}
+
+	/**
+	 * Starts the background build of the sidecar indexes for the project
+	 * inputs; loads are routed to them once they are ready.
+	 */
+	public void prepareProject(ProjectConfig config) {
+		if (config == null || config.mode() != ProjectMode.GEOPACKAGE) {
+			return;
+		}
+		SidecarIndex.ensureAsync(config.geopackagePath());
+		SidecarIndex.ensureAsync(config.sqlitePath());
+	}
+
+	public List<SqliteConnectionPool.Stats> connectionStats() {
+		return SqliteConnectionPool.allStats();
+	}
+
+	public ProjectCatalog catalog(ProjectConfig config) {
+		return ProjectCatalog.forProject(config);
+	}
+
 	public List<String> listAllTableNames(ProjectConfig config) {
 		if (config == null) {
 			return List.of();
 		}
-		List<String> out = new ArrayList<>();
-		out.addAll(repository.listTables(config.geopackagePath()));
-		out.addAll(repository.listTables(config.sqlitePath()));
-		return out;
+		if (isLegacy(config)) {
+			return legacy(config).tableNames();
+		}
+		return catalog(config).tableNames();
+	}
+
+	/**
+	 * Opens a chunked cursor over a single-value series (column
+	 * {@link SeriesCursor#VALUE}) from the first input that holds the table.
+	 * The caller must close the cursor.
+	 */
+	public SeriesCursor openSeriesCursor(ProjectConfig config, String table, String basinId, boolean isGaugeSeries,
+			int chunkSize) throws SQLException {
+		return openSeriesCursor(config, table, basinId, isGaugeSeries, null, chunkSize);
 	}
 
-	public int fillSeriesFromAnyInput(ProjectConfig config, String table, String basinId, TimeSeries series,
+	/**
+	 * Same as {@link #openSeriesCursor(ProjectConfig, String, String, boolean, int)}
+	 * restricted to {@code range}; a null range reads the whole history.
+	 */
+	public SeriesCursor openSeriesCursor(ProjectConfig config, String table, String basinId, boolean isGaugeSeries,
+			TimeRange range, int chunkSize) throws SQLException {
+		if (isLegacy(config)) {
+			return SeriesCursor.over(within(legacySeries(config, table, basinId), range), chunkSize);
+		}
+		ProjectCatalog catalog = catalog(config);
+		Path dbPath = seriesInput(catalog, table, basinId, isGaugeSeries);
+		if (dbPath == null) {
+			return SeriesCursor.empty(SeriesCursor.VALUE);
+		}
+		return openSeriesCursor(catalog, dbPath, table, basinId, isGaugeSeries, range, chunkSize);
+	}
+
+	/**
+	 * First and last timestamp of a single-value series, read from the
+	 * (basin, ts) index without scanning the values. Empty when the series has
+	 * no rows or cannot be read.
+	 */
+	public Optional<TimeRange> seriesExtent(ProjectConfig config, String table, String basinId,
 			boolean isGaugeSeries) {
-		int count = fillSeriesFromDb(config.geopackagePath(), table, basinId, series, isGaugeSeries);
-		if (count > 0) {
-			return count;
+		if (isLegacy(config)) {
+			SeriesBlock block = legacySeries(config, table, basinId);
+			return block.isEmpty() ? Optional.empty()
+					: Optional.of(new TimeRange(block.firstTimestamp(), block.lastTimestamp()));
+		}
+		ProjectCatalog catalog = catalog(config);
+		Path dbPath = seriesInput(catalog, table, basinId, isGaugeSeries);
+		if (dbPath == null) {
+			return Optional.empty();
+		}
+		Optional<SeriesBlock> cached = SeriesFileCache.read(dbPath, table, cacheBasin(basinId, isGaugeSeries),
+				SeriesCursor.VALUE);
+		if (cached.isPresent() && !cached.get().isEmpty()) {
+			return Optional.of(new TimeRange(cached.get().firstTimestamp(), cached.get().lastTimestamp()));
 		}
-		return fillSeriesFromDb(config.sqlitePath(), table, basinId, series, isGaugeSeries);
+		ProjectCatalog.TableInfo info = catalog.table(dbPath, table).orElseThrow();
+		String ts = "\"" + info.timestampColumn() + "\"";
+		String sql = "SELECT MIN(" + ts + "), MAX(" + ts + ") FROM \"" + table.replace("\"", "\"\"") + "\"";
+		if (!isGaugeSeries) {
+			sql = sql + " WHERE \"" + info.basinColumn() + "\"=?";
+		}
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(SidecarIndex.route(dbPath, table))
+				.borrow(); PreparedStatement ps = lease.connection().prepareStatement(sql);
+				QueryCancellation.Registration cancellation = QueryCancellation.track(ps)) {
+			if (!isGaugeSeries) {
+				ps.setString(1, basinId);
+			}
+			try (ResultSet rs = ps.executeQuery()) {
+				if (rs.next()) {
+					long min = rs.getLong(1);
+					if (!rs.wasNull()) {
+						return Optional.of(new TimeRange(min, rs.getLong(2)));
+					}
+				}
+			}
+		} catch (SQLException ex) {
+			return Optional.empty();
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Opens a chunked cursor over several columns of one basin from the first
+	 * input that holds the table. The caller must close the cursor.
+	 */
+	public SeriesCursor openRowsCursor(ProjectConfig config, String table, String basinId, int chunkSize,
+			String... valueColumns) throws SQLException {
+		if (isLegacy(config)) {
+			return SeriesCursor.over(legacyRows(config, table, basinId, valueColumns), chunkSize);
+		}
+		ProjectCatalog catalog = catalog(config);
+		Path dbPath = catalog.owner(table).orElse(null);
+		if (resolveColumns(catalog, dbPath, table, basinId, valueColumns) == null) {
+			return SeriesCursor.empty(valueColumns);
+		}
+		return openRowsCursor(catalog, dbPath, table, basinId, chunkSize, valueColumns);
+	}
+
+	/**
+	 * Streams a single-value series chunk by chunk to the consumer, on the
+	 * calling thread. Returns the number of points delivered.
+	 */
+	public long streamSeries(ProjectConfig config, String table, String basinId, boolean isGaugeSeries,
+			Consumer<SeriesBlock> consumer) {
+		return streamSeries(config, table, basinId, isGaugeSeries, null, consumer);
+	}
+
+	/**
+	 * Streams the part of a series that falls in {@code range} (whole history
+	 * when null). Returns the number of points delivered.
+	 */
+	public long streamSeries(ProjectConfig config, String table, String basinId, boolean isGaugeSeries,
+			TimeRange range, Consumer<SeriesBlock> consumer) {
+		int chunkSize = ExplorerConfig.streamChunkRows();
+		if (isLegacy(config)) {
+			return deliver(legacySeries(config, table, basinId), range, chunkSize, consumer);
+		}
+		ProjectCatalog catalog = catalog(config);
+		Path dbPath = seriesInput(catalog, table, basinId, isGaugeSeries);
+		if (dbPath == null) {
+			return 0L;
+		}
+		String cacheBasin = cacheBasin(basinId, isGaugeSeries);
+		if (range != null) {
+			SeriesBlock full = SeriesCache.shared()
+					.get(flightKey("series", dbPath, table, cacheBasin, null, SeriesCursor.VALUE));
+			if (full != null) {
+				return deliver(full, range, chunkSize, consumer);
+			}
+		}
+		String key = flightKey("series", dbPath, table, cacheBasin, range, SeriesCursor.VALUE);
+		SingleFlight.Result<SeriesBlock> result = cachedLoad(key,
+				() -> readSeries(catalog, dbPath, table, basinId, isGaugeSeries, range, consumer));
+		if (!result.shared()) {
+			// this call ran the read and already streamed it to the consumer
+			return result.value().size();
+		}
+		return deliver(result.value(), null, chunkSize, consumer);
+	}
+
+	/**
+	 * Streams the rows of a series written after {@code afterTs}, bypassing
+	 * every cache and the sidecar; used to follow outputs that a running
+	 * simulation is still writing. Returns the number of points delivered.
+	 */
+	public long streamSeriesAfter(ProjectConfig config, String table, String basinId, boolean isGaugeSeries,
+			long afterTs, Consumer<SeriesBlock> consumer) {
+		if (isLegacy(config)) {
+			// the file is parsed again once it has changed: the cache key includes its mtime
+			return afterTs == Long.MAX_VALUE ? 0L
+					: deliver(legacySeries(config, table, basinId), new TimeRange(afterTs + 1, Long.MAX_VALUE),
+							ExplorerConfig.streamChunkRows(), consumer);
+		}
+		ProjectCatalog catalog = catalog(config);
+		Path dbPath = seriesInput(catalog, table, basinId, isGaugeSeries);
+		if (dbPath == null || afterTs == Long.MAX_VALUE) {
+			return 0L;
+		}
+		// the tail is read from the source: the sidecar lags until it is rebuilt
+		try (SeriesCursor cursor = openSeriesCursor(catalog, dbPath, dbPath, table, basinId, isGaugeSeries,
+				new TimeRange(afterTs + 1, Long.MAX_VALUE), ExplorerConfig.streamChunkRows())) {
+			while (cursor.next()) {
+				consumer.accept(cursor.chunk());
+			}
+			return cursor.rowsRead();
+		} catch (SQLException ex) {
+			return 0L;
+		}
+	}
+
+	/**
+	 * Modification stamp of the input that owns {@code table}, including its
+	 * WAL file when present, or -1 when unknown. It changes whenever a writer
+	 * commits new rows.
+	 */
+	public long inputStamp(ProjectConfig config, String table) {
+		List<Path> files;
+		if (isLegacy(config)) {
+			files = new ArrayList<>(legacy(config).files(table));
+		} else {
+			Path dbPath = catalog(config).owner(table).orElse(null);
+			if (dbPath == null) {
+				return -1L;
+			}
+			files = List.of(dbPath, dbPath.resolveSibling(dbPath.getFileName() + "-wal"));
+		}
+		long stamp = -1L;
+		for (Path file : files) {
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+				stamp = 31 * stamp + attrs.lastModifiedTime().toMillis() + attrs.size();
+			} catch (IOException ignored) {
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * Data-quality summary of one basin series from the last deep scan of its
+	 * table, or empty when the table was not scanned or has changed since.
+	 */
+	public Optional<SeriesQualityScan.BasinQuality> seriesQuality(ProjectConfig config, String table,
+			String basinId) {
+		if (isLegacy(config) || table == null || basinId == null) {
+			return Optional.empty();
+		}
+		Path dbPath = catalog(config).owner(table).orElse(null);
+		return SeriesQualityScan.cached(dbPath, table).map(q -> q.basins().get(basinId));
+	}
+
+	/**
+	 * Loads a single-value series into one block; see
+	 * {@link #streamSeries(ProjectConfig, String, String, boolean, TimeRange, Consumer)}.
+	 */
+	public SeriesBlock loadSeries(ProjectConfig config, String table, String basinId, boolean isGaugeSeries,
+			TimeRange range) {
+		SeriesBlock.Builder out = SeriesBlock.builder(ExplorerConfig.streamChunkRows(), SeriesCursor.VALUE);
+		streamSeries(config, table, basinId, isGaugeSeries, range, chunk -> {
+			for (int i = 0; i < chunk.size(); i++) {
+				out.addRow(chunk.timestamp(i), chunk.value(0, i));
+			}
+		});
+		return out.build();
+	}
+
+	/**
+	 * Summary of {@code range} with at most {@code maxBuckets} buckets (min,
+	 * max, mean and count per bucket, see {@link SeriesPyramid}), or empty when
+	 * the range is short enough to be read at full resolution. The pyramid is
+	 * built from the whole series on first use and cached next to it.
+	 */
+	public Optional<SeriesBlock> seriesOverview(ProjectConfig config, String table, String basinId,
+			boolean isGaugeSeries, TimeRange range, int maxBuckets) {
+		return seriesPyramid(config, table, basinId, isGaugeSeries).flatMap(p -> p.query(range, maxBuckets));
+	}
+
+	public Optional<SeriesPyramid> seriesPyramid(ProjectConfig config, String table, String basinId,
+			boolean isGaugeSeries) {
+		// for legacy projects the CSV file plays the role of the database
+		Path dbPath = isLegacy(config) ? legacy(config).file(table, basinId).orElse(null)
+				: seriesInput(catalog(config), table, basinId, isGaugeSeries);
+		if (dbPath == null) {
+			return Optional.empty();
+		}
+		String cacheBasin = cacheBasin(basinId, isGaugeSeries);
+		String key = flightKey("pyramid", dbPath, table, cacheBasin, null, SeriesPyramid.COLUMNS);
+		SeriesBlock packed = cachedLoad(key, () -> {
+			Optional<SeriesBlock> stored = SeriesFileCache.read(dbPath, table, cacheBasin, SeriesPyramid.COLUMNS);
+			if (stored.isPresent()) {
+				return stored.get();
+			}
+			SourceStamp stamp = SourceStamp.of(dbPath);
+			SeriesBlock full = loadSeries(config, table, basinId, isGaugeSeries, null);
+			if (full.isEmpty() || QueryCancellation.currentCancelled()) {
+				return SeriesBlock.empty(SeriesPyramid.COLUMNS);
+			}
+			SeriesBlock built = SeriesPyramid.build(full).packed();
+			SeriesFileCache.write(dbPath, stamp, table, cacheBasin, built);
+			return built;
+		}).value();
+		return packed.isEmpty() ? Optional.empty() : Optional.of(SeriesPyramid.of(packed));
+	}
+
+	/**
+	 * Loads the series of several basins of one table. Basins found in the
+	 * memory or file cache are served from it; the others are read together with
+	 * {@code WHERE basin IN (...) ORDER BY basin, ts} and split per basin, so a
+	 * whole catchment costs one pass over the table instead of one per basin.
+	 * The result follows the order of {@code basinIds}; basins without rows map
+	 * to an empty block.
+	 */
+	public Map<String, SeriesBlock> loadSeriesBatch(ProjectConfig config, String table, Collection<String> basinIds,
+			TimeRange range) {
+		Map<String, SeriesBlock> out = new LinkedHashMap<>();
+		if (basinIds == null || basinIds.isEmpty()) {
+			return out;
+		}
+		for (String id : basinIds) {
+			out.put(id, SeriesBlock.empty(SeriesCursor.VALUE));
+		}
+		if (isLegacy(config)) {
+			return loadLegacyBatch(config, table, out, range);
+		}
+		ProjectCatalog catalog = catalog(config);
+		Path dbPath = seriesInput(catalog, table, basinIds.iterator().next(), false);
+		if (dbPath == null) {
+			return out;
+		}
+		int chunkSize = ExplorerConfig.streamChunkRows();
+		List<String> missing = new ArrayList<>();
+		for (String id : out.keySet()) {
+			SeriesBlock inMemory = SeriesCache.shared()
+					.get(flightKey("series", dbPath, table, id, null, SeriesCursor.VALUE));
+			if (inMemory != null) {
+				inMemory = within(inMemory, range);
+			} else if (range != null) {
+				inMemory = SeriesCache.shared().get(flightKey("series", dbPath, table, id, range, SeriesCursor.VALUE));
+			}
+			if (inMemory != null) {
+				out.put(id, inMemory);
+				continue;
+			}
+			Optional<SeriesBlock> cached = SeriesFileCache.read(dbPath, table, id, SeriesCursor.VALUE);
+			if (cached.isPresent()) {
+				out.put(id, within(cached.get(), range));
+			} else {
+				missing.add(id);
+			}
+		}
+		for (int start = 0; start < missing.size(); start += BATCH_PARAMETERS) {
+			List<String> batch = missing.subList(start, Math.min(missing.size(), start + BATCH_PARAMETERS));
+			// cache keys carry the stamp the source had before the read
+			SourceStamp stamp = SourceStamp.of(dbPath);
+			Map<String, String> keys = new HashMap<>();
+			for (String id : batch) {
+				keys.put(id, flightKey("series", dbPath, table, id, range, SeriesCursor.VALUE));
+			}
+			Map<String, SeriesBlock> loaded = readBatch(catalog, dbPath, table, batch, range, chunkSize);
+			for (Map.Entry<String, SeriesBlock> e : loaded.entrySet()) {
+				out.put(e.getKey(), e.getValue());
+				if (e.getValue().isEmpty() || QueryCancellation.currentCancelled()) {
+					continue;
+				}
+				SeriesCache.shared().put(keys.get(e.getKey()), e.getValue());
+				if (range == null) {
+					SeriesFileCache.write(dbPath, stamp, table, e.getKey(), e.getValue());
+				}
+			}
+		}
+		return out;
 	}
 
 	public Set<String> listColumnNamesFromAnyInput(ProjectConfig config, String table) {
 		if (config == null || table == null || table.isBlank()) {
 			return Set.of();
 		}
+		if (isLegacy(config)) {
+			return new LinkedHashSet<>(legacy(config).columnNames(table));
+		}
+		ProjectCatalog catalog = catalog(config);
 		Set<String> out = new LinkedHashSet<>();
-		out.addAll(repository.listColumnNames(config.geopackagePath(), table));
-		out.addAll(repository.listColumnNames(config.sqlitePath(), table));
+		catalog.table(config.geopackagePath(), table).ifPresent(t -> out.addAll(t.columnNames()));
+		catalog.table(config.sqlitePath(), table).ifPresent(t -> out.addAll(t.columnNames()));
 		return out;
 	}
 
@@ -65,114 +427,516 @@ public final class TimeseriesLoader {
 		if (config == null || table == null || table.isBlank()) {
 			return List.of();
 		}
-		List<TableColumnDetail> gpkgDetails = repository.listTableDetails(config.geopackagePath(), table);
-		if (!gpkgDetails.isEmpty()) {
-			return gpkgDetails;
+		if (isLegacy(config)) {
+			List<TableColumnDetail> details = new ArrayList<>();
+			details.add(new TableColumnDetail(0, "datetime", "DATE", true, null, false));
+			for (String name : legacy(config).columnNames(table)) {
+				details.add(new TableColumnDetail(details.size(), name, "DOUBLE", false, null, false));
+			}
+			return details;
 		}
-		return repository.listTableDetails(config.sqlitePath(), table);
+		return catalog(config).table(table).map(ProjectCatalog.TableInfo::columns).orElse(List.of());
 	}
 
-	public List<TimeValueRow> loadRowsFromAnyInput(ProjectConfig config, String table, String basinId,
+	/**
+	 * Loads the requested columns of one basin as a columnar block; columns are
+	 * named as requested, independently of the case used in the table.
+	 */
+	public SeriesBlock loadRowsFromAnyInput(ProjectConfig config, String table, String basinId,
 			String... valueColumns) {
-		List<TimeValueRow> rows = loadRowsFromDb(config.geopackagePath(), table, basinId, valueColumns);
-		if (!rows.isEmpty()) {
+		if (isLegacy(config)) {
+			return legacyRows(config, table, basinId, valueColumns);
+		}
+		ProjectCatalog catalog = catalog(config);
+		Path dbPath = catalog.owner(table).orElse(null);
+		if (dbPath == null) {
+			return SeriesBlock.empty(valueColumns);
+		}
+		String key = flightKey("rows", dbPath, table, basinId, null, valueColumns);
+		return cachedLoad(key, () -> loadRowsFromDb(catalog, dbPath, table, basinId, valueColumns)).value();
+	}
+
+	/**
+	 * Aggregates one basin per time bucket inside SQLite (see
+	 * {@link BucketAggregate#bucketStart}), so only one row per non-empty
+	 * bucket crosses JDBC; columns are named after the aggregates. Empty when
+	 * the aggregation cannot be pushed down (legacy project, timestamp column
+	 * not declared as integer, missing column, pushdown disabled) or the query
+	 * fails: callers then aggregate the rows themselves.
+	 */
+	public Optional<SeriesBlock> loadBucketAggregates(ProjectConfig config, String table, String basinId,
+			String aggregation, List<BucketAggregate> aggregates) {
+		if (isLegacy(config) || aggregates.isEmpty() || !ExplorerConfig.aggregationPushdown()) {
+			return Optional.empty();
+		}
+		ProjectCatalog catalog = catalog(config);
+		Path dbPath = catalog.owner(table).orElse(null);
+		Set<String> sources = new LinkedHashSet<>();
+		for (BucketAggregate aggregate : aggregates) {
+			sources.addAll(aggregate.plus());
+			sources.addAll(aggregate.minus());
+		}
+		List<String> resolved = resolveColumns(catalog, dbPath, table, basinId, sources.toArray(String[]::new));
+		if (resolved == null || !integerTimestamps(catalog.table(dbPath, table).orElseThrow())) {
+			return Optional.empty();
+		}
+		String[] names = aggregates.stream().map(BucketAggregate::name).toArray(String[]::new);
+		String key = flightKey("buckets:" + aggregation, dbPath, table, basinId, null,
+				aggregates.stream().map(BucketAggregate::toString).toArray(String[]::new));
+		SeriesBlock block = cachedLoad(key, () -> readBucketAggregates(catalog, dbPath, table, basinId,
+				aggregation, aggregates, new ArrayList<>(sources), resolved, names)).value();
+		return block.isEmpty() ? Optional.empty() : Optional.of(block);
+	}
+
+	private SeriesBlock loadRowsFromDb(ProjectCatalog catalog, Path dbPath, String table, String basinId,
+			String... valueColumns) {
+		if (resolveColumns(catalog, dbPath, table, basinId, valueColumns) == null) {
+			return SeriesBlock.empty(valueColumns);
+		}
+		Optional<SeriesBlock> cached = SeriesFileCache.read(dbPath, table, basinId, valueColumns);
+		if (cached.isPresent()) {
+			return cached.get();
+		}
+		int chunkSize = ExplorerConfig.streamChunkRows();
+		SourceStamp stamp = SourceStamp.of(dbPath);
+		try (SeriesCursor cursor = openRowsCursor(catalog, dbPath, table, basinId, chunkSize, valueColumns)) {
+			SeriesBlock.Builder out = SeriesBlock.builder(chunkSize, valueColumns);
+			while (cursor.next()) {
+				SeriesBlock chunk = cursor.chunk();
+				for (int i = 0; i < chunk.size(); i++) {
+					out.add(chunk.timestamp(i));
+					for (int c = 0; c < valueColumns.length; c++) {
+						out.set(c, chunk.value(c, i));
+					}
+				}
+			}
+			SeriesBlock rows = out.build();
+			if (!rows.isEmpty() && !QueryCancellation.currentCancelled()) {
+				SeriesFileCache.write(dbPath, stamp, table, basinId, rows);
+			}
 			return rows;
+		} catch (SQLException ex) {
+			return SeriesBlock.empty(valueColumns);
 		}
-		return loadRowsFromDb(config.sqlitePath(), table, basinId, valueColumns);
 	}
 
-	private int fillSeriesFromDb(Path dbPath, String table, String basinId, TimeSeries series, boolean isGaugeSerie) {
-		if (dbPath == null || table == null || (basinId == null && !isGaugeSerie)) {
-			return 0;
+	/**
+	 * Reads a single-value series, streaming it to the consumer, and returns
+	 * the rows delivered as one block (empty when the read failed).
+	 */
+	private SeriesBlock readSeries(ProjectCatalog catalog, Path dbPath, String table, String basinId,
+			boolean isGaugeSeries, TimeRange range, Consumer<SeriesBlock> consumer) {
+		int chunkSize = ExplorerConfig.streamChunkRows();
+		String cacheBasin = cacheBasin(basinId, isGaugeSeries);
+		SeriesBlock.Builder out = SeriesBlock.builder(chunkSize, SeriesCursor.VALUE);
+		Consumer<SeriesBlock> collect = chunk -> {
+			for (int i = 0; i < chunk.size(); i++) {
+				out.addRow(chunk.timestamp(i), chunk.value(0, i));
+			}
+			consumer.accept(chunk);
+		};
+		Optional<SeriesBlock> cached = SeriesFileCache.read(dbPath, table, cacheBasin, SeriesCursor.VALUE);
+		if (cached.isPresent()) {
+			deliver(cached.get(), range, chunkSize, collect);
+			return out.build();
 		}
+		SourceStamp stamp = SourceStamp.of(dbPath);
+		try (SeriesCursor cursor = openSeriesCursor(catalog, dbPath, table, basinId, isGaugeSeries, range,
+				chunkSize)) {
+			while (cursor.next()) {
+				collect.accept(cursor.chunk());
+			}
+		} catch (SQLException ex) {
+			return SeriesBlock.empty(SeriesCursor.VALUE);
+		}
+		SeriesBlock block = out.build();
+		if (QueryCancellation.currentCancelled()) {
+			return block;
+		}
+		if (range == null) {
+			SeriesFileCache.write(dbPath, stamp, table, cacheBasin, block);
+		} else {
+			// a windowed read fills the file cache with the full series later
+			SeriesFileCache.fillAsync(dbPath, table, cacheBasin, new String[] { SeriesCursor.VALUE },
+					() -> readFullSeries(catalog, dbPath, table, basinId, isGaugeSeries, chunkSize));
+		}
+		return block;
+	}
 
-		Set<String> columns = repository.listColumnNames(dbPath, table);
-		Optional<String> basinColumn = repository.findFirstColumnIgnoreCase(columns,
-				ExplorerConfig.timeseriesBasinIdCandidates());
-		Optional<String> tsColumn = repository.findFirstColumnIgnoreCase(columns,
-				new String[] { ExplorerConfig.timeseriesTimestampColumn(), "ts", "timestamp", "date", "time" });
-		Optional<String> valueColumn = repository.findFirstColumnIgnoreCase(columns,
-				new String[] { ExplorerConfig.timeseriesValueColumn(), "value", "simulated", "obs", "q" });
-		if ((!isGaugeSerie && basinColumn.isEmpty()) || tsColumn.isEmpty() || valueColumn.isEmpty()) {
-			return 0;
+	/**
+	 * Runs the bucket query: sums are NULL (read as NaN) when any row of the
+	 * bucket is, as the in-memory sum would be; step deltas are computed over
+	 * the whole series with LAG and then summed per bucket, so a bucket starts
+	 * from the last value of the previous one.
+	 */
+	private SeriesBlock readBucketAggregates(ProjectCatalog catalog, Path dbPath, String table, String basinId,
+			String aggregation, List<BucketAggregate> aggregates, List<String> sources, List<String> resolved,
+			String[] names) {
+		ProjectCatalog.TableInfo info = catalog.table(dbPath, table).orElseThrow();
+		String ts = "\"" + info.timestampColumn() + "\"";
+		StringBuilder rows = new StringBuilder("SELECT ").append(BucketAggregate.bucketStart(ts, aggregation))
+				.append(" AS b, ").append(ts).append(" AS t");
+		for (int c = 0; c < resolved.size(); c++) {
+			rows.append(", \"").append(resolved.get(c)).append("\" AS c").append(c);
 		}
+		rows.append(" FROM \"").append(table.replace("\"", "\"\"")).append("\" WHERE \"")
+				.append(info.basinColumn()).append("\"=?");
+		StringBuilder with = new StringBuilder("WITH r AS (").append(rows).append(")");
+		StringBuilder select = new StringBuilder("SELECT r.b");
+		StringBuilder joins = new StringBuilder();
+		for (int a = 0; a < aggregates.size(); a++) {
+			BucketAggregate aggregate = aggregates.get(a);
+			StringBuilder term = new StringBuilder("(");
+			for (String col : aggregate.plus()) {
+				term.append(term.length() > 1 ? " + " : "").append("r.c").append(sources.indexOf(col));
+			}
+			for (String col : aggregate.minus()) {
+				term.append(" - r.c").append(sources.indexOf(col));
+			}
+			term.append(")");
+			switch (aggregate.kind()) {
+			case SUM -> select.append(", CASE WHEN COUNT(").append(term).append(") = COUNT(*) THEN TOTAL(")
+					.append(term).append(") END");
+			case MEAN -> select.append(", AVG(").append(term).append(")");
+			case STEP_DELTA -> {
+				String step = "s" + a;
+				String col = "c" + sources.indexOf(aggregate.plus().get(0));
+				with.append(", ").append(step).append(" AS (SELECT b, TOTAL(d) AS d FROM (SELECT b, ").append(col)
+						.append(" - LAG(").append(col).append(") OVER (ORDER BY t) AS d FROM r WHERE ")
+						.append(col).append(" IS NOT NULL) GROUP BY b)");
+				joins.append(" LEFT JOIN ").append(step).append(" ON ").append(step).append(".b = r.b");
+				select.append(", COALESCE(MAX(").append(step).append(".d), 0)");
+			}
+			}
+		}
+		String sql = with + " " + select + " FROM r" + joins + " GROUP BY r.b ORDER BY r.b";
+		SeriesBlock.Builder out = SeriesBlock.builder(names);
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(SidecarIndex.route(dbPath, table))
+				.borrow(); PreparedStatement ps = lease.connection().prepareStatement(sql);
+				QueryCancellation.Registration cancellation = QueryCancellation.track(ps)) {
+			ps.setString(1, basinId);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					out.add(rs.getLong(1));
+					for (int c = 0; c < names.length; c++) {
+						double v = rs.getDouble(c + 2);
+						out.set(c, rs.wasNull() ? Double.NaN : v);
+					}
+				}
+			}
+		} catch (SQLException ex) {
+			return SeriesBlock.empty(names);
+		}
+		return out.build();
+	}
 
-		String safeTable = table.replace("\"", "\"\"");
-		String sql = "SELECT \"" + tsColumn.get() + "\", \"" + valueColumn.get() + "\" FROM \"" + safeTable + "\"";
-		if (!isGaugeSerie) {
-			sql = sql + " WHERE \"" + basinColumn.get() + "\"=?";
+	/**
+	 * Bucket expressions need integer epoch milliseconds; a timestamp column
+	 * declared otherwise may hold text dates.
+	 */
+	private static boolean integerTimestamps(ProjectCatalog.TableInfo info) {
+		for (TableColumnDetail column : info.columns()) {
+			if (column.name().equalsIgnoreCase(info.timestampColumn())) {
+				return column.type() != null && column.type().toUpperCase(Locale.ROOT).contains("INT");
+			}
 		}
-		sql = sql + " ORDER BY \"" + tsColumn.get() + "\"";
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-				PreparedStatement ps = c.prepareStatement(sql)) {
-			if (!isGaugeSerie) {
-				ps.setString(1, basinId);
+		return false;
+	}
+
+	private static boolean isLegacy(ProjectConfig config) {
+		return config != null && config.mode() == ProjectMode.LEGACY_FOLDER && config.legacyRootPath() != null;
+	}
+
+	private static LegacyFolderReader legacy(ProjectConfig config) {
+		return LegacyFolderReader.forRoot(config.legacyRootPath());
+	}
+
+	/**
+	 * First value column of a legacy output file, parsed once and then served
+	 * from the {@link SeriesCache} until the file changes.
+	 */
+	private static SeriesBlock legacySeries(ProjectConfig config, String table, String basinId) {
+		return legacyRows(config, table, basinId);
+	}
+
+	private static SeriesBlock legacyRows(ProjectConfig config, String table, String basinId,
+			String... valueColumns) {
+		Optional<Path> file = legacy(config).file(table, basinId);
+		boolean single = valueColumns.length == 0;
+		if (file.isEmpty()) {
+			return single ? SeriesBlock.empty(SeriesCursor.VALUE) : SeriesBlock.empty(valueColumns);
+		}
+		String key = flightKey("legacy", file.get(), table, basinId, null,
+				single ? new String[] { SeriesCursor.VALUE } : valueColumns);
+		return cachedLoad(key, () -> OmsCsvParser.parse(file.get(), valueColumns)).value();
+	}
+
+	/**
+	 * Legacy counterpart of the batch query: files not in memory are parsed in
+	 * parallel.
+	 */
+	private static Map<String, SeriesBlock> loadLegacyBatch(ProjectConfig config, String table,
+			Map<String, SeriesBlock> out, TimeRange range) {
+		LegacyFolderReader reader = legacy(config);
+		Map<String, String> keys = new LinkedHashMap<>();
+		List<String> missing = new ArrayList<>();
+		for (String id : out.keySet()) {
+			Optional<Path> file = reader.file(table, id);
+			if (file.isEmpty()) {
+				continue;
+			}
+			String key = flightKey("legacy", file.get(), table, id, null, SeriesCursor.VALUE);
+			SeriesBlock cached = SeriesCache.shared().get(key);
+			if (cached != null) {
+				out.put(id, within(cached, range));
+			} else {
+				keys.put(id, key);
+				missing.add(id);
+			}
+		}
+		for (Map.Entry<String, SeriesBlock> e : reader.readBatch(table, missing).entrySet()) {
+			if (!e.getValue().isEmpty()) {
+				SeriesCache.shared().put(keys.get(e.getKey()), e.getValue());
+			}
+			out.put(e.getKey(), within(e.getValue(), range));
+		}
+		return out;
+	}
+
+	/**
+	 * Serves {@code key} from the {@link SeriesCache}, or runs the read once
+	 * for all concurrent callers and caches its result unless it is empty or
+	 * was cancelled.
+	 */
+	private static SingleFlight.Result<SeriesBlock> cachedLoad(String key, Supplier<SeriesBlock> read) {
+		SeriesBlock hit = SeriesCache.shared().get(key);
+		if (hit != null) {
+			return new SingleFlight.Result<>(hit, true);
+		}
+		return FLIGHTS.load(key, () -> {
+			SeriesBlock block = read.get();
+			if (!block.isEmpty() && !QueryCancellation.currentCancelled()) {
+				SeriesCache.shared().put(key, block);
+			}
+			return block;
+		});
+	}
+
+	/**
+	 * Key of a load for {@link SingleFlight} and {@link SeriesCache}; it includes the {@link SourceStamp} of
+	 * the database and its WAL file so that results read before a change are not shared after it.
+	 */
+	private static String flightKey(String kind, Path dbPath, String table, String basinId, TimeRange range,
+			String... columns) {
+		return kind + "|" + dbPath.toAbsolutePath().normalize() + "|" + SourceStamp.of(dbPath).token() + "|" + table
+				+ "|" + basinId + "|" + (range == null ? "*" : range.from() + "-" + range.to()) + "|"
+				+ String.join(",", columns);
+	}
+
+	private Map<String, SeriesBlock> readBatch(ProjectCatalog catalog, Path dbPath, String table,
+			List<String> basinIds, TimeRange range, int chunkSize) {
+		ProjectCatalog.TableInfo info = catalog.table(dbPath, table).orElseThrow();
+		String basin = "\"" + info.basinColumn() + "\"";
+		String ts = "\"" + info.timestampColumn() + "\"";
+		String sql = "SELECT " + basin + ", " + ts + ", \"" + info.valueColumn() + "\" FROM \""
+				+ table.replace("\"", "\"\"") + "\" WHERE " + basin + " IN ("
+				+ String.join(", ", Collections.nCopies(basinIds.size(), "?")) + ")"
+				+ (range == null ? "" : " AND " + ts + " BETWEEN ? AND ?") + " ORDER BY " + basin + ", " + ts;
+		Map<String, SeriesBlock.Builder> builders = new LinkedHashMap<>();
+		for (String id : basinIds) {
+			builders.put(id, SeriesBlock.builder(chunkSize, SeriesCursor.VALUE));
+		}
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(SidecarIndex.route(dbPath, table))
+				.borrow(); PreparedStatement ps = lease.connection().prepareStatement(sql);
+				QueryCancellation.Registration cancellation = QueryCancellation.track(ps)) {
+			ps.setFetchSize(chunkSize);
+			int param = 1;
+			for (String id : basinIds) {
+				ps.setString(param++, id);
+			}
+			if (range != null) {
+				ps.setLong(param++, range.from());
+				ps.setLong(param, range.to());
 			}
-			int count = 0;
 			try (ResultSet rs = ps.executeQuery()) {
+				String currentId = null;
+				SeriesBlock.Builder current = null;
 				while (rs.next()) {
-					long ts = rs.getLong(1);
-					double value = rs.getDouble(2);
-					if (value == -9999.0) {
-						value = Double.NaN;
+					String id = rs.getString(1);
+					if (!id.equals(currentId)) {
+						currentId = id;
+						current = builders.get(id);
 					}
-					if (!rs.wasNull()) {
-						series.addOrUpdate(new Millisecond(new java.util.Date(ts)), value);
-						count++;
+					double value = rs.getDouble(3);
+					if (current == null || rs.wasNull()) {
+						continue;
 					}
+					current.addRow(rs.getLong(2), value == -9999.0 ? Double.NaN : value);
 				}
 			}
-			return count;
 		} catch (SQLException ex) {
-			return 0;
+			return Map.of();
 		}
+		Map<String, SeriesBlock> out = new LinkedHashMap<>();
+		for (Map.Entry<String, SeriesBlock.Builder> e : builders.entrySet()) {
+			out.put(e.getKey(), e.getValue().build());
+		}
+		return out;
 	}
 
-	private List<TimeValueRow> loadRowsFromDb(Path dbPath, String table, String basinId, String... valueColumns) {
+	private SeriesBlock readFullSeries(ProjectCatalog catalog, Path dbPath, String table, String basinId,
+			boolean isGaugeSeries, int chunkSize) {
+		SeriesBlock.Builder out = SeriesBlock.builder(chunkSize, SeriesCursor.VALUE);
+		try (SeriesCursor cursor = openSeriesCursor(catalog, dbPath, table, basinId, isGaugeSeries, null,
+				chunkSize)) {
+			while (cursor.next()) {
+				SeriesBlock chunk = cursor.chunk();
+				for (int i = 0; i < chunk.size(); i++) {
+					out.addRow(chunk.timestamp(i), chunk.value(0, i));
+				}
+			}
+			return out.build();
+		} catch (SQLException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Hands the rows of {@code block} that fall in {@code range} to the
+	 * consumer in chunks of {@code chunkSize}.
+	 */
+	private static long deliver(SeriesBlock block, TimeRange range, int chunkSize, Consumer<SeriesBlock> consumer) {
+		int from = range == null ? 0 : block.rowAtOrAfter(range.from());
+		int to = range == null || range.to() == Long.MAX_VALUE ? block.size() : block.rowAtOrAfter(range.to() + 1);
+		for (int i = from; i < to; i += chunkSize) {
+			consumer.accept(block.slice(i, Math.min(to, i + chunkSize)));
+		}
+		return Math.max(0, to - from);
+	}
+
+	private static SeriesBlock within(SeriesBlock block, TimeRange range) {
+		if (range == null) {
+			return block;
+		}
+		int to = range.to() == Long.MAX_VALUE ? block.size() : block.rowAtOrAfter(range.to() + 1);
+		return block.slice(block.rowAtOrAfter(range.from()), to);
+	}
+
+	/**
+	 * Input that owns the table, or null when it cannot provide the series.
+	 */
+	private Path seriesInput(ProjectCatalog catalog, String table, String basinId, boolean isGaugeSeries) {
+		Path dbPath = catalog.owner(table).orElse(null);
+		return canLoadSeries(catalog, dbPath, table, basinId, isGaugeSeries) ? dbPath : null;
+	}
+
+	private static String cacheBasin(String basinId, boolean isGaugeSeries) {
+		return isGaugeSeries ? null : basinId;
+	}
+
+	private boolean canLoadSeries(ProjectCatalog catalog, Path dbPath, String table, String basinId,
+			boolean isGaugeSerie) {
+		if (dbPath == null || table == null || (basinId == null && !isGaugeSerie)) {
+			return false;
+		}
+		Optional<ProjectCatalog.TableInfo> info = catalog.table(dbPath, table);
+		return info.isPresent() && info.get().hasTimeseriesLayout()
+				&& (isGaugeSerie || info.get().basinColumn() != null);
+	}
+
+	/**
+	 * Actual column names for the requested ones, or null when the table, the
+	 * basin/timestamp columns or any requested column is missing.
+	 */
+	private List<String> resolveColumns(ProjectCatalog catalog, Path dbPath, String table, String basinId,
+			String... valueColumns) {
 		if (dbPath == null || table == null || basinId == null || valueColumns == null || valueColumns.length == 0) {
-			return List.of();
+			return null;
 		}
-		Set<String> columns = repository.listColumnNames(dbPath, table);
-		Optional<String> basinColumn = repository.findFirstColumnIgnoreCase(columns,
-				ExplorerConfig.timeseriesBasinIdCandidates());
-		Optional<String> tsColumn = repository.findFirstColumnIgnoreCase(columns,
-				new String[] { ExplorerConfig.timeseriesTimestampColumn(), "timestamp", "date", "time" });
-		if (basinColumn.isEmpty() || tsColumn.isEmpty()) {
-			return List.of();
+		Optional<ProjectCatalog.TableInfo> info = catalog.table(dbPath, table);
+		if (info.isEmpty() || info.get().basinColumn() == null || info.get().timestampColumn() == null) {
+			return null;
 		}
-		Map<String, String> resolvedColumns = new LinkedHashMap<>();
+		List<String> resolvedColumns = new ArrayList<>();
 		for (String col : valueColumns) {
-			Optional<String> resolved = repository.findFirstColumnIgnoreCase(columns, new String[] { col });
+			Optional<String> resolved = info.get().column(col);
 			if (resolved.isEmpty()) {
-				return List.of();
+				return null;
 			}
-			resolvedColumns.put(col, resolved.get());
+			resolvedColumns.add(resolved.get());
+		}
+		return resolvedColumns;
+	}
+
+	private SeriesCursor openSeriesCursor(ProjectCatalog catalog, Path dbPath, String table, String basinId,
+			boolean isGaugeSerie, TimeRange range, int chunkSize) throws SQLException {
+		return openSeriesCursor(catalog, dbPath, SidecarIndex.route(dbPath, table), table, basinId, isGaugeSerie,
+				range, chunkSize);
+	}
+
+	/**
+	 * As above, querying {@code readFrom}: {@code dbPath} itself or its sidecar.
+	 */
+	private SeriesCursor openSeriesCursor(ProjectCatalog catalog, Path dbPath, Path readFrom, String table,
+			String basinId, boolean isGaugeSerie, TimeRange range, int chunkSize) throws SQLException {
+		ProjectCatalog.TableInfo info = catalog.table(dbPath, table).orElseThrow();
+		String safeTable = table.replace("\"", "\"\"");
+		String ts = "\"" + info.timestampColumn() + "\"";
+		String sql = "SELECT " + ts + ", \"" + info.valueColumn() + "\" FROM \"" + safeTable + "\"";
+		List<String> where = new ArrayList<>();
+		if (!isGaugeSerie) {
+			where.add("\"" + info.basinColumn() + "\"=?");
+		}
+		if (range != null) {
+			where.add(ts + " BETWEEN ? AND ?");
 		}
+		if (!where.isEmpty()) {
+			sql = sql + " WHERE " + String.join(" AND ", where);
+		}
+		sql = sql + " ORDER BY " + ts;
+		return openCursor(readFrom, sql, isGaugeSerie ? null : basinId, range,
+				new String[] { SeriesCursor.VALUE }, chunkSize, true);
+	}
 
-		StringBuilder select = new StringBuilder("SELECT \"").append(tsColumn.get()).append("\"");
-		for (String actual : resolvedColumns.values()) {
+	private SeriesCursor openRowsCursor(ProjectCatalog catalog, Path dbPath, String table, String basinId,
+			int chunkSize, String... valueColumns) throws SQLException {
+		ProjectCatalog.TableInfo info = catalog.table(dbPath, table).orElseThrow();
+		StringBuilder select = new StringBuilder("SELECT \"").append(info.timestampColumn()).append("\"");
+		for (String actual : resolveColumns(catalog, dbPath, table, basinId, valueColumns)) {
 			select.append(", \"").append(actual).append("\"");
 		}
 		String safeTable = table.replace("\"", "\"\"");
-		String sql = select + " FROM \"" + safeTable + "\" WHERE \"" + basinColumn.get() + "\"=? ORDER BY \""
-				+ tsColumn.get() + "\"";
-		List<TimeValueRow> out = new ArrayList<>();
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-				PreparedStatement ps = c.prepareStatement(sql)) {
-			ps.setString(1, basinId);
-			try (ResultSet rs = ps.executeQuery()) {
-				while (rs.next()) {
-					Map<String, Double> vals = new LinkedHashMap<>();
-					for (int i = 0; i < valueColumns.length; i++) {
-						double v = rs.getDouble(i + 2);
-						vals.put(valueColumns[i], rs.wasNull() ? Double.NaN : v);
-					}
-					out.add(new TimeValueRow(rs.getLong(1), vals));
+		String sql = select + " FROM \"" + safeTable + "\" WHERE \"" + info.basinColumn() + "\"=? ORDER BY \""
+				+ info.timestampColumn() + "\"";
+		return openCursor(SidecarIndex.route(dbPath, table), sql, basinId, null, valueColumns.clone(), chunkSize,
+				false);
+	}
+
+	private SeriesCursor openCursor(Path dbPath, String sql, String basinId, TimeRange range, String[] columns,
+			int chunkSize, boolean singleSeries) throws SQLException {
+		SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(dbPath).borrow();
+		PreparedStatement ps = null;
+		try {
+			ps = lease.connection().prepareStatement(sql);
+			ps.setFetchSize(chunkSize);
+			int param = 1;
+			if (basinId != null) {
+				ps.setString(param++, basinId);
+			}
+			if (range != null) {
+				ps.setLong(param++, range.from());
+				ps.setLong(param, range.to());
+			}
+			return new SeriesCursor(lease, ps, columns, chunkSize, singleSeries);
+		} catch (SQLException | RuntimeException ex) {
+			if (ps != null) {
+				try {
+					ps.close();
+				} catch (SQLException ignored) {
 				}
 			}
-		} catch (SQLException ex) {
-			return List.of();
+			lease.close();
+			throw ex;
 		}
-		return out;
 	}
 }
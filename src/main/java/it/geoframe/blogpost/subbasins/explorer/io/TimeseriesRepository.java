@@ -1,15 +1,15 @@
 package it.geoframe.blogpost.subbasins.explorer.io;
 
 import java.nio.file.Path;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -27,8 +27,8 @@ public final class TimeseriesRepository {
 		}
 		List<String> out = new ArrayList<>();
 		String sql = "SELECT name FROM sqlite_master WHERE type IN ('table','view') ORDER BY name";
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-				PreparedStatement ps = c.prepareStatement(sql);
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(dbPath).borrow();
+				PreparedStatement ps = lease.connection().prepareStatement(sql);
 				ResultSet rs = ps.executeQuery()) {
 			while (rs.next()) {
 				out.add(rs.getString(1));
@@ -46,8 +46,8 @@ public final class TimeseriesRepository {
 		String safeTable = tableName.replace("\"", "\"\"");
 		String sql = "SELECT * FROM \"" + safeTable + "\" LIMIT 1";
 		Set<String> out = new LinkedHashSet<>();
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-				PreparedStatement ps = c.prepareStatement(sql);
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(dbPath).borrow();
+				PreparedStatement ps = lease.connection().prepareStatement(sql);
 				ResultSet rs = ps.executeQuery()) {
 			ResultSetMetaData md = rs.getMetaData();
 			for (int i = 1; i <= md.getColumnCount(); i++) {
@@ -62,6 +62,47 @@ public final class TimeseriesRepository {
 		return out;
 	}
 
+	/**
+	 * Reads the column layout of every table and view in one pass, keyed by
+	 * table name in sqlite_master order.
+	 */
+	public Map<String, List<TableColumnDetail>> listSchema(Path dbPath) {
+		if (dbPath == null) {
+			return Map.of();
+		}
+		String sql = "SELECT m.name, p.cid, p.name, p.type, p.\"notnull\", p.dflt_value, p.pk "
+				+ "FROM sqlite_master m JOIN pragma_table_info(m.name) p "
+				+ "WHERE m.type IN ('table','view') ORDER BY m.name, p.cid";
+		Map<String, List<TableColumnDetail>> out = new LinkedHashMap<>();
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(dbPath).borrow();
+				PreparedStatement ps = lease.connection().prepareStatement(sql);
+				ResultSet rs = ps.executeQuery()) {
+			while (rs.next()) {
+				out.computeIfAbsent(rs.getString(1), k -> new ArrayList<>())
+						.add(new TableColumnDetail(rs.getInt(2) + 1, rs.getString(3), rs.getString(4),
+								rs.getInt(5) == 1, rs.getString(6), rs.getInt(7) == 1));
+			}
+		} catch (SQLException ignored) {
+			return Map.of();
+		}
+		return out;
+	}
+
+	public long countRows(Path dbPath, String tableName) {
+		if (dbPath == null || tableName == null || tableName.isBlank()) {
+			return -1L;
+		}
+		String safeTable = tableName.replace("\"", "\"\"");
+		String sql = "SELECT COUNT(*) FROM \"" + safeTable + "\"";
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(dbPath).borrow();
+				PreparedStatement ps = lease.connection().prepareStatement(sql);
+				ResultSet rs = ps.executeQuery()) {
+			return rs.next() ? rs.getLong(1) : 0L;
+		} catch (SQLException ignored) {
+			return -1L;
+		}
+	}
+
 	public Optional<String> findFirstColumnIgnoreCase(Set<String> columns, String[] candidates) {
 		if (columns == null || columns.isEmpty() || candidates == null) {
 			return Optional.empty();
@@ -87,8 +128,8 @@ public final class TimeseriesRepository {
 		String safeTable = tableName.replace("\"", "\"\"");
 		String sql = "PRAGMA table_info(\"" + safeTable + "\")";
 		List<TableColumnDetail> out = new ArrayList<>();
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-				PreparedStatement ps = c.prepareStatement(sql);
+		try (SqliteConnectionPool.Lease lease = SqliteConnectionPool.forPath(dbPath).borrow();
+				PreparedStatement ps = lease.connection().prepareStatement(sql);
 				ResultSet rs = ps.executeQuery()) {
 			while (rs.next()) {
 				out.add(new TableColumnDetail(rs.getInt("cid") + 1, rs.getString("name"), rs.getString("type"),
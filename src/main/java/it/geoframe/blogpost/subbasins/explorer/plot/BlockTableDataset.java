@@ -0,0 +1,114 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.xy.AbstractXYDataset;
+import org.jfree.data.xy.TableXYDataset;
+
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesBlock;
+
+/**
+ * Table dataset over the columns of a {@link SeriesBlock}: every column is a
+ * series and all of them share the block's timestamps, as the stacked
+ * renderer requires. Values are read from the block arrays, which are never
+ * copied.
+ *
+ * After {@link #setView(Range, int)} long blocks are reduced to the plot
+ * width: every pixel column keeps the rows where the positive and the
+ * negative stacks reach furthest, so the outline of the stacked areas is
+ * preserved.
+ */
+public final class BlockTableDataset extends AbstractXYDataset implements TableXYDataset {
+
+	private final SeriesBlock block;
+	private final String[] labels;
+	private final Decimation decimation = new Decimation();
+	private long bucketMillis;
+	/** rows drawn, null when all of them are */
+	private int[] drawn;
+
+	/**
+	 * @param labels series keys of the first {@code labels.length} columns
+	 */
+	public BlockTableDataset(SeriesBlock block, String... labels) {
+		if (labels.length > block.columnCount()) {
+			throw new IllegalArgumentException("More labels than columns: " + labels.length);
+		}
+		this.block = block;
+		this.labels = labels.clone();
+	}
+
+	/**
+	 * Sizes the drawn rows for a domain range shown over {@code pixels}
+	 * columns; notifies the chart only when the zoom level changes.
+	 */
+	public void setView(Range domain, int pixels) {
+		long bucket = domain == null ? 0L : Decimation.bucketMillis(domain.getLength(), pixels);
+		if (bucket != bucketMillis) {
+			bucketMillis = bucket;
+			drawn = decimation.rows(0, bucket, block.size(), block::timestamp, i -> stack(i, false),
+					i -> stack(i, true));
+			fireDatasetChanged();
+		}
+	}
+
+	private double stack(int row, boolean positive) {
+		double sum = 0d;
+		for (int s = 0; s < labels.length; s++) {
+			double v = block.value(s, row);
+			if (positive ? v > 0 : v < 0) {
+				sum += v;
+			}
+		}
+		return sum;
+	}
+
+	private int row(int i) {
+		return drawn == null ? i : drawn[i];
+	}
+
+	@Override
+	public int getItemCount() {
+		return drawn == null ? block.size() : drawn.length;
+	}
+
+	@Override
+	public int getSeriesCount() {
+		return labels.length;
+	}
+
+	@Override
+	public Comparable<?> getSeriesKey(int s) {
+		return labels[s];
+	}
+
+	@Override
+	public int getItemCount(int s) {
+		return getItemCount();
+	}
+
+	@Override
+	public DomainOrder getDomainOrder() {
+		return DomainOrder.ASCENDING;
+	}
+
+	@Override
+	public Number getX(int s, int i) {
+		return getXValue(s, i);
+	}
+
+	@Override
+	public double getXValue(int s, int i) {
+		return block.timestamp(row(i));
+	}
+
+	@Override
+	public Number getY(int s, int i) {
+		return getYValue(s, i);
+	}
+
+	@Override
+	public double getYValue(int s, int i) {
+		return block.value(s, row(i));
+	}
+}
@@ -0,0 +1,181 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import java.util.Arrays;
+
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesBlock;
+
+/**
+ * One line of the chart: parallel {@code long[]} timestamps and
+ * {@code double[]} values, sorted by timestamp.
+ *
+ * Rows are added in bulk. Rows after the last timestamp are appended in place;
+ * anything else is merged into fresh arrays in one pass. A row at an existing
+ * timestamp replaces its value and non-finite values are skipped, as the line
+ * has nothing to draw there. Mutated on the EDT only, between repaints.
+ *
+ * A series may instead hold an overview (see {@link #setOverview}): a min/max
+ * envelope that is only drawn. Its rows are not observations, so code reading
+ * values checks {@link #isOverview()} first, and adding rows is refused until
+ * the series is cleared.
+ */
+public final class ChartSeries {
+
+	private final String key;
+	private long[] timestamps = new long[0];
+	private double[] values = new double[0];
+	private int size;
+	private int version;
+	private boolean overview;
+
+	public ChartSeries(String key) {
+		this.key = key;
+	}
+
+	public String key() {
+		return key;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isOverview() {
+		return overview;
+	}
+
+	public long timestamp(int i) {
+		return timestamps[i];
+	}
+
+	public double value(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Changes whenever rows are added or cleared.
+	 */
+	int version() {
+		return version;
+	}
+
+	public long firstTimestamp() {
+		return timestamps[0];
+	}
+
+	public long lastTimestamp() {
+		return timestamps[size - 1];
+	}
+
+	/**
+	 * Index of the row at {@code ts}, or {@code -(insertion point) - 1}.
+	 */
+	public int indexOf(long ts) {
+		return Arrays.binarySearch(timestamps, 0, size, ts);
+	}
+
+	public void clear() {
+		timestamps = new long[0];
+		values = new double[0];
+		size = 0;
+		overview = false;
+		version++;
+	}
+
+	/**
+	 * Replaces the rows with the first {@code n} points of a summary to be
+	 * drawn in place of the observations, sorted by timestamp.
+	 */
+	public void setOverview(long[] ts, double[] v, int n) {
+		clear();
+		if (n > 0) {
+			append(ts, v, n);
+		}
+		overview = true;
+	}
+
+	/**
+	 * Adds one value column of a block.
+	 */
+	public void addAll(SeriesBlock block, int column) {
+		if (column >= 0) {
+			addAll(block.timestamps(), block.column(column), block.size());
+		}
+	}
+
+	/**
+	 * Adds the first {@code n} rows of the arrays, which must be sorted by
+	 * timestamp. The arrays are copied.
+	 */
+	public void addAll(long[] ts, double[] v, int n) {
+		if (overview) {
+			throw new IllegalStateException("Series " + key + " holds an overview: clear it before adding rows");
+		}
+		if (n <= 0) {
+			return;
+		}
+		version++;
+		if (size == 0 || ts[0] >= timestamps[size - 1]) {
+			append(ts, v, n);
+		} else {
+			merge(ts, v, n);
+		}
+	}
+
+	private void append(long[] ts, double[] v, int n) {
+		if (size + n > timestamps.length) {
+			int capacity = Math.max(size + n, timestamps.length + (timestamps.length >> 1));
+			timestamps = Arrays.copyOf(timestamps, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		for (int i = 0; i < n; i++) {
+			if (!Double.isFinite(v[i])) {
+				continue;
+			}
+			if (size > 0 && timestamps[size - 1] == ts[i]) {
+				values[size - 1] = v[i];
+			} else {
+				timestamps[size] = ts[i];
+				values[size++] = v[i];
+			}
+		}
+	}
+
+	private void merge(long[] ts, double[] v, int n) {
+		long[] outTs = new long[size + n];
+		double[] outV = new double[size + n];
+		int a = 0;
+		int b = 0;
+		int k = 0;
+		while (a < size || b < n) {
+			if (b < n && !Double.isFinite(v[b])) {
+				b++;
+				continue;
+			}
+			long t;
+			double value;
+			if (b >= n || (a < size && timestamps[a] < ts[b])) {
+				t = timestamps[a];
+				value = values[a++];
+			} else {
+				t = ts[b];
+				value = v[b++];
+				if (a < size && timestamps[a] == t) {
+					a++;
+				}
+			}
+			if (k > 0 && outTs[k - 1] == t) {
+				outV[k - 1] = value;
+			} else {
+				outTs[k] = t;
+				outV[k++] = value;
+			}
+		}
+		timestamps = outTs;
+		values = outV;
+		size = k;
+	}
+}
@@ -0,0 +1,164 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/**
+ * Line chart dataset over {@link ChartSeries}: values are read straight from
+ * the primitive arrays, without a time period or data item per point. Series
+ * are sorted by timestamp, so the renderer only visits the visible items and
+ * the domain bounds come from the first and last row of each series.
+ *
+ * Callers that change the rows of a series call {@link #seriesChanged()} once
+ * the whole batch is in.
+ *
+ * After {@link #setView(Range, int)} the chart sees each series reduced to the
+ * plot width (see {@link Decimation}); the rows themselves are kept whole.
+ */
+public final class ChartSeriesDataset extends AbstractXYDataset implements DomainInfo {
+
+	private final List<ChartSeries> series = new ArrayList<>();
+	private final List<Decimation> decimations = new ArrayList<>();
+	/** rows drawn per series, null when all of them are */
+	private final List<int[]> drawn = new ArrayList<>();
+	private long bucketMillis;
+
+	public void addSeries(ChartSeries s) {
+		series.add(s);
+		decimations.add(new Decimation());
+		drawn.add(null);
+		refresh();
+		fireDatasetChanged();
+	}
+
+	public ChartSeries getSeries(int index) {
+		return series.get(index);
+	}
+
+	public void removeSeries(int index) {
+		series.remove(index);
+		decimations.remove(index);
+		drawn.remove(index);
+		fireDatasetChanged();
+	}
+
+	public void removeSeries(ChartSeries s) {
+		for (int i = 0; i < series.size(); i++) {
+			if (series.get(i) == s) {
+				removeSeries(i);
+				return;
+			}
+		}
+	}
+
+	public void removeAllSeries() {
+		if (!series.isEmpty()) {
+			series.clear();
+			decimations.clear();
+			drawn.clear();
+			fireDatasetChanged();
+		}
+	}
+
+	public void seriesChanged() {
+		refresh();
+		fireDatasetChanged();
+	}
+
+	/**
+	 * Sizes the drawn rows for a domain range shown over {@code pixels}
+	 * columns; notifies the chart only when the zoom level changes.
+	 */
+	public void setView(Range domain, int pixels) {
+		long bucket = domain == null ? 0L : Decimation.bucketMillis(domain.getLength(), pixels);
+		if (bucket != bucketMillis) {
+			bucketMillis = bucket;
+			refresh();
+			fireDatasetChanged();
+		}
+	}
+
+	private void refresh() {
+		for (int s = 0; s < series.size(); s++) {
+			ChartSeries line = series.get(s);
+			drawn.set(s, decimations.get(s).rows(line.version(), bucketMillis, line.size(), line::timestamp,
+					line::value, line::value));
+		}
+	}
+
+	private int row(int s, int i) {
+		int[] rows = drawn.get(s);
+		return rows == null ? i : rows[i];
+	}
+
+	@Override
+	public int getSeriesCount() {
+		return series.size();
+	}
+
+	@Override
+	public Comparable<?> getSeriesKey(int s) {
+		return series.get(s).key();
+	}
+
+	@Override
+	public int getItemCount(int s) {
+		int[] rows = drawn.get(s);
+		return rows == null ? series.get(s).size() : rows.length;
+	}
+
+	@Override
+	public DomainOrder getDomainOrder() {
+		return DomainOrder.ASCENDING;
+	}
+
+	@Override
+	public Number getX(int s, int i) {
+		return getXValue(s, i);
+	}
+
+	@Override
+	public double getXValue(int s, int i) {
+		return series.get(s).timestamp(row(s, i));
+	}
+
+	@Override
+	public Number getY(int s, int i) {
+		return getYValue(s, i);
+	}
+
+	@Override
+	public double getYValue(int s, int i) {
+		return series.get(s).value(row(s, i));
+	}
+
+	@Override
+	public double getDomainLowerBound(boolean includeInterval) {
+		Range bounds = getDomainBounds(includeInterval);
+		return bounds == null ? Double.NaN : bounds.getLowerBound();
+	}
+
+	@Override
+	public double getDomainUpperBound(boolean includeInterval) {
+		Range bounds = getDomainBounds(includeInterval);
+		return bounds == null ? Double.NaN : bounds.getUpperBound();
+	}
+
+	@Override
+	public Range getDomainBounds(boolean includeInterval) {
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (ChartSeries s : series) {
+			if (!s.isEmpty()) {
+				min = Math.min(min, s.firstTimestamp());
+				max = Math.max(max, s.lastTimestamp());
+			}
+		}
+		return min > max ? null : new Range(min, max);
+	}
+}
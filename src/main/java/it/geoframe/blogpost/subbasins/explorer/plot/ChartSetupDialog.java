@@ -9,6 +9,7 @@ import java.awt.Insets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 import javax.swing.JButton;
@@ -18,7 +19,11 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.WindowConstants;
 
+import it.geoframe.blogpost.subbasins.explorer.io.ProjectCatalog;
+import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesLoader;
 import it.geoframe.blogpost.subbasins.explorer.model.ChartRequest;
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
+import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectMode;
 
 public final class ChartSetupDialog {
@@ -27,8 +32,13 @@ public final class ChartSetupDialog {
 	private final JComboBox<String> simulationCombo = new JComboBox<>();
 	private final JComboBox<String> typeCombo = new JComboBox<>(new String[] { "discharge", "state", "fluxes" });
 	private final List<String> allSimulationTables = new ArrayList<>();
+	private final ProjectCatalog catalog;
+	private final boolean legacy;
 
-	public ChartSetupDialog(Component parent, ProjectMode mode, String[] simulationTables, Consumer<ChartRequest> onConfirm) {
+	public ChartSetupDialog(Component parent, ProjectConfig config, TimeseriesLoader loader,
+			Consumer<ChartRequest> onConfirm) {
+		this.catalog = loader.catalog(config);
+		this.legacy = config.mode() == ProjectMode.LEGACY_FOLDER;
 		dialog.setModal(false);
 		dialog.setTitle("Selezione grafico");
 		dialog.setLayout(new BorderLayout(8, 8));
@@ -40,16 +50,17 @@ public final class ChartSetupDialog {
 		gbc.insets = new Insets(6, 6, 6, 6);
 		gbc.fill = GridBagConstraints.HORIZONTAL;
 		gbc.weightx = 1;
-		if (mode == ProjectMode.GEOPACKAGE) {
-			panel.add(new JLabel("Simulazione da plottare:"), gbc);
-			gbc.gridy++;
-			for (String t : simulationTables) {
-				allSimulationTables.add(t);
-			}
-			reloadSimulationCombo();
-			panel.add(simulationCombo, gbc);
-			gbc.gridy++;
+		panel.add(new JLabel("Simulazione da plottare:"), gbc);
+		gbc.gridy++;
+		if (legacy) {
+			// legacy outputs are CSV files named after the variable, without a simulation prefix
+			allSimulationTables.addAll(loader.listAllTableNames(config));
+		} else {
+			allSimulationTables.addAll(catalog.tableNamesStartingWith(ExplorerConfig.geopackageSimulationPrefix()));
 		}
+		reloadSimulationCombo();
+		panel.add(simulationCombo, gbc);
+		gbc.gridy++;
 		panel.add(new JLabel("Tipo grafico:"), gbc);
 		gbc.gridy++;
 		panel.add(typeCombo, gbc);
@@ -81,8 +92,29 @@ public final class ChartSetupDialog {
 			if (("state".equalsIgnoreCase(type) || "fluxes".equalsIgnoreCase(type)) && isDischarge) {
 				continue;
 			}
+			if (!hasBasinTimeseries(table, "discharge".equalsIgnoreCase(type))) {
+				continue;
+			}
 			simulationCombo.addItem(table);
 		}
+		if (legacy && simulationCombo.getItemCount() == 0) {
+			allSimulationTables.forEach(simulationCombo::addItem);
+		}
+	}
+
+	private boolean hasBasinTimeseries(String table, boolean requireValue) {
+		if (legacy) {
+			return true;
+		}
+		Optional<ProjectCatalog.TableInfo> info = catalog.table(table);
+		if (info.isEmpty()) {
+			return false;
+		}
+		ProjectCatalog.TableInfo t = info.get();
+		if (t.timestampColumn() == null || t.basinColumn() == null) {
+			return false;
+		}
+		return !requireValue || t.valueColumn() != null;
 	}
 
 	public void showDialog() {
@@ -0,0 +1,114 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Pixel-sized reduction of a sorted series for drawing. Rows are grouped in
+ * time buckets about one pixel column wide and each bucket keeps its first,
+ * lowest, highest and last row, so the drawn line has the same envelope and
+ * joins as the full series with at most four points per column.
+ *
+ * Bucket widths are powers of two milliseconds aligned on the epoch: panning
+ * keeps the zoom level, and the rows of the last few levels are cached until
+ * the series changes.
+ */
+final class Decimation {
+
+	private static final int MAX_LEVELS = 8;
+
+	private final Map<Long, int[]> levels = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+			return size() > MAX_LEVELS;
+		}
+	};
+	private int version = -1;
+
+	/**
+	 * Bucket width for a domain span drawn over {@code pixels} columns, or 0
+	 * when the rows are to be drawn as they are.
+	 */
+	static long bucketMillis(double span, int pixels) {
+		if (!(span > 0) || pixels <= 0) {
+			return 0L;
+		}
+		long ideal = (long) (span / pixels);
+		return ideal < 2 ? 0L : Long.highestOneBit(ideal);
+	}
+
+	/**
+	 * Rows of the series to draw at the given bucket width, or {@code null}
+	 * when decimation would not save much and every row is drawn.
+	 */
+	int[] rows(int dataVersion, long bucketMillis, int n, IntToLongFunction ts, IntToDoubleFunction low,
+			IntToDoubleFunction high) {
+		if (bucketMillis <= 0 || n < 4) {
+			return null;
+		}
+		if (dataVersion != version) {
+			levels.clear();
+			version = dataVersion;
+		}
+		int[] rows = levels.get(bucketMillis);
+		if (rows == null) {
+			rows = envelope(n, ts, low, high, bucketMillis);
+			levels.put(bucketMillis, rows);
+		}
+		// an empty array marks a level where the full series is drawn
+		return rows.length == 0 ? null : rows;
+	}
+
+	/**
+	 * First, lowest, highest and last row of every bucket, in row order; empty
+	 * when that keeps more than half of the rows.
+	 */
+	static int[] envelope(int n, IntToLongFunction ts, IntToDoubleFunction low, IntToDoubleFunction high,
+			long bucketMillis) {
+		int[] out = new int[Math.min(n, 1024)];
+		int[] picked = new int[4];
+		int size = 0;
+		int i = 0;
+		while (i < n) {
+			long bucket = Math.floorDiv(ts.applyAsLong(i), bucketMillis);
+			int min = i;
+			int max = i;
+			double lo = low.applyAsDouble(i);
+			double hi = high.applyAsDouble(i);
+			int j = i + 1;
+			while (j < n && Math.floorDiv(ts.applyAsLong(j), bucketMillis) == bucket) {
+				double l = low.applyAsDouble(j);
+				double h = high.applyAsDouble(j);
+				if (l < lo || Double.isNaN(lo)) {
+					lo = l;
+					min = j;
+				}
+				if (h > hi || Double.isNaN(hi)) {
+					hi = h;
+					max = j;
+				}
+				j++;
+			}
+			picked[0] = i;
+			picked[1] = min;
+			picked[2] = max;
+			picked[3] = j - 1;
+			Arrays.sort(picked);
+			if (size + 4 > out.length) {
+				out = Arrays.copyOf(out, out.length * 2);
+			}
+			for (int row : picked) {
+				if (size == 0 || out[size - 1] != row) {
+					out[size++] = row;
+				}
+			}
+			i = j;
+		}
+		return 2 * size > n ? new int[0] : Arrays.copyOf(out, size);
+	}
+}
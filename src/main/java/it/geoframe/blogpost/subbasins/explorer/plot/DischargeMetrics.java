@@ -0,0 +1,74 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+/**
+ * One-pass accumulator for KGE, NSE and NSElog over (simulated, observed)
+ * pairs. Means and co-moments are updated incrementally (Welford), so pairs
+ * can be fed straight from a streaming read without keeping them in memory.
+ */
+public final class DischargeMetrics {
+
+	private long n;
+	private double meanSim;
+	private double meanObs;
+	private double m2Sim;
+	private double m2Obs;
+	private double coMoment;
+	private double squaredError;
+
+	private long nLog;
+	private double meanLogObs;
+	private double m2LogObs;
+	private double squaredLogError;
+
+	/**
+	 * Adds a pair; non-finite values and the -9999 no-data marker are ignored.
+	 */
+	public void add(double sim, double obs) {
+		if (!Double.isFinite(sim) || !Double.isFinite(obs) || sim == -9999.0 || obs == -9999.0) {
+			return;
+		}
+		n++;
+		double dSim = sim - meanSim;
+		double dObs = obs - meanObs;
+		meanSim += dSim / n;
+		meanObs += dObs / n;
+		m2Sim += dSim * (sim - meanSim);
+		m2Obs += dObs * (obs - meanObs);
+		coMoment += dSim * (obs - meanObs);
+		squaredError += (sim - obs) * (sim - obs);
+
+		if (sim > 0d && obs > 0d) {
+			double logSim = Math.log(sim);
+			double logObs = Math.log(obs);
+			nLog++;
+			double dLogObs = logObs - meanLogObs;
+			meanLogObs += dLogObs / nLog;
+			m2LogObs += dLogObs * (logObs - meanLogObs);
+			squaredLogError += (logSim - logObs) * (logSim - logObs);
+		}
+	}
+
+	public long count() {
+		return n;
+	}
+
+	/**
+	 * Returns {KGE, NSE, NSElog}; all NaN when fewer than two pairs were added.
+	 */
+	public double[] values() {
+		if (n < 2) {
+			return new double[] { Double.NaN, Double.NaN, Double.NaN };
+		}
+		double nse = m2Obs == 0d ? Double.NaN : 1d - (squaredError / m2Obs);
+		double nseLog = Double.NaN;
+		if (nLog >= 2) {
+			nseLog = m2LogObs == 0d ? Double.NaN : 1d - (squaredLogError / m2LogObs);
+		}
+		double r = (m2Sim == 0d || m2Obs == 0d) ? Double.NaN : coMoment / Math.sqrt(m2Sim * m2Obs);
+		double alpha = m2Obs == 0d ? Double.NaN : Math.sqrt(m2Sim / m2Obs);
+		double beta = meanObs == 0d ? Double.NaN : meanSim / meanObs;
+		double kge = Double.isNaN(r) || Double.isNaN(alpha) || Double.isNaN(beta) ? Double.NaN
+				: 1d - Math.sqrt((r - 1d) * (r - 1d) + (alpha - 1d) * (alpha - 1d) + (beta - 1d) * (beta - 1d));
+		return new double[] { kge, nse, nseLog };
+	}
+}
@@ -1,15 +1,10 @@
 package it.geoframe.blogpost.subbasins.explorer.plot;
 
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneOffset;
-import java.time.temporal.TemporalAdjusters;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesLoader;
+import it.geoframe.blogpost.subbasins.explorer.io.BucketAggregate;
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesBlock;
 
 public final class StateSeriesCalculator {
 
@@ -18,82 +13,81 @@ public final class StateSeriesCalculator {
 			String runoffInitial, String groundFinal, String groundInitial) {
 	}
 
-	public record StatePoint(long timestamp, double sweDelta, double aetDelta, double canopyDelta,
-			double rootzoneDelta, double runoffDelta, double groundDelta) {
-	}
+	public static final String SWE_DELTA = "swe";
+	public static final String AET_SUM = "aet_sum";
+	public static final String CANOPY_DELTA = "canopy_delta";
+	public static final String ROOTZONE_DELTA = "rootzone_delta";
+	public static final String RUNOFF_DELTA = "runoff_delta";
+	public static final String GROUND_DELTA = "ground_delta";
+
+	private static final String[] DELTA_COLUMNS = { SWE_DELTA, AET_SUM, CANOPY_DELTA, ROOTZONE_DELTA, RUNOFF_DELTA,
+			GROUND_DELTA };
 
 	private StateSeriesCalculator() {
 	}
 
-	public static List<StatePoint> computeDeltas(List<TimeseriesLoader.TimeValueRow> rows, StateColumns columns) {
-		List<StatePoint> out = new ArrayList<>();
+	/**
+	 * Per-step state changes; the result carries the columns
+	 * {@link #SWE_DELTA}, {@link #AET_SUM}, {@link #CANOPY_DELTA},
+	 * {@link #ROOTZONE_DELTA}, {@link #RUNOFF_DELTA} and {@link #GROUND_DELTA}.
+	 */
+	public static SeriesBlock computeDeltas(SeriesBlock rows, StateColumns columns) {
+		int n = rows.size();
+		double[] swe = columnOrNaN(rows, columns.swe());
+		double[] rootzoneAet = columnOrNaN(rows, columns.rootzoneAet());
+		double[] canopyAet = columnOrNaN(rows, columns.canopyAet());
+		double[] canopyFinal = columnOrNaN(rows, columns.canopyFinal());
+		double[] canopyInitial = columnOrNaN(rows, columns.canopyInitial());
+		double[] rootzoneFinal = columnOrNaN(rows, columns.rootzoneFinal());
+		double[] rootzoneInitial = columnOrNaN(rows, columns.rootzoneInitial());
+		double[] runoffFinal = columnOrNaN(rows, columns.runoffFinal());
+		double[] runoffInitial = columnOrNaN(rows, columns.runoffInitial());
+		double[] groundFinal = columnOrNaN(rows, columns.groundFinal());
+		double[] groundInitial = columnOrNaN(rows, columns.groundInitial());
+
+		SeriesBlock.Builder out = SeriesBlock.builder(n, DELTA_COLUMNS);
 		double previousSwe = Double.NaN;
-		for (TimeseriesLoader.TimeValueRow row : rows) {
-			double swe = value(row, columns.swe());
-			double sweDelta = Double.isFinite(previousSwe) && Double.isFinite(swe) ? swe - previousSwe : 0d;
-			if (Double.isFinite(swe)) {
-				previousSwe = swe;
+		for (int i = 0; i < n; i++) {
+			double sweDelta = Double.isFinite(previousSwe) && Double.isFinite(swe[i]) ? swe[i] - previousSwe : 0d;
+			if (Double.isFinite(swe[i])) {
+				previousSwe = swe[i];
 			}
-			out.add(new StatePoint(row.timestamp(), sweDelta,
-					value(row, columns.rootzoneAet()) + value(row, columns.canopyAet()),
-					value(row, columns.canopyFinal()) - value(row, columns.canopyInitial()),
-					value(row, columns.rootzoneFinal()) - value(row, columns.rootzoneInitial()),
-					value(row, columns.runoffFinal()) - value(row, columns.runoffInitial()),
-					value(row, columns.groundFinal()) - value(row, columns.groundInitial())));
+			out.addRow(rows.timestamp(i), sweDelta, rootzoneAet[i] + canopyAet[i], canopyFinal[i] - canopyInitial[i],
+					rootzoneFinal[i] - rootzoneInitial[i], runoffFinal[i] - runoffInitial[i],
+					groundFinal[i] - groundInitial[i]);
 		}
-		return out;
+		return out.build();
 	}
 
-	public static List<StatePoint> aggregate(List<StatePoint> points, String aggregation) {
-		if (points.isEmpty()) {
-			return List.of();
-		}
-		Map<Long, StatePoint> aggregated = new LinkedHashMap<>();
-		for (StatePoint p : points) {
-			long keyTs = bucketStart(p.timestamp(), aggregation);
-			StatePoint current = aggregated.get(keyTs);
-			if (current == null) {
-				aggregated.put(keyTs, new StatePoint(keyTs, p.sweDelta(), p.aetDelta(), p.canopyDelta(),
-						p.rootzoneDelta(), p.runoffDelta(), p.groundDelta()));
-			} else {
-				aggregated.put(keyTs,
-						new StatePoint(keyTs, current.sweDelta() + p.sweDelta(), current.aetDelta() + p.aetDelta(),
-								current.canopyDelta() + p.canopyDelta(), current.rootzoneDelta() + p.rootzoneDelta(),
-								current.runoffDelta() + p.runoffDelta(), current.groundDelta() + p.groundDelta()));
-			}
-		}
-		return new ArrayList<>(aggregated.values());
+	/**
+	 * Sums every column of the block into calendar buckets, see
+	 * {@link TimeBuckets}. Input rows must be sorted by timestamp.
+	 */
+	public static SeriesBlock aggregate(SeriesBlock points, String aggregation) {
+		return TimeBuckets.aggregate(points, aggregation, TimeBuckets.Statistic.SUM);
 	}
 
-	public static long bucketStart(long ts, String aggregation) {
-		Instant instant = Instant.ofEpochMilli(ts);
-		if ("1h".equalsIgnoreCase(aggregation)) {
-			return (ts / 3_600_000L) * 3_600_000L;
-		}
-		if ("12h".equalsIgnoreCase(aggregation)) {
-			return (ts / 43_200_000L) * 43_200_000L;
-		}
-		if ("24h".equalsIgnoreCase(aggregation)) {
-			return (ts / 86_400_000L) * 86_400_000L;
-		}
-		LocalDate date = instant.atZone(ZoneOffset.UTC).toLocalDate();
-		if ("settimana".equalsIgnoreCase(aggregation)) {
-			LocalDate monday = date.with(java.time.DayOfWeek.MONDAY);
-			return monday.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
-		}
-		if ("anno".equalsIgnoreCase(aggregation)) {
-			LocalDate firstYearDay = date.with(TemporalAdjusters.firstDayOfYear());
-			return firstYearDay.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
-		}
-		LocalDate firstMonthDay = date.with(TemporalAdjusters.firstDayOfMonth());
-		return firstMonthDay.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+	/**
+	 * The columns of {@link #computeDeltas} summed per bucket, in a form the
+	 * loader can push down to SQLite; see
+	 * {@link it.geoframe.blogpost.subbasins.explorer.io.TimeseriesLoader#loadBucketAggregates}.
+	 */
+	public static List<BucketAggregate> bucketAggregates(StateColumns columns) {
+		return List.of(BucketAggregate.stepDelta(SWE_DELTA, columns.swe()),
+				BucketAggregate.sum(AET_SUM, columns.rootzoneAet(), columns.canopyAet()),
+				BucketAggregate.difference(CANOPY_DELTA, columns.canopyFinal(), columns.canopyInitial()),
+				BucketAggregate.difference(ROOTZONE_DELTA, columns.rootzoneFinal(), columns.rootzoneInitial()),
+				BucketAggregate.difference(RUNOFF_DELTA, columns.runoffFinal(), columns.runoffInitial()),
+				BucketAggregate.difference(GROUND_DELTA, columns.groundFinal(), columns.groundInitial()));
 	}
 
-	private static double value(TimeseriesLoader.TimeValueRow row, String key) {
-		if (row == null || row.values() == null) {
-			return Double.NaN;
+	private static double[] columnOrNaN(SeriesBlock rows, String name) {
+		double[] column = rows.column(name);
+		if (column != null) {
+			return column;
 		}
-		Double v = row.values().get(key);
-		return v == null ? Double.NaN : v.doubleValue();
+		double[] missing = new double[rows.size()];
+		Arrays.fill(missing, Double.NaN);
+		return missing;
 	}
 }
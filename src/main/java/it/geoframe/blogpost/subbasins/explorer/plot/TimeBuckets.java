@@ -0,0 +1,191 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesBlock;
+
+/**
+ * Aggregation of a time series into calendar buckets (UTC): {@code 1h},
+ * {@code 12h}, {@code 24h}, {@code settimana} (weeks starting on Monday),
+ * {@code mese} and {@code anno}; any other name falls back to months.
+ *
+ * The bucket boundaries of the series span are computed once and the rows are
+ * walked with a moving bucket index, accumulating into primitive arrays, so
+ * nothing is allocated per row.
+ */
+public final class TimeBuckets {
+
+	public enum Statistic {
+		/** plain sum; a NaN makes the bucket NaN */
+		SUM,
+		/** mean of the finite values */
+		MEAN,
+		/** minimum of the finite values */
+		MIN,
+		/** maximum of the finite values */
+		MAX,
+		/** number of finite values */
+		COUNT
+	}
+
+	private static final long HOUR_MS = 3_600_000L;
+
+	private TimeBuckets() {
+	}
+
+	/**
+	 * Start of the bucket holding {@code ts}.
+	 */
+	public static long bucketStart(long ts, String aggregation) {
+		long width = fixedWidth(aggregation);
+		if (width > 0) {
+			return Math.floorDiv(ts, width) * width;
+		}
+		LocalDate date = Instant.ofEpochMilli(ts).atZone(ZoneOffset.UTC).toLocalDate();
+		if ("settimana".equalsIgnoreCase(aggregation)) {
+			return epochMillis(date.with(DayOfWeek.MONDAY));
+		}
+		if ("anno".equalsIgnoreCase(aggregation)) {
+			return epochMillis(date.with(TemporalAdjusters.firstDayOfYear()));
+		}
+		return epochMillis(date.with(TemporalAdjusters.firstDayOfMonth()));
+	}
+
+	/**
+	 * Consecutive bucket starts covering {@code [first, last]}, followed by
+	 * the end of the last bucket.
+	 */
+	public static long[] boundaries(long first, long last, String aggregation) {
+		long start = bucketStart(first, aggregation);
+		long width = fixedWidth(aggregation);
+		if (width > 0) {
+			int buckets = (int) ((last - start) / width) + 1;
+			long[] out = new long[buckets + 1];
+			for (int b = 0; b <= buckets; b++) {
+				out[b] = start + b * width;
+			}
+			return out;
+		}
+		long[] out = new long[16];
+		int size = 0;
+		LocalDate date = Instant.ofEpochMilli(start).atZone(ZoneOffset.UTC).toLocalDate();
+		long boundary = start;
+		while (true) {
+			if (size == out.length) {
+				out = Arrays.copyOf(out, size * 2);
+			}
+			out[size++] = boundary;
+			if (boundary > last) {
+				return Arrays.copyOf(out, size);
+			}
+			date = next(date, aggregation);
+			boundary = epochMillis(date);
+		}
+	}
+
+	/**
+	 * Aggregates every column of the block; only buckets holding rows are
+	 * returned, stamped with their start. Rows must be sorted by timestamp.
+	 */
+	public static SeriesBlock aggregate(SeriesBlock points, String aggregation, Statistic statistic) {
+		String[] names = points.columnNames().toArray(String[]::new);
+		if (points.isEmpty()) {
+			return SeriesBlock.empty(names);
+		}
+		long[] bounds = boundaries(points.firstTimestamp(), points.lastTimestamp(), aggregation);
+		int columnCount = points.columnCount();
+		double[][] columns = new double[columnCount][];
+		for (int c = 0; c < columnCount; c++) {
+			columns[c] = points.column(c);
+		}
+		SeriesBlock.Builder out = SeriesBlock.builder(bounds.length - 1, names);
+		double[] acc = new double[columnCount];
+		int[] counts = new int[columnCount];
+		reset(acc, counts, statistic);
+		int bucket = 0;
+		boolean filled = false;
+		for (int i = 0; i < points.size(); i++) {
+			long ts = points.timestamp(i);
+			if (ts >= bounds[bucket + 1]) {
+				if (filled) {
+					emit(out, bounds[bucket], acc, counts, statistic);
+					reset(acc, counts, statistic);
+					filled = false;
+				}
+				while (ts >= bounds[bucket + 1]) {
+					bucket++;
+				}
+			}
+			for (int c = 0; c < columnCount; c++) {
+				double v = columns[c][i];
+				if (statistic == Statistic.SUM) {
+					acc[c] += v;
+				} else if (!Double.isNaN(v)) {
+					counts[c]++;
+					switch (statistic) {
+					case MEAN -> acc[c] += v;
+					case MIN -> acc[c] = Math.min(acc[c], v);
+					case MAX -> acc[c] = Math.max(acc[c], v);
+					default -> {
+					}
+					}
+				}
+			}
+			filled = true;
+		}
+		emit(out, bounds[bucket], acc, counts, statistic);
+		return out.build();
+	}
+
+	private static void reset(double[] acc, int[] counts, Statistic statistic) {
+		Arrays.fill(acc, statistic == Statistic.MIN ? Double.POSITIVE_INFINITY
+				: statistic == Statistic.MAX ? Double.NEGATIVE_INFINITY : 0d);
+		Arrays.fill(counts, 0);
+	}
+
+	private static void emit(SeriesBlock.Builder out, long bucketStart, double[] acc, int[] counts,
+			Statistic statistic) {
+		out.add(bucketStart);
+		for (int c = 0; c < acc.length; c++) {
+			double value = switch (statistic) {
+			case SUM -> acc[c];
+			case COUNT -> counts[c];
+			case MEAN -> counts[c] == 0 ? Double.NaN : acc[c] / counts[c];
+			case MIN, MAX -> counts[c] == 0 ? Double.NaN : acc[c];
+			};
+			out.set(c, value);
+		}
+	}
+
+	private static long fixedWidth(String aggregation) {
+		if ("1h".equalsIgnoreCase(aggregation)) {
+			return HOUR_MS;
+		}
+		if ("12h".equalsIgnoreCase(aggregation)) {
+			return 12L * HOUR_MS;
+		}
+		if ("24h".equalsIgnoreCase(aggregation)) {
+			return 24L * HOUR_MS;
+		}
+		return 0L;
+	}
+
+	private static LocalDate next(LocalDate bucketStart, String aggregation) {
+		if ("settimana".equalsIgnoreCase(aggregation)) {
+			return bucketStart.plusWeeks(1);
+		}
+		if ("anno".equalsIgnoreCase(aggregation)) {
+			return bucketStart.plusYears(1);
+		}
+		return bucketStart.plusMonths(1);
+	}
+
+	private static long epochMillis(LocalDate date) {
+		return date.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+}
@@ -8,25 +8,32 @@ import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneOffset;
-import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
@@ -41,6 +48,9 @@ import javax.swing.JSplitPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.WindowConstants;
 
 import org.jfree.chart.ChartFactory;
@@ -49,15 +59,20 @@ import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.StackedXYAreaRenderer2;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.data.time.Millisecond;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
-import org.jfree.data.time.TimeSeriesDataItem;
-import org.jfree.data.time.TimeTableXYDataset;
-
+import org.jfree.data.Range;
+
+import it.geoframe.blogpost.subbasins.explorer.io.AsyncTimeseriesLoader;
+import it.geoframe.blogpost.subbasins.explorer.io.BucketAggregate;
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesBlock;
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesCache;
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesCursor;
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesPyramid;
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesQualityScan;
+import it.geoframe.blogpost.subbasins.explorer.io.SqliteConnectionPool;
+import it.geoframe.blogpost.subbasins.explorer.io.TimeRange;
+import it.geoframe.blogpost.subbasins.explorer.io.TimeRangeSet;
 import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesLoader;
 import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesRepository.TableColumnDetail;
-import it.geoframe.blogpost.subbasins.explorer.plot.StateSeriesCalculator.StatePoint;
 import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectMode;
@@ -65,8 +80,16 @@ import it.geoframe.blogpost.subbasins.explorer.services.ProjectMode;
 public final class TimeseriesWindow {
 	private static final String DATE_FMT = "yyyy-MM-dd";
 	private static final String CONSOLE_PROMPT = "$ ";
+	private static final long DAY_MS = 24L * 60L * 60L * 1000L;
+	private static final String CHART_CHANNEL = "chart";
+	private static final String CONSOLE_CHANNEL = "console";
+	private static final String FOLLOW_CHANNEL = "follow";
+	private static final String PREFETCH_CHANNEL = "prefetch";
+	private static final String DISCHARGE_CHANNEL = "discharge";
+	private static final String METRICS_CHANNEL = "metrics";
 	private final ProjectConfig config;
 	private final TimeseriesLoader loader;
+	private final AsyncTimeseriesLoader asyncLoader;
 	private final Supplier<List<String>> tableSupplier;
 	private final Supplier<List<String>> basinSupplier;
 	private final BooleanSupplier streamGaugeSelectionSupplier;
@@ -75,10 +98,12 @@ public final class TimeseriesWindow {
 	private final JComboBox<String> basinCombo;
 	private final JComboBox<String> streamGaugeCombo;
 	private final JComboBox<String> stateAggregationCombo;
+	private final JComboBox<String> fluxesAggregationCombo;
 	private final JList<String> seriesList;
 	private final JTextArea messageArea;
 	private JTextArea consoleHistoryArea;
-	private final TimeSeriesCollection dataset;
+	private final ChartSeriesDataset dataset;
+	private BlockTableDataset stateDataset;
 	private String activeType;
 	private String baseSeriesKey;
 	private final XYLineAndShapeRenderer renderer;
@@ -89,12 +114,125 @@ public final class TimeseriesWindow {
 	private final ChartPanel chartPanel;
 	private int consoleInputStart = 0;
 	private String streamGaugePrefix;
+	private final Map<ChartSeries, WindowedSeries> windowedSeries = new IdentityHashMap<>();
+	/** numbers the load channels of the discharge series */
+	private int dischargeLoads;
+	private final Timer windowFetchTimer;
+	private final Timer followTimer;
+	private final Map<String, Long> followStamps = new ConcurrentHashMap<>();
+	private boolean followPolling;
+	private boolean reloadingCombos;
+	private LoadedRows stateRows;
+	private LoadedRows fluxesRows;
+	/** table and basin last loaded by each view, "table|basin" by view */
+	private final Map<String, String> viewSelections = new HashMap<>();
+	/** table and basin whose rows {@link #prefetchRows} is reading, by view */
+	private final Map<String, String> prefetching = new HashMap<>();
+
+	/**
+	 * Rows of the state or fluxes view for one table and basin, kept while the
+	 * input is unchanged ({@code stamp}, see
+	 * {@link TimeseriesLoader#inputStamp(ProjectConfig, String)}) so that a
+	 * new aggregation or a redraw does not read the table again. For the state
+	 * view these are the hourly sums of the deltas, from which every coarser
+	 * aggregation is summed.
+	 */
+	private record LoadedRows(String table, String basinId, long stamp, SeriesBlock rows) {
+
+		private boolean matches(String otherTable, String otherBasin, long otherStamp) {
+			return table.equals(otherTable) && basinId.equals(otherBasin) && stamp == otherStamp;
+		}
+	}
+
+	/**
+	 * Result of a state or fluxes load; {@code rows} is null when SQLite
+	 * computed the buckets and no row was read.
+	 */
+	private record AggregatedLoad(LoadedRows rows, SeriesBlock aggregated) {
+
+		private boolean pushedDown() {
+			return rows == null;
+		}
+	}
+
+	/**
+	 * A discharge series read by time window: where it comes from, its full
+	 * extent and the windows already fetched into the chart. While the chart
+	 * series is an overview ({@link ChartSeries#isOverview()}) it holds a
+	 * min/max summary of the visible range instead of the raw rows, and
+	 * nothing is fetched into it. Its reads go through {@code channel}, so
+	 * a newer window or overview read cancels the previous one.
+	 */
+	private static final class WindowedSeries {
+		private final String table;
+		private final String basinId;
+		private final boolean gauge;
+		private final String channel;
+		private TimeRange extent;
+		private final TimeRangeSet fetched = new TimeRangeSet();
+		/** gaps of the window read in progress and the generation that started it */
+		private final TimeRangeSet reading = new TimeRangeSet();
+		private int readingGeneration;
+		private double rowsPerMs;
+		private int generation;
+
+		private WindowedSeries(String table, String basinId, boolean gauge, String channel, TimeRange extent) {
+			this.table = table;
+			this.basinId = basinId;
+			this.gauge = gauge;
+			this.channel = channel;
+			this.extent = extent;
+		}
+	}
+
+	/** Result of the first read of a discharge series. */
+	private record DischargeLoad(SeriesQualityScan.BasinQuality quality, TimeRange extent, TimeRange window,
+			long count) {
+	}
+
+	/**
+	 * Hands the chunks of a read running on the I/O executor to the EDT,
+	 * coalescing the chunks that arrive before the EDT gets to them, as
+	 * {@code SwingWorker.publish} does.
+	 */
+	private static final class ChunkRelay implements Consumer<SeriesBlock> {
+		private final List<SeriesBlock> pending = new ArrayList<>();
+		private final Consumer<List<SeriesBlock>> onEdt;
+
+		private ChunkRelay(Consumer<List<SeriesBlock>> onEdt) {
+			this.onEdt = onEdt;
+		}
+
+		@Override
+		public void accept(SeriesBlock chunk) {
+			boolean schedule;
+			synchronized (pending) {
+				schedule = pending.isEmpty();
+				pending.add(chunk);
+			}
+			if (schedule) {
+				SwingUtilities.invokeLater(this::flush);
+			}
+		}
+
+		private void flush() {
+			List<SeriesBlock> chunks;
+			synchronized (pending) {
+				chunks = new ArrayList<>(pending);
+				pending.clear();
+			}
+			if (!chunks.isEmpty()) {
+				onEdt.accept(chunks);
+			}
+		}
+	}
 
 	public TimeseriesWindow(Component parent, ProjectConfig config, TimeseriesLoader loader,
 			Supplier<List<String>> tableSupplier, Supplier<List<String>> basinSupplier,
 			BooleanSupplier streamGaugeSelectionSupplier) {
 		this.config = config;
 		this.loader = loader;
+		this.asyncLoader = new AsyncTimeseriesLoader(loader);
 		this.tableSupplier = tableSupplier;
 		this.basinSupplier = basinSupplier;
 		this.streamGaugeSelectionSupplier = streamGaugeSelectionSupplier;
@@ -103,7 +241,7 @@ public final class TimeseriesWindow {
 		dialog.setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
 		dialog.setTitle("Vista grafico");
 		dialog.setLayout(new BorderLayout(8, 8));
-		dataset = new TimeSeriesCollection();
+		dataset = new ChartSeriesDataset();
 		JFreeChart chart = ChartFactory.createTimeSeriesChart("Timeseries", "Tempo", "Valore", dataset, true, true,
 				false);
 		plot = chart.getXYPlot();
@@ -112,6 +250,10 @@ public final class TimeseriesWindow {
 		plot.setRenderer(renderer);
 		plot.setDomainPannable(true);
 		plot.setRangePannable(true);
+		windowFetchTimer = new Timer(250, e -> fetchVisibleWindows());
+		windowFetchTimer.setRepeats(false);
+		plot.getDomainAxis().addChangeListener(e -> windowFetchTimer.restart());
+		followTimer = new Timer(ExplorerConfig.followPollSeconds() * 1000, e -> pollFollowedSeries());
 
 		JPanel controlsPanel = new JPanel(new GridBagLayout());
 		GridBagConstraints gbc = new GridBagConstraints();
@@ -130,6 +272,20 @@ public final class TimeseriesWindow {
 				addSelectedSeriesFromSimulationCombo();
 			}
 		});
+		fluxesAggregationCombo = new JComboBox<>(ExplorerConfig.stateAggregationOptions());
+		fluxesAggregationCombo.setSelectedItem(ExplorerConfig.fluxesAggregationDefault());
+		fluxesAggregationCombo.addActionListener(e -> {
+			if ("fluxes".equalsIgnoreCase(activeType)) {
+				addSelectedSeriesFromSimulationCombo();
+			}
+		});
+		// state and fluxes follow the selected basin; loads superseded while
+		// scrolling the combo are cancelled by the async loader
+		basinCombo.addActionListener(e -> {
+			if (!reloadingCombos && ("state".equalsIgnoreCase(activeType) || "fluxes".equalsIgnoreCase(activeType))) {
+				addSelectedSeriesFromSimulationCombo();
+			}
+		});
 		seriesList = new JList<>(new DefaultListModel<>());
 		seriesList.setVisibleRowCount(6);
 		seriesList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -223,6 +379,14 @@ public final class TimeseriesWindow {
 		chartPanel = new ChartPanel(chart);
 		chartPanel.setMouseWheelEnabled(true);
 		chartPanel.setMouseZoomable(true, false);
+		// axis changes, auto-range after new rows included, end up here
+		plot.addChangeListener(e -> updateDecimation());
+		chartPanel.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				updateDecimation();
+			}
+		});
 		JSplitPane chartWithConsoleSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT, chartPanel, commandPanel);
 		chartWithConsoleSplit.setResizeWeight(0.67);
 		chartWithConsoleSplit.setContinuousLayout(true);
@@ -239,16 +403,23 @@ public final class TimeseriesWindow {
 	public void showForSelection(String subbasinId, String firstTable, String type) {
 		this.activeType = type == null ? "discharge" : type;
 		dataset.removeAllSeries();
+		clearWindowedSeries();
 		baseSeriesKey = null;
 		reloadSeriesList();
-		reloadCombos();
-		showModeControls();
-		if (subbasinId != null) {
-			basinCombo.setSelectedItem(subbasinId);
-		}
-		if (firstTable != null) {
-			simulationTableCombo.setSelectedItem(firstTable);
+		reloadingCombos = true;
+		try {
+			reloadCombos();
+			showModeControls();
+			if (subbasinId != null) {
+				basinCombo.setSelectedItem(subbasinId);
+			}
+			if (firstTable != null) {
+				simulationTableCombo.setSelectedItem(firstTable);
+			}
+		} finally {
+			reloadingCombos = false;
 		}
+		stateDataset = null;
 		plot.setDataset(dataset);
 		plot.setRenderer(renderer);
 		dialog.setTitle("Vista " + activeType);
@@ -296,8 +467,16 @@ public final class TimeseriesWindow {
 	}
 
 	private JPanel buildFluxesControls() {
-		JPanel panel = new JPanel(new BorderLayout());
-		panel.add(new JLabel("Fluxes: serie fisse senza controlli aggiuntivi."), BorderLayout.CENTER);
+		JPanel panel = new JPanel(new GridBagLayout());
+		GridBagConstraints gbc = new GridBagConstraints();
+		gbc.insets = new Insets(2, 0, 2, 0);
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.weightx = 1;
+		gbc.gridx = 0;
+		gbc.gridy = 0;
+		panel.add(new JLabel("Aggregazione fluxes (media):"), gbc);
+		gbc.gridy++;
+		panel.add(fluxesAggregationCombo, gbc);
 		return panel;
 	}
 
@@ -310,17 +489,16 @@ public final class TimeseriesWindow {
 	}
 
 	private void reloadCombos() {
+		simulationTableCombo.removeAllItems();
+		for (String table : filterSimulationTables(tableSupplier.get())) {
+			simulationTableCombo.addItem(table);
+		}
+		basinCombo.removeAllItems();
+		for (String id : basinSupplier.get()) {
+			basinCombo.addItem(id);
+		}
+		streamGaugeCombo.removeAllItems();
 		if (config.mode() == ProjectMode.GEOPACKAGE) {
-			simulationTableCombo.removeAllItems();
-			for (String table : filterSimulationTables(tableSupplier.get())) {
-				simulationTableCombo.addItem(table);
-			}
-			basinCombo.removeAllItems();
-			for (String id : basinSupplier.get()) {
-				basinCombo.addItem(id);
-			}
-			streamGaugeCombo.removeAllItems();
-
 			for (String table : filterStreamGaugeTables(tableSupplier.get())) {
 				streamGaugeCombo.addItem(table);
 			}
@@ -405,21 +583,6 @@ public final class TimeseriesWindow {
 			appendLog("Seleziona tabella e sottobacino.");
 			return;
 		}
-		dataset.removeAllSeries();
-		baseSeriesKey = null;
-		List<TimeseriesLoader.TimeValueRow> rows = loader.loadRowsFromAnyInput(config, table, basinId,
-				cfg("charts.fluxes.columns.melting_discharge", "melting_discharge"),
-				cfg("charts.fluxes.columns.canopy_throughfall", "canopy_throughfall"),
-				cfg("charts.fluxes.columns.canopy_aet", "canopy_aet"),
-				cfg("charts.fluxes.columns.rootzone_aet", "rootzone_aet"),
-				cfg("charts.fluxes.columns.root_zone_recharge", "root_zone_recharge"),
-				cfg("charts.fluxes.columns.ground_discharge", "ground_discharge"),
-				cfg("charts.fluxes.columns.runoff_discharge", "runoff_discharge"),
-				cfg("charts.fluxes.columns.rootzone_quick", "rootzone_quick"));
-		if (rows.isEmpty()) {
-			appendLog("Nessun dato fluxes trovato in " + table + " per basin " + basinId + ".");
-			return;
-		}
 		String meltCol = cfg("charts.fluxes.columns.melting_discharge", "melting_discharge");
 		String throughCol = cfg("charts.fluxes.columns.canopy_throughfall", "canopy_throughfall");
 		String canopyAetCol = cfg("charts.fluxes.columns.canopy_aet", "canopy_aet");
@@ -428,22 +591,66 @@ public final class TimeseriesWindow {
 		String groundCol = cfg("charts.fluxes.columns.ground_discharge", "ground_discharge");
 		String runoffCol = cfg("charts.fluxes.columns.runoff_discharge", "runoff_discharge");
 		String quickCol = cfg("charts.fluxes.columns.rootzone_quick", "rootzone_quick");
-		addLineSeries(rows, meltCol, cfg("charts.fluxes.labels.melting_discharge", "melting_discharg"),
-				cfgColor("charts.fluxes.colors.melting_discharge", "#75C4FF"));
-		addLineSeries(rows, throughCol, cfg("charts.fluxes.labels.canopy_throughfall", "canopy_throughfall"),
-				cfgColor("charts.fluxes.colors.canopy_throughfall", "#22C55E"));
-		addSummedLineSeries(rows, cfg("charts.fluxes.labels.aet_sum", "canopy_aet + rootzone_aet"),
-				new String[] { canopyAetCol, rootAetCol }, cfgColor("charts.fluxes.colors.aet_sum", "#F97316"));
-		addLineSeries(rows, rechargeCol, cfg("charts.fluxes.labels.root_zone_recharge", "root_zone_recharge"),
-				cfgColor("charts.fluxes.colors.root_zone_recharge", "#784820"));
-		addLineSeries(rows, groundCol, cfg("charts.fluxes.labels.ground_discharge", "ground_discharge"),
-				cfgColor("charts.fluxes.colors.ground_discharge", "#808080"));
-		addLineSeries(rows, runoffCol, cfg("charts.fluxes.labels.runoff_discharge", "runoff_discharge"),
-				cfgColor("charts.fluxes.colors.runoff_discharge", "#0000FF"));
-		addLineSeries(rows, quickCol, cfg("charts.fluxes.labels.rootzone_quick", "rootzone_quick"),
-				cfgColor("charts.fluxes.colors.rootzone_quick", "#4F46E5"));
-		reloadSeriesList();
-		appendLog("Caricate serie fluxes da " + table + " | basin " + basinId + " | punti: " + rows.size());
+		String[] columns = { meltCol, throughCol, canopyAetCol, rootAetCol, rechargeCol, groundCol, runoffCol,
+				quickCol };
+		String aggregation = (String) fluxesAggregationCombo.getSelectedItem();
+		LoadedRows cached = fluxesRows;
+		onEdt(asyncLoader.submit(CHART_CHANNEL, l -> {
+			long stamp = l.inputStamp(config, table);
+			LoadedRows loaded = cached;
+			if (loaded == null || !loaded.matches(table, basinId, stamp)) {
+				if (!"1h".equalsIgnoreCase(aggregation)) {
+					List<BucketAggregate> means = Stream.of(columns).map(c -> BucketAggregate.mean(c, c)).toList();
+					Optional<SeriesBlock> pushed = l.loadBucketAggregates(config, table, basinId, aggregation, means);
+					if (pushed.isPresent()) {
+						return new AggregatedLoad(null, pushed.get());
+					}
+				}
+				loaded = new LoadedRows(table, basinId, stamp, l.loadRowsFromAnyInput(config, table, basinId, columns));
+			}
+			return new AggregatedLoad(loaded,
+					TimeBuckets.aggregate(loaded.rows(), aggregation, TimeBuckets.Statistic.MEAN));
+		}), load -> {
+			viewSelections.put("fluxes", table + "|" + basinId);
+			if (load.pushedDown()) {
+				prefetchRows("fluxes", table, basinId, l -> new LoadedRows(table, basinId,
+						l.inputStamp(config, table), l.loadRowsFromAnyInput(config, table, basinId, columns)),
+						rows -> fluxesRows = rows);
+			} else if (!load.rows().rows().isEmpty()) {
+				fluxesRows = load.rows();
+			}
+			SeriesBlock rows = load.aggregated();
+			if (!"fluxes".equalsIgnoreCase(activeType)) {
+				return;
+			}
+			if (rows.isEmpty()) {
+				appendLog("Nessun dato fluxes trovato in " + table + " per basin " + basinId + ".");
+				return;
+			}
+			dataset.removeAllSeries();
+			clearWindowedSeries();
+			baseSeriesKey = null;
+			addLineSeries(rows, meltCol, cfg("charts.fluxes.labels.melting_discharge", "melting_discharg"),
+					cfgColor("charts.fluxes.colors.melting_discharge", "#75C4FF"));
+			addLineSeries(rows, throughCol,
+					cfg("charts.fluxes.labels.canopy_throughfall", "canopy_throughfall"),
+					cfgColor("charts.fluxes.colors.canopy_throughfall", "#22C55E"));
+			addSummedLineSeries(rows, cfg("charts.fluxes.labels.aet_sum", "canopy_aet + rootzone_aet"),
+					new String[] { canopyAetCol, rootAetCol },
+					cfgColor("charts.fluxes.colors.aet_sum", "#F97316"));
+			addLineSeries(rows, rechargeCol,
+					cfg("charts.fluxes.labels.root_zone_recharge", "root_zone_recharge"),
+					cfgColor("charts.fluxes.colors.root_zone_recharge", "#784820"));
+			addLineSeries(rows, groundCol, cfg("charts.fluxes.labels.ground_discharge", "ground_discharge"),
+					cfgColor("charts.fluxes.colors.ground_discharge", "#808080"));
+			addLineSeries(rows, runoffCol, cfg("charts.fluxes.labels.runoff_discharge", "runoff_discharge"),
+					cfgColor("charts.fluxes.colors.runoff_discharge", "#0000FF"));
+			addLineSeries(rows, quickCol, cfg("charts.fluxes.labels.rootzone_quick", "rootzone_quick"),
+					cfgColor("charts.fluxes.colors.rootzone_quick", "#4F46E5"));
+			reloadSeriesList();
+			appendLog("Caricate serie fluxes da " + table + " | basin " + basinId + " | aggregazione: " + aggregation
+					+ (load.pushedDown() ? " (SQLite)" : "") + " | punti: " + rows.size());
+		});
 	}
 
 	private void addStateSeries(String table) {
@@ -452,21 +659,6 @@ public final class TimeseriesWindow {
 			appendLog("Seleziona tabella e sottobacino.");
 			return;
 		}
-		List<TimeseriesLoader.TimeValueRow> rows = loader.loadRowsFromAnyInput(config, table, basinId,
-				cfg("charts.state.columns.swe", "swe"), cfg("charts.state.columns.rootzone_aet", "rootzone_aet"),
-				cfg("charts.state.columns.canopy_aet", "canopy_aet"),
-				cfg("charts.state.columns.canopy_final", "canopy_final"),
-				cfg("charts.state.columns.canopy_initial", "canopy_initial"),
-				cfg("charts.state.columns.rootzone_final", "rootzone_final"),
-				cfg("charts.state.columns.rootzone_initial", "rootzone_initial"),
-				cfg("charts.state.columns.runoff_final", "runoff_final"),
-				cfg("charts.state.columns.runoff_initial", "runoff_initial"),
-				cfg("charts.state.columns.ground_final", "ground_final"),
-				cfg("charts.state.columns.ground_initial", "ground_initial"));
-		if (rows.isEmpty()) {
-			appendLog("Nessun dato state trovato in " + table + " per basin " + basinId + ".");
-			return;
-		}
 		StateSeriesCalculator.StateColumns stateColumns = new StateSeriesCalculator.StateColumns(
 				cfg("charts.state.columns.swe", "swe"), cfg("charts.state.columns.rootzone_aet", "rootzone_aet"),
 				cfg("charts.state.columns.canopy_aet", "canopy_aet"),
@@ -478,24 +670,96 @@ public final class TimeseriesWindow {
 				cfg("charts.state.columns.runoff_initial", "runoff_initial"),
 				cfg("charts.state.columns.ground_final", "ground_final"),
 				cfg("charts.state.columns.ground_initial", "ground_initial"));
-		List<StateSeriesCalculator.StatePoint> deltas = StateSeriesCalculator.computeDeltas(rows, stateColumns);
-		List<StateSeriesCalculator.StatePoint> aggregated = StateSeriesCalculator.aggregate(deltas,
-				(String) stateAggregationCombo.getSelectedItem());
-		TimeTableXYDataset stateDataset = new TimeTableXYDataset();
-		for (StateSeriesCalculator.StatePoint row : aggregated) {
-			Date date = new Date(row.timestamp());
-			stateDataset.add(new Millisecond(date), row.sweDelta(), cfg("charts.state.labels.swe", "swe"));
-			stateDataset.add(new Millisecond(date), row.aetDelta(),
-					cfg("charts.state.labels.aet_sum", "rootzone_aet + canopy_aet"));
-			stateDataset.add(new Millisecond(date), row.canopyDelta(),
-					cfg("charts.state.labels.canopy_delta", "canopy_final - canopy_initial"));
-			stateDataset.add(new Millisecond(date), row.rootzoneDelta(),
-					cfg("charts.state.labels.rootzone_delta", "rootzone_final - rootzone_initial"));
-			stateDataset.add(new Millisecond(date), row.runoffDelta(),
-					cfg("charts.state.labels.runoff_delta", "runoff_final - runoff_initial"));
-			stateDataset.add(new Millisecond(date), row.groundDelta(),
-					cfg("charts.state.labels.ground_delta", "ground_final - ground_initial"));
+		String aggregation = (String) stateAggregationCombo.getSelectedItem();
+		LoadedRows cached = stateRows;
+		// deltas and aggregation are computed on the I/O thread as well; with
+		// the hourly sums at hand only the aggregation is redone
+		onEdt(asyncLoader.submit(CHART_CHANNEL, l -> {
+			long stamp = l.inputStamp(config, table);
+			LoadedRows hourly = cached;
+			if (hourly == null || !hourly.matches(table, basinId, stamp)) {
+				if (!"1h".equalsIgnoreCase(aggregation)) {
+					Optional<SeriesBlock> pushed = l.loadBucketAggregates(config, table, basinId, aggregation,
+							StateSeriesCalculator.bucketAggregates(stateColumns));
+					if (pushed.isPresent()) {
+						return new AggregatedLoad(null, pushed.get());
+					}
+				}
+				hourly = loadHourlyState(l, table, basinId, stamp, stateColumns);
+			}
+			SeriesBlock aggregated = hourly.rows().isEmpty() || "1h".equalsIgnoreCase(aggregation) ? hourly.rows()
+					: StateSeriesCalculator.aggregate(hourly.rows(), aggregation);
+			return new AggregatedLoad(hourly, aggregated);
+		}), load -> {
+			viewSelections.put("state", table + "|" + basinId);
+			if (load.pushedDown()) {
+				prefetchRows("state", table, basinId,
+						l -> loadHourlyState(l, table, basinId, l.inputStamp(config, table), stateColumns),
+						rows -> stateRows = rows);
+			} else if (!load.rows().rows().isEmpty()) {
+				stateRows = load.rows();
+			}
+			SeriesBlock aggregated = load.aggregated();
+			if (!"state".equalsIgnoreCase(activeType)) {
+				return;
+			}
+			if (aggregated.isEmpty()) {
+				appendLog("Nessun dato state trovato in " + table + " per basin " + basinId + ".");
+				return;
+			}
+			showStateDataset(aggregated);
+			appendLog("Caricate serie state impilate da " + table + " | basin " + basinId + " | aggregazione: "
+					+ aggregation + (load.pushedDown() ? " (SQLite)" : "") + " | punti: " + aggregated.size());
+		});
+	}
+
+	/**
+	 * Hourly sums of the state deltas of one basin, from which every coarser
+	 * aggregation is summed.
+	 */
+	private LoadedRows loadHourlyState(TimeseriesLoader l, String table, String basinId, long stamp,
+			StateSeriesCalculator.StateColumns stateColumns) {
+		SeriesBlock rows = l.loadRowsFromAnyInput(config, table, basinId, stateColumns.swe(),
+				stateColumns.rootzoneAet(), stateColumns.canopyAet(), stateColumns.canopyFinal(),
+				stateColumns.canopyInitial(), stateColumns.rootzoneFinal(), stateColumns.rootzoneInitial(),
+				stateColumns.runoffFinal(), stateColumns.runoffInitial(), stateColumns.groundFinal(),
+				stateColumns.groundInitial());
+		return new LoadedRows(table, basinId, stamp, rows.isEmpty() ? rows
+				: StateSeriesCalculator.aggregate(StateSeriesCalculator.computeDeltas(rows, stateColumns), "1h"));
+	}
+
+	/**
+	 * After a view was first drawn from buckets computed by SQLite, reads its
+	 * rows in the background and hands them to {@code keep}, so that choosing
+	 * another aggregation is served from memory. One read per view at a time,
+	 * on a channel of its own; a read for another table or basin replaces it,
+	 * and rows for a selection the view no longer shows are dropped.
+	 */
+	private void prefetchRows(String view, String table, String basinId, Function<TimeseriesLoader, LoadedRows> read,
+			Consumer<LoadedRows> keep) {
+		String selection = table + "|" + basinId;
+		if (selection.equals(prefetching.get(view))) {
+			return;
 		}
+		prefetching.put(view, selection);
+		asyncLoader.submit(PREFETCH_CHANNEL + "|" + view, read)
+				.whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> {
+					prefetching.remove(view, selection);
+					if (error == null && !rows.rows().isEmpty() && selection.equals(viewSelections.get(view))) {
+						keep.accept(rows);
+					}
+				}));
+	}
+
+	private void showStateDataset(SeriesBlock aggregated) {
+		String[] labels = { cfg("charts.state.labels.swe", "swe"),
+				cfg("charts.state.labels.aet_sum", "rootzone_aet + canopy_aet"),
+				cfg("charts.state.labels.canopy_delta", "canopy_final - canopy_initial"),
+				cfg("charts.state.labels.rootzone_delta", "rootzone_final - rootzone_initial"),
+				cfg("charts.state.labels.runoff_delta", "runoff_final - runoff_initial"),
+				cfg("charts.state.labels.ground_delta", "ground_final - ground_initial") };
+		stateDataset = new BlockTableDataset(aggregated, labels);
+		stateDataset.setView(plot.getDomainAxis().getRange(), plotWidthPixels());
 		plot.setDataset(stateDataset);
 		plot.setRenderer(stackedRenderer);
 		stackedRenderer.setSeriesPaint(0, cfgColor("charts.state.colors.swe", "#808080"));
@@ -505,9 +769,27 @@ public final class TimeseriesWindow {
 		stackedRenderer.setSeriesPaint(4, cfgColor("charts.state.colors.runoff_delta", "#0000FF"));
 		stackedRenderer.setSeriesPaint(5, cfgColor("charts.state.colors.ground_delta", "#7D7D7D"));
 		dataset.removeAllSeries();
+		clearWindowedSeries();
 		reloadSeriesList();
-		appendLog("Caricate serie state impilate da " + table + " | basin " + basinId + " | aggregazione: "
-				+ stateAggregationCombo.getSelectedItem() + " | punti: " + aggregated.size());
+	}
+
+	/**
+	 * Delivers the result of an async load on the EDT; cancelled (superseded)
+	 * loads are dropped silently.
+	 */
+	private <T> void onEdt(CompletableFuture<T> future, Consumer<T> onResult) {
+		future.whenComplete((value, error) -> SwingUtilities.invokeLater(() -> {
+			if (future.isCancelled()) {
+				return;
+			}
+			if (error != null) {
+				Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+						: error;
+				appendLog("Errore caricamento: " + cause.getMessage());
+				return;
+			}
+			onResult.accept(value);
+		}));
 	}
 
 	private String cfg(String key, String defaultValue) {
@@ -523,93 +805,31 @@ public final class TimeseriesWindow {
 		}
 	}
 
-	private List<StatePoint> aggregateStatePoints(List<StatePoint> points, String aggregation) {
-		if (points.isEmpty()) {
-			return List.of();
-		}
-		Map<Long, StatePoint> aggregated = new LinkedHashMap<>();
-		for (StatePoint p : points) {
-			long keyTs = bucketStart(p.timestamp(), aggregation);
-			StatePoint current = aggregated.get(keyTs);
-			if (current == null) {
-				aggregated.put(keyTs, new StatePoint(keyTs, p.sweDelta(), p.aetDelta(), p.canopyDelta(),
-						p.rootzoneDelta(), p.runoffDelta(), p.groundDelta()));
-			} else {
-				aggregated.put(keyTs,
-						new StatePoint(keyTs, current.sweDelta() + p.sweDelta(), current.aetDelta() + p.aetDelta(),
-								current.canopyDelta() + p.canopyDelta(), current.rootzoneDelta() + p.rootzoneDelta(),
-								current.runoffDelta() + p.runoffDelta(), current.groundDelta() + p.groundDelta()));
-			}
-		}
-		return new ArrayList<>(aggregated.values());
-	}
-
-	private long bucketStart(long ts, String aggregation) {
-		Instant instant = Instant.ofEpochMilli(ts);
-		if ("1h".equalsIgnoreCase(aggregation)) {
-			return (ts / 3_600_000L) * 3_600_000L;
-		}
-		if ("12h".equalsIgnoreCase(aggregation)) {
-			return (ts / 43_200_000L) * 43_200_000L;
-		}
-		if ("24h".equalsIgnoreCase(aggregation)) {
-			return (ts / 86_400_000L) * 86_400_000L;
-		}
-		LocalDate date = instant.atZone(ZoneOffset.UTC).toLocalDate();
-		if ("settimana".equalsIgnoreCase(aggregation)) {
-			LocalDate monday = date.with(java.time.DayOfWeek.MONDAY);
-			return monday.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
-		}
-		if ("anno".equalsIgnoreCase(aggregation)) {
-			LocalDate firstYearDay = date.with(TemporalAdjusters.firstDayOfYear());
-			return firstYearDay.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
-		}
-		LocalDate firstMonthDay = date.with(TemporalAdjusters.firstDayOfMonth());
-		return firstMonthDay.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
-	}
-
-	private void addLineSeries(List<TimeseriesLoader.TimeValueRow> rows, String key, String label, Color color) {
-		TimeSeries series = new TimeSeries(label);
-		for (TimeseriesLoader.TimeValueRow row : rows) {
-			double v = value(row, key);
-			if (Double.isFinite(v)) {
-				series.addOrUpdate(new Millisecond(new Date(row.timestamp())), v);
-			}
-		}
+	private void addLineSeries(SeriesBlock rows, String key, String label, Color color) {
+		ChartSeries series = new ChartSeries(label);
+		series.addAll(rows, rows.columnIndex(key));
 		dataset.addSeries(series);
 		renderer.setSeriesPaint(dataset.getSeriesCount() - 1, color);
 	}
 
-	private void addSummedLineSeries(List<TimeseriesLoader.TimeValueRow> rows, String label, String[] keys,
-			Color color) {
-		TimeSeries series = new TimeSeries(label);
-		for (TimeseriesLoader.TimeValueRow row : rows) {
-			double sum = 0d;
-			boolean valid = true;
-			for (String key : keys) {
-				double v = value(row, key);
-				if (!Double.isFinite(v)) {
-					valid = false;
-					break;
-				}
-				sum += v;
-			}
-			if (valid) {
-				series.addOrUpdate(new Millisecond(new Date(row.timestamp())), sum);
+	private void addSummedLineSeries(SeriesBlock rows, String label, String[] keys, Color color) {
+		int[] columns = new int[keys.length];
+		for (int k = 0; k < keys.length; k++) {
+			columns[k] = rows.columnIndex(keys[k]);
+		}
+		// a row with a missing term stays NaN and is skipped by the series
+		double[] sums = new double[rows.size()];
+		for (int column : columns) {
+			for (int i = 0; i < sums.length; i++) {
+				sums[i] += column < 0 ? Double.NaN : rows.value(column, i);
 			}
 		}
+		ChartSeries series = new ChartSeries(label);
+		series.addAll(rows.timestamps(), sums, sums.length);
 		dataset.addSeries(series);
 		renderer.setSeriesPaint(dataset.getSeriesCount() - 1, color);
 	}
 
-	private double value(TimeseriesLoader.TimeValueRow row, String key) {
-		if (row == null || row.values() == null) {
-			return Double.NaN;
-		}
-		Double v = row.values().get(key);
-		return v == null ? Double.NaN : v.doubleValue();
-	}
-
 	private void addSelectedSeriesFromGaugeCombo() {
 		if (config.mode() != ProjectMode.GEOPACKAGE) {
 			appendLog("Stream gauge non disponibile per la selezione corrente.");
@@ -626,16 +846,350 @@ public final class TimeseriesWindow {
 			return;
 		}
 		String labelPrefix = isGaugeSeries ? streamGaugePrefix : table;
-		TimeSeries series = new TimeSeries(labelPrefix + " | basin " + basinId);
-		int count = loader.fillSeriesFromAnyInput(config, table, basinId, series, isGaugeSeries);
-		if (count <= 0) {
-			appendLog("Nessun dato trovato per tabella " + table + " e basin " + basinId + ".");
-			return;
-		}
+		ChartSeries series = new ChartSeries(labelPrefix + " | basin " + basinId);
+		TimeRange visible = dataset.getSeriesCount() > 0 && !plot.getDomainAxis().isAutoRange() ? visibleDomainRange()
+				: null;
 		dataset.addSeries(series);
 		applySeriesStyles();
 		reloadSeriesList();
-		appendLog("Aggiunta serie: " + table + " | basin " + basinId + " | punti: " + count);
+		// Only the initial window is read; chunks are appended as they arrive so
+		// long series render progressively.
+		String channel = DISCHARGE_CHANNEL + "|" + (++dischargeLoads);
+		ChunkRelay chunks = new ChunkRelay(c -> appendChunks(series, c));
+		onEdt(asyncLoader.submit(channel, l -> {
+			SeriesQualityScan.BasinQuality quality = l.seriesQuality(config, table, basinId).orElse(null);
+			TimeRange extent = l.seriesExtent(config, table, basinId, isGaugeSeries).orElse(null);
+			if (extent == null) {
+				return new DischargeLoad(quality, null, null, 0L);
+			}
+			TimeRange window = initialWindow(extent, visible);
+			return new DischargeLoad(quality, extent, window,
+					l.streamSeries(config, table, basinId, isGaugeSeries, window, chunks));
+		}), load -> {
+			TimeRange extent = load.extent();
+			TimeRange window = load.window();
+			if (extent == null) {
+				dataset.removeSeries(series);
+				applySeriesStyles();
+				reloadSeriesList();
+				appendLog("Nessun dato trovato per tabella " + table + " e basin " + basinId + ".");
+				return;
+			}
+			WindowedSeries windowed = new WindowedSeries(table, basinId, isGaugeSeries, channel, extent);
+			if (load.count() > 0) {
+				// otherwise the read failed or found nothing: the window is read again when shown
+				windowed.fetched.add(window);
+			}
+			windowed.rowsPerMs = load.count() / (double) Math.max(1L, window.length());
+			windowedSeries.put(series, windowed);
+			if (visible == null && !window.equals(extent)) {
+				plot.getDomainAxis().setRange(window.from(), window.to());
+			} else if (visible == null) {
+				plot.getDomainAxis().setAutoRange(true);
+			}
+			appendLog("Aggiunta serie: " + table + " | basin " + basinId + " | punti: " + load.count()
+					+ (window.equals(extent) ? "" : " (finestra " + formatRange(window) + ")"));
+			SeriesQualityScan.BasinQuality quality = load.quality();
+			if (quality != null && quality.hasIssues()) {
+				appendLog(String.format(Locale.ROOT,
+						"Qualità dati basin %s: %d buchi, %d duplicati, %d passi irregolari, %.1f%% valori mancanti",
+						basinId, quality.gaps(), quality.duplicates(), quality.irregularSteps(),
+						100.0 * quality.missingFraction()));
+			}
+		});
+	}
+
+	private void removeWindowedSeries(ChartSeries series) {
+		WindowedSeries removed = windowedSeries.remove(series);
+		if (removed != null) {
+			asyncLoader.cancel(removed.channel);
+		}
+	}
+
+	private void clearWindowedSeries() {
+		for (WindowedSeries windowed : windowedSeries.values()) {
+			asyncLoader.cancel(windowed.channel);
+		}
+		windowedSeries.clear();
+	}
+
+	private TimeRange initialWindow(TimeRange extent, TimeRange visible) {
+		if (visible != null) {
+			TimeRange clipped = extent.intersect(visible);
+			if (clipped != null) {
+				return clipped;
+			}
+		}
+		int days = ExplorerConfig.dischargeInitialWindowDays();
+		if (days <= 0) {
+			return extent;
+		}
+		long from = Math.max(extent.from(), extent.to() - days * DAY_MS);
+		return new TimeRange(from, extent.to());
+	}
+
+	private TimeRange visibleDomainRange() {
+		Range range = plot.getDomainAxis().getRange();
+		return new TimeRange((long) Math.floor(range.getLowerBound()), (long) Math.ceil(range.getUpperBound()));
+	}
+
+	/**
+	 * Fetches, for every windowed discharge series, the parts of the visible
+	 * domain range that have not been read yet. Runs after the domain axis has
+	 * settled, so a drag or wheel zoom issues one read per gap. When the
+	 * visible range holds far more rows than the plot has pixels, a min/max
+	 * summary from the loader's level-of-detail pyramid is shown instead.
+	 */
+	private void fetchVisibleWindows() {
+		if (windowedSeries.isEmpty() || plot.getDomainAxis().isAutoRange()) {
+			return;
+		}
+		TimeRange visible = visibleDomainRange();
+		int pixels = plotWidthPixels();
+		for (Map.Entry<ChartSeries, WindowedSeries> e : windowedSeries.entrySet()) {
+			WindowedSeries windowed = e.getValue();
+			TimeRange wanted = windowed.extent.intersect(visible);
+			if (wanted == null) {
+				continue;
+			}
+			int generation = ++windowed.generation;
+			if (windowed.rowsPerMs * wanted.length() > 2.0 * pixels) {
+				fetchOverview(e.getKey(), windowed, wanted, pixels, generation);
+			} else {
+				showFullResolution(e.getKey(), windowed, wanted);
+			}
+		}
+	}
+
+	private void showFullResolution(ChartSeries series, WindowedSeries windowed, TimeRange wanted) {
+		if (series.isOverview()) {
+			series.clear();
+			dataset.seriesChanged();
+			windowed.fetched.clear();
+		}
+		List<TimeRange> gaps = windowed.fetched.missing(wanted);
+		if (gaps.isEmpty()) {
+			// an overview still being read is no longer wanted
+			asyncLoader.cancel(windowed.channel);
+			windowed.reading.clear();
+			return;
+		}
+		if (gaps.stream().allMatch(windowed.reading::covers)) {
+			// the read in progress already covers them: let it finish
+			return;
+		}
+		fetchWindows(series, windowed, gaps);
+	}
+
+	private void fetchOverview(ChartSeries series, WindowedSeries windowed, TimeRange wanted, int pixels,
+			int generation) {
+		windowed.reading.clear();
+		onEdt(asyncLoader.submit(windowed.channel,
+				l -> l.seriesOverview(config, windowed.table, windowed.basinId, windowed.gauge, wanted, pixels)),
+				overview -> {
+					if (windowedSeries.get(series) != windowed || windowed.generation != generation) {
+						return;
+					}
+					if (overview.isEmpty()) {
+						showFullResolution(series, windowed, wanted);
+						return;
+					}
+					windowed.fetched.clear();
+					appendOverview(series, overview.get());
+				});
+	}
+
+	/**
+	 * Replaces the rows of the series with an overview drawing each bucket as
+	 * its minimum at the bucket start and its maximum half way to the next
+	 * bucket, so the line keeps the envelope of the series.
+	 */
+	private void appendOverview(ChartSeries series, SeriesBlock buckets) {
+		int min = buckets.columnIndex(SeriesPyramid.MIN);
+		int max = buckets.columnIndex(SeriesPyramid.MAX);
+		long[] ts = new long[2 * buckets.size()];
+		double[] values = new double[ts.length];
+		int n = 0;
+		for (int i = 0; i < buckets.size(); i++) {
+			long start = buckets.timestamp(i);
+			long step = i + 1 < buckets.size() ? buckets.timestamp(i + 1) - start
+					: i > 0 ? start - buckets.timestamp(i - 1) : 0L;
+			ts[n] = start;
+			values[n++] = buckets.value(min, i);
+			if (step > 1) {
+				ts[n] = start + step / 2;
+				values[n++] = buckets.value(max, i);
+			}
+		}
+		series.setOverview(ts, values, n);
+		dataset.seriesChanged();
+	}
+
+	/**
+	 * Sizes the drawn rows to the visible range and plot width; a no-op
+	 * while the zoom level stays the same.
+	 */
+	private void updateDecimation() {
+		Range range = plot.getDomainAxis().getRange();
+		int pixels = plotWidthPixels();
+		dataset.setView(range, pixels);
+		if (stateDataset != null) {
+			stateDataset.setView(range, pixels);
+		}
+	}
+
+	private int plotWidthPixels() {
+		return Math.max(100, (int) chartPanel.getScreenDataArea().getWidth());
+	}
+
+	/**
+	 * Reads the gaps of one series in a single task on its channel, appending
+	 * the rows as they arrive. A gap is marked fetched only once its read has
+	 * completed and returned rows: {@code streamSeries} returns 0 for a failed
+	 * read too, which must be tried again, while an empty gap costs an index
+	 * lookup.
+	 */
+	private void fetchWindows(ChartSeries series, WindowedSeries windowed, List<TimeRange> gaps) {
+		ChunkRelay chunks = new ChunkRelay(c -> {
+			if (windowedSeries.get(series) == windowed && !series.isOverview()) {
+				appendChunks(series, c);
+			}
+		});
+		int generation = windowed.generation;
+		windowed.reading.clear();
+		gaps.forEach(windowed.reading::add);
+		windowed.readingGeneration = generation;
+		CompletableFuture<List<TimeRange>> read = asyncLoader.submit(windowed.channel, l -> {
+			List<TimeRange> withRows = new ArrayList<>();
+			for (TimeRange gap : gaps) {
+				if (l.streamSeries(config, windowed.table, windowed.basinId, windowed.gauge, gap, chunks) > 0) {
+					withRows.add(gap);
+				}
+			}
+			return withRows;
+		});
+		read.whenComplete((v, e) -> SwingUtilities.invokeLater(() -> {
+			if (windowed.readingGeneration == generation) {
+				windowed.reading.clear();
+			}
+		}));
+		onEdt(read, complete -> {
+			if (windowedSeries.get(series) == windowed && !series.isOverview()) {
+				complete.forEach(windowed.fetched::add);
+			}
+		});
+	}
+
+	/**
+	 * Follow mode: when the input of a plotted discharge series has changed
+	 * since the last poll, reads only the rows after the last timestamp of the
+	 * series and appends them.
+	 */
+	private void pollFollowedSeries() {
+		if (followPolling || windowedSeries.isEmpty() || !dialog.isVisible()) {
+			return;
+		}
+		Map<ChartSeries, WindowedSeries> followed = new IdentityHashMap<>(windowedSeries);
+		Map<WindowedSeries, Long> after = new IdentityHashMap<>();
+		for (WindowedSeries windowed : followed.values()) {
+			after.put(windowed, windowed.extent.to());
+		}
+		followPolling = true;
+		CompletableFuture<Map<WindowedSeries, SeriesBlock>> future = asyncLoader.submit(FOLLOW_CHANNEL,
+				l -> readTails(l, after));
+		future.whenComplete((v, e) -> SwingUtilities.invokeLater(() -> followPolling = false));
+		onEdt(future, tails -> {
+			for (Map.Entry<ChartSeries, WindowedSeries> e : followed.entrySet()) {
+				SeriesBlock tail = tails.get(e.getValue());
+				if (tail != null && windowedSeries.get(e.getKey()) == e.getValue()) {
+					appendTail(e.getKey(), e.getValue(), tail);
+				}
+			}
+		});
+	}
+
+	private Map<WindowedSeries, SeriesBlock> readTails(TimeseriesLoader l, Map<WindowedSeries, Long> after) {
+		Map<String, Long> stamps = new HashMap<>();
+		Map<WindowedSeries, SeriesBlock> tails = new IdentityHashMap<>();
+		for (Map.Entry<WindowedSeries, Long> e : after.entrySet()) {
+			WindowedSeries windowed = e.getKey();
+			long stamp = stamps.computeIfAbsent(windowed.table, t -> l.inputStamp(config, t));
+			Long previous = followStamps.get(windowed.table);
+			if (previous != null && previous == stamp) {
+				continue;
+			}
+			SeriesBlock.Builder rows = SeriesBlock.builder(SeriesCursor.VALUE);
+			l.streamSeriesAfter(config, windowed.table, windowed.basinId, windowed.gauge, e.getValue(), chunk -> {
+				for (int i = 0; i < chunk.size(); i++) {
+					rows.addRow(chunk.timestamp(i), chunk.value(0, i));
+				}
+			});
+			if (rows.size() > 0) {
+				tails.put(windowed, rows.build());
+			}
+		}
+		followStamps.putAll(stamps);
+		return tails;
+	}
+
+	private void appendTail(ChartSeries series, WindowedSeries windowed, SeriesBlock tail) {
+		TimeRange previous = windowed.extent;
+		TimeRange added = new TimeRange(previous.to(), tail.lastTimestamp());
+		windowed.extent = new TimeRange(previous.from(), tail.lastTimestamp());
+		// rows are appended only when the chart already holds the end of the
+		// series; otherwise they are read when the user pans there
+		if (!series.isOverview() && windowed.fetched.covers(new TimeRange(previous.to(), previous.to()))) {
+			appendChunks(series, List.of(tail));
+			windowed.fetched.add(added);
+		}
+		appendLog("Follow: " + series.key() + " | nuovi punti: " + tail.size() + " | fino a "
+				+ buildDateFormatter().format(new Date(tail.lastTimestamp())));
+	}
+
+	private void setFollowMode(boolean enabled) {
+		if (enabled) {
+			if (ExplorerConfig.sqliteReadImmutable()) {
+				appendConsoleLine("Attenzione: con sqlite.read.immutable=true i nuovi dati non sono visibili.");
+			}
+			followStamps.clear();
+			followTimer.start();
+			appendConsoleLine("Follow attivo: controllo ogni " + ExplorerConfig.followPollSeconds() + " s.");
+		} else {
+			followTimer.stop();
+			asyncLoader.cancel(FOLLOW_CHANNEL);
+			appendConsoleLine("Follow disattivato.");
+		}
+	}
+
+	/**
+	 * Adds the chunks of one read to the series and repaints once. A read
+	 * before the rows already held is merged in a single pass rather than
+	 * once per chunk.
+	 */
+	private void appendChunks(ChartSeries series, List<SeriesBlock> chunks) {
+		if (chunks.size() == 1) {
+			series.addAll(chunks.get(0), 0);
+		} else {
+			int total = 0;
+			for (SeriesBlock chunk : chunks) {
+				total += chunk.size();
+			}
+			long[] ts = new long[total];
+			double[] values = new double[total];
+			int n = 0;
+			for (SeriesBlock chunk : chunks) {
+				System.arraycopy(chunk.timestamps(), 0, ts, n, chunk.size());
+				System.arraycopy(chunk.column(0), 0, values, n, chunk.size());
+				n += chunk.size();
+			}
+			series.addAll(ts, values, n);
+		}
+		dataset.seriesChanged();
+	}
+
+	private String formatRange(TimeRange range) {
+		SimpleDateFormat fmt = buildDateFormatter();
+		return fmt.format(new Date(range.from())) + " - " + fmt.format(new Date(range.to()));
 	}
 
 	private void applySeriesStyles() {
@@ -643,10 +1197,10 @@ public final class TimeseriesWindow {
 			return;
 		}
 		if (baseSeriesKey == null) {
-			baseSeriesKey = dataset.getSeries(0).getKey().toString();
+			baseSeriesKey = dataset.getSeries(0).key();
 		}
 		for (int i = 0; i < dataset.getSeriesCount(); i++) {
-			String key = dataset.getSeries(i).getKey().toString();
+			String key = dataset.getSeries(i).key();
 			renderer.setSeriesPaint(i, key.equals(baseSeriesKey) ? Color.BLUE : Color.DARK_GRAY);
 		}
 	}
@@ -654,7 +1208,7 @@ public final class TimeseriesWindow {
 	private void reloadSeriesList() {
 		DefaultListModel<String> model = new DefaultListModel<>();
 		for (int i = 0; i < dataset.getSeriesCount(); i++) {
-			model.addElement(dataset.getSeries(i).getKey().toString());
+			model.addElement(dataset.getSeries(i).key());
 		}
 		seriesList.setModel(model);
 	}
@@ -673,7 +1227,8 @@ public final class TimeseriesWindow {
 			appendLog("La portata base non può essere eliminata.");
 			return;
 		}
-		String removedKey = dataset.getSeries(selectedIndex).getKey().toString();
+		String removedKey = dataset.getSeries(selectedIndex).key();
+		removeWindowedSeries(dataset.getSeries(selectedIndex));
 		dataset.removeSeries(selectedIndex);
 		applySeriesStyles();
 		reloadSeriesList();
@@ -681,8 +1236,8 @@ public final class TimeseriesWindow {
 	}
 
 	private void showMetricsPopup() {
-		List<TimeSeries> simulationSeries = getSimulationSeries();
-		List<TimeSeries> gaugeSeries = getGaugeSeries();
+		List<ChartSeries> simulationSeries = getSimulationSeries();
+		List<ChartSeries> gaugeSeries = getGaugeSeries();
 		if (simulationSeries.isEmpty()) {
 			appendLog("Metriche: caricare almeno una serie simulata.");
 			return;
@@ -749,142 +1304,122 @@ public final class TimeseriesWindow {
 			return;
 		}
 
-		TimeSeries sim = findSeriesByKey((String) simCombo.getSelectedItem());
-		TimeSeries gauge = findSeriesByKey((String) gaugeCombo.getSelectedItem());
+		ChartSeries sim = findSeriesByKey((String) simCombo.getSelectedItem());
+		ChartSeries gauge = findSeriesByKey((String) gaugeCombo.getSelectedItem());
 		if (sim == null || gauge == null) {
 			appendLog("Impossibile trovare le serie selezionate per il calcolo metriche.");
 			return;
 		}
 
-		double[] metrics = computeMetrics(sim, gauge, from, to);
-		if (Double.isNaN(metrics[0])) {
-			appendLog("Metriche non calcolabili: servono dati in comune nel periodo selezionato.");
+		WindowedSeries simulated = windowedSeries.get(sim);
+		WindowedSeries observed = windowedSeries.get(gauge);
+		if (simulated == null || observed == null) {
+			// lines not read by window hold all of their rows
+			if (sim.isOverview() || gauge.isOverview()) {
+				appendLog("Metriche non calcolabili: la serie mostra un riepilogo min/max.");
+				return;
+			}
+			appendLog(formatMetrics(sim.key(), gauge.key(), computeMetrics(sim, gauge, from, to)));
 			return;
 		}
-		appendLog(String.format(Locale.ROOT, "Metriche [%s vs %s] -> KGE=%.4f, NSE=%.4f, NSElog=%.4f", sim.getKey(),
-				gauge.getKey(), metrics[0], metrics[1], metrics[2]));
+		// the chart holds only the windows read so far: the metrics read the
+		// requested range from the inputs
+		appendLog("Calcolo metriche in corso...");
+		onEdt(asyncLoader.submit(METRICS_CHANNEL, l -> computeWindowedMetrics(l, sim.key(), simulated, gauge.key(),
+				observed, from, to)), this::appendLog);
 	}
 
-	private double[] computeMetrics(TimeSeries simulated, TimeSeries observed, Long from, Long to) {
-		List<Double> simValues = new ArrayList<>();
-		List<Double> obsValues = new ArrayList<>();
-		for (int i = 0; i < observed.getItemCount(); i++) {
-			TimeSeriesDataItem obsItem = observed.getDataItem(i);
-			long t = obsItem.getPeriod().getStart().getTime();
-			if (from != null && t < from) {
-				continue;
-			}
-			if (to != null && t > to) {
-				continue;
-			}
-			Number simN = simulated.getValue(obsItem.getPeriod());
-			if (simN == null || obsItem.getValue() == null) {
-				continue;
-			}
-			double sim = simN.doubleValue();
-			double obs = obsItem.getValue().doubleValue();
-			if (Double.isFinite(sim) && Double.isFinite(obs) && sim != -9999.0 && obs != -9999.0) {
-				simValues.add(sim);
-				obsValues.add(obs);
-			}
-		}
-		if (simValues.size() < 2) {
-			return new double[] { Double.NaN, Double.NaN, Double.NaN };
-		}
-
-		double meanObs = mean(obsValues);
-		double meanSim = mean(simValues);
-		double nseNum = 0d;
-		double nseDen = 0d;
-		for (int i = 0; i < simValues.size(); i++) {
-			double s = simValues.get(i);
-			double o = obsValues.get(i);
-			nseNum += (s - o) * (s - o);
-			nseDen += (o - meanObs) * (o - meanObs);
+	/**
+	 * Metrics of two windowed series read with loader cursors over
+	 * {@code from}-{@code to} (whole history when null). Runs on the I/O
+	 * executor; returns the line to log.
+	 */
+	private String computeWindowedMetrics(TimeseriesLoader l, String simulatedKey, WindowedSeries simulated,
+			String observedKey, WindowedSeries observed, Long from, Long to) {
+		int chunkRows = ExplorerConfig.streamChunkRows();
+		TimeRange range = from == null && to == null ? null
+				: new TimeRange(from == null ? Long.MIN_VALUE : from, to == null ? Long.MAX_VALUE : to);
+		try (SeriesCursor sim = l.openSeriesCursor(config, simulated.table, simulated.basinId, simulated.gauge,
+				range, chunkRows);
+				SeriesCursor obs = l.openSeriesCursor(config, observed.table, observed.basinId, observed.gauge,
+						range, chunkRows)) {
+			return formatMetrics(simulatedKey, observedKey, computeStreamingMetrics(sim, obs, from, to));
+		} catch (SQLException ex) {
+			return "Errore lettura serie: " + ex.getMessage();
 		}
-		double nse = nseDen == 0d ? Double.NaN : 1d - (nseNum / nseDen);
-
-		List<Double> simLog = new ArrayList<>();
-		List<Double> obsLog = new ArrayList<>();
-		for (int i = 0; i < simValues.size(); i++) {
-			double s = simValues.get(i);
-			double o = obsValues.get(i);
-			if (s > 0d && o > 0d) {
-				simLog.add(Math.log(s));
-				obsLog.add(Math.log(o));
-			}
-		}
-		double nseLog = Double.NaN;
-		if (simLog.size() >= 2) {
-			double meanObsLog = mean(obsLog);
-			double num = 0d;
-			double den = 0d;
-			for (int i = 0; i < simLog.size(); i++) {
-				double s = simLog.get(i);
-				double o = obsLog.get(i);
-				num += (s - o) * (s - o);
-				den += (o - meanObsLog) * (o - meanObsLog);
-			}
-			nseLog = den == 0d ? Double.NaN : 1d - (num / den);
-		}
-
-		double r = correlation(simValues, obsValues);
-		double stdSim = stddev(simValues, meanSim);
-		double stdObs = stddev(obsValues, meanObs);
-		double alpha = stdObs == 0d ? Double.NaN : stdSim / stdObs;
-		double beta = meanObs == 0d ? Double.NaN : meanSim / meanObs;
-		double kge = Double.isNaN(r) || Double.isNaN(alpha) || Double.isNaN(beta) ? Double.NaN
-				: 1d - Math.sqrt((r - 1d) * (r - 1d) + (alpha - 1d) * (alpha - 1d) + (beta - 1d) * (beta - 1d));
-
-		return new double[] { kge, nse, nseLog };
 	}
 
-	private double mean(List<Double> values) {
-		double sum = 0d;
-		for (double v : values) {
-			sum += v;
+	private String formatMetrics(String simulatedKey, String observedKey, double[] metrics) {
+		if (Double.isNaN(metrics[0])) {
+			return "Metriche non calcolabili: servono dati in comune nel periodo selezionato.";
 		}
-		return sum / values.size();
+		return String.format(Locale.ROOT, "Metriche [%s vs %s] -> KGE=%.4f, NSE=%.4f, NSElog=%.4f", simulatedKey,
+				observedKey, metrics[0], metrics[1], metrics[2]);
 	}
 
-	private double stddev(List<Double> values, double mean) {
-		if (values.size() < 2) {
-			return Double.NaN;
-		}
-		double sum = 0d;
-		for (double v : values) {
-			double d = v - mean;
-			sum += d * d;
+	private double[] computeMetrics(ChartSeries simulated, ChartSeries observed, Long from, Long to) {
+		DischargeMetrics metrics = new DischargeMetrics();
+		int si = 0;
+		int oi = 0;
+		while (si < simulated.size() && oi < observed.size()) {
+			long ts = simulated.timestamp(si);
+			long t = observed.timestamp(oi);
+			if (ts == t) {
+				if ((from == null || t >= from) && (to == null || t <= to)) {
+					metrics.add(simulated.value(si), observed.value(oi));
+				}
+				si++;
+				oi++;
+			} else if (ts < t) {
+				si++;
+			} else {
+				oi++;
+			}
 		}
-		return Math.sqrt(sum / (values.size() - 1));
+		return metrics.values();
 	}
 
-	private double correlation(List<Double> x, List<Double> y) {
-		if (x.size() != y.size() || x.size() < 2) {
-			return Double.NaN;
-		}
-		double meanX = mean(x);
-		double meanY = mean(y);
-		double num = 0d;
-		double denX = 0d;
-		double denY = 0d;
-		for (int i = 0; i < x.size(); i++) {
-			double dx = x.get(i) - meanX;
-			double dy = y.get(i) - meanY;
-			num += dx * dy;
-			denX += dx * dx;
-			denY += dy * dy;
-		}
-		if (denX == 0d || denY == 0d) {
-			return Double.NaN;
+	/**
+	 * Merge-joins two timestamp-ordered streams chunk by chunk, so the metrics
+	 * of arbitrarily long series are computed in constant memory.
+	 */
+	private double[] computeStreamingMetrics(SeriesCursor simulated, SeriesCursor observed, Long from, Long to)
+			throws SQLException {
+		DischargeMetrics metrics = new DischargeMetrics();
+		SeriesBlock sim = simulated.next() ? simulated.chunk() : null;
+		SeriesBlock obs = observed.next() ? observed.chunk() : null;
+		int si = 0;
+		int oi = 0;
+		while (sim != null && obs != null) {
+			long ts = sim.timestamp(si);
+			long to2 = obs.timestamp(oi);
+			if (ts == to2) {
+				if ((from == null || ts >= from) && (to == null || ts <= to)) {
+					metrics.add(sim.value(0, si), obs.value(0, oi));
+				}
+				si++;
+				oi++;
+			} else if (ts < to2) {
+				si++;
+			} else {
+				oi++;
+			}
+			if (si >= sim.size()) {
+				sim = simulated.next() ? simulated.chunk() : null;
+				si = 0;
+			}
+			if (oi >= obs.size()) {
+				obs = observed.next() ? observed.chunk() : null;
+				oi = 0;
+			}
 		}
-		return num / Math.sqrt(denX * denY);
+		return metrics.values();
 	}
 
-	private List<TimeSeries> getSimulationSeries() {
-		List<TimeSeries> out = new ArrayList<>();
+	private List<ChartSeries> getSimulationSeries() {
+		List<ChartSeries> out = new ArrayList<>();
 		for (int i = 0; i < dataset.getSeriesCount(); i++) {
-			TimeSeries s = dataset.getSeries(i);
+			ChartSeries s = dataset.getSeries(i);
 			if (!isGaugeSeries(s)) {
 				out.add(s);
 			}
@@ -892,10 +1427,10 @@ public final class TimeseriesWindow {
 		return out;
 	}
 
-	private List<TimeSeries> getGaugeSeries() {
-		List<TimeSeries> out = new ArrayList<>();
+	private List<ChartSeries> getGaugeSeries() {
+		List<ChartSeries> out = new ArrayList<>();
 		for (int i = 0; i < dataset.getSeriesCount(); i++) {
-			TimeSeries s = dataset.getSeries(i);
+			ChartSeries s = dataset.getSeries(i);
 			if (isGaugeSeries(s)) {
 				out.add(s);
 			}
@@ -903,25 +1438,25 @@ public final class TimeseriesWindow {
 		return out;
 	}
 
-	private boolean isGaugeSeries(TimeSeries series) {
-		return series != null && series.getKey().toString().toLowerCase(Locale.ROOT).startsWith(streamGaugePrefix);
+	private boolean isGaugeSeries(ChartSeries series) {
+		return series != null && series.key().toLowerCase(Locale.ROOT).startsWith(streamGaugePrefix);
 	}
 
-	private String[] seriesKeys(List<TimeSeries> series) {
+	private String[] seriesKeys(List<ChartSeries> series) {
 		String[] out = new String[series.size()];
 		for (int i = 0; i < series.size(); i++) {
-			out[i] = series.get(i).getKey().toString();
+			out[i] = series.get(i).key();
 		}
 		return out;
 	}
 
-	private TimeSeries findSeriesByKey(String key) {
+	private ChartSeries findSeriesByKey(String key) {
 		if (key == null) {
 			return null;
 		}
 		for (int i = 0; i < dataset.getSeriesCount(); i++) {
-			TimeSeries s = dataset.getSeries(i);
-			if (key.equals(s.getKey().toString())) {
+			ChartSeries s = dataset.getSeries(i);
+			if (key.equals(s.key())) {
 				return s;
 			}
 		}
@@ -948,16 +1483,26 @@ public final class TimeseriesWindow {
 		return fmt;
 	}
 
+	/**
+	 * First and last timestamp of the plotted series; windowed series count
+	 * with their full extent, not with the rows read so far.
+	 */
 	private long[] computeDateRange() {
 		long min = Long.MAX_VALUE;
 		long max = Long.MIN_VALUE;
 		for (int i = 0; i < dataset.getSeriesCount(); i++) {
-			TimeSeries s = dataset.getSeries(i);
-			if (s.getItemCount() == 0) {
+			ChartSeries s = dataset.getSeries(i);
+			WindowedSeries windowed = windowedSeries.get(s);
+			if (windowed != null) {
+				min = Math.min(min, windowed.extent.from());
+				max = Math.max(max, windowed.extent.to());
 				continue;
 			}
-			long sMin = s.getDataItem(0).getPeriod().getStart().getTime();
-			long sMax = s.getDataItem(s.getItemCount() - 1).getPeriod().getStart().getTime();
+			if (s.isEmpty() || s.isOverview()) {
+				continue;
+			}
+			long sMin = s.firstTimestamp();
+			long sMax = s.lastTimestamp();
 			min = Math.min(min, sMin);
 			max = Math.max(max, sMax);
 		}
@@ -978,7 +1523,7 @@ public final class TimeseriesWindow {
 			switch (cmd) {
 			case "help":
 				appendConsoleLine(
-						"Comandi: help | tables | dt [nomeTabella] | \\dt [nomeTabella] | metrics <tabSim> <subbasinId> <tabObs> [dal] [al] | list | remove <n> | zoom <dal> <al> | resetzoom | agg <opzione> | clear");
+						"Comandi: help | tables | dt [nomeTabella] | \\dt [nomeTabella] | metrics <tabSim> <subbasinId[,id2,...]> <tabObs> [dal] [al] | overlay <tabSim> <id1,id2,...> | list | remove <n> | zoom <dal> <al> | resetzoom | agg <opzione> | pool | cache [clear] | follow <on|off> | clear");
 				appendConsoleLine("Date supportate: yyyy-MM-dd oppure dd/MM/yyyy");
 				break;
 			case "tables":
@@ -995,6 +1540,13 @@ public final class TimeseriesWindow {
 			case "metrics":
 				computeMetricsFromTables(parts);
 				break;
+			case "overlay":
+				if (parts.length < 3) {
+					appendConsoleLine("Uso: overlay <tabSim> <id1,id2,...>");
+					break;
+				}
+				overlaySeries(parts[1], parseBasinIds(parts[2]));
+				break;
 			case "list":
 				listSeriesInConsole();
 				break;
@@ -1020,12 +1572,13 @@ public final class TimeseriesWindow {
 				appendConsoleLine("Zoom applicato.");
 				break;
 			case "resetzoom":
-				chartPanel.restoreAutoBounds();
+				resetZoom();
 				appendConsoleLine("Zoom resettato.");
 				break;
 			case "agg":
-				if (!"state".equalsIgnoreCase(activeType)) {
-					appendConsoleLine("agg disponibile solo in modalità state.");
+				boolean fluxes = "fluxes".equalsIgnoreCase(activeType);
+				if (!"state".equalsIgnoreCase(activeType) && !fluxes) {
+					appendConsoleLine("agg disponibile solo in modalità state e fluxes.");
 					break;
 				}
 				if (parts.length < 2) {
@@ -1037,9 +1590,28 @@ public final class TimeseriesWindow {
 					appendConsoleLine("Aggregazione non valida: " + target);
 					break;
 				}
-				stateAggregationCombo.setSelectedItem(target);
+				(fluxes ? fluxesAggregationCombo : stateAggregationCombo).setSelectedItem(target);
 				appendConsoleLine("Aggregazione impostata: " + target);
 				break;
+			case "pool":
+				listConnectionStatsInConsole();
+				break;
+			case "follow":
+				if (parts.length < 2) {
+					appendConsoleLine("Follow " + (followTimer.isRunning() ? "attivo." : "non attivo.")
+							+ " Uso: follow <on|off>");
+					break;
+				}
+				setFollowMode("on".equalsIgnoreCase(parts[1]));
+				break;
+			case "cache":
+				if (parts.length >= 2 && "clear".equalsIgnoreCase(parts[1])) {
+					SeriesCache.shared().clear();
+					appendConsoleLine("Cache serie svuotata.");
+					break;
+				}
+				showSeriesCacheStatsInConsole();
+				break;
 			case "clear":
 				messageArea.setText("");
 				consoleHistoryArea.setText("");
@@ -1068,6 +1640,25 @@ public final class TimeseriesWindow {
 		}
 	}
 
+	/**
+	 * Shows the whole history of the loaded series; windowed series fetch the
+	 * parts not read yet.
+	 */
+	private void resetZoom() {
+		if (windowedSeries.isEmpty()) {
+			chartPanel.restoreAutoBounds();
+			return;
+		}
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (WindowedSeries windowed : windowedSeries.values()) {
+			min = Math.min(min, windowed.extent.from());
+			max = Math.max(max, windowed.extent.to());
+		}
+		chartPanel.restoreAutoBounds();
+		plot.getDomainAxis().setRange(min, max);
+	}
+
 	private void removeAddedSeries(int oneBased) {
 		if (dataset.getSeriesCount() <= 1) {
 			appendConsoleLine("Nessuna serie aggiunta da rimuovere.");
@@ -1078,7 +1669,8 @@ public final class TimeseriesWindow {
 			appendConsoleLine("Indice non valido. Usa list per vedere le serie.");
 			return;
 		}
-		String removedKey = dataset.getSeries(index).getKey().toString();
+		String removedKey = dataset.getSeries(index).key();
+		removeWindowedSeries(dataset.getSeries(index));
 		dataset.removeSeries(index);
 		applySeriesStyles();
 		reloadSeriesList();
@@ -1090,12 +1682,32 @@ public final class TimeseriesWindow {
 			appendConsoleLine("Nessuna serie caricata.");
 			return;
 		}
-		appendConsoleLine("[0] base/non removibile: " + dataset.getSeries(0).getKey());
+		appendConsoleLine("[0] base/non removibile: " + dataset.getSeries(0).key());
 		for (int i = 1; i < dataset.getSeriesCount(); i++) {
-			appendConsoleLine("[" + i + "] " + dataset.getSeries(i).getKey());
+			appendConsoleLine("[" + i + "] " + dataset.getSeries(i).key());
 		}
 	}
 
+	private void listConnectionStatsInConsole() {
+		List<SqliteConnectionPool.Stats> stats = loader.connectionStats();
+		if (stats.isEmpty()) {
+			appendConsoleLine("Nessuna connessione aperta.");
+			return;
+		}
+		for (SqliteConnectionPool.Stats s : stats) {
+			appendConsoleLine(String.format(Locale.ROOT, "%s | aperte=%d | riusate=%d | attese=%d | inattive=%d",
+					s.dbPath().getFileName(), s.opened(), s.reused(), s.waits(), s.idle()));
+		}
+	}
+
+	private void showSeriesCacheStatsInConsole() {
+		SeriesCache.Stats s = SeriesCache.shared().stats();
+		appendConsoleLine(String.format(Locale.ROOT,
+				"Cache serie | voci=%d | memoria=%.1f/%.1f MB | hit=%d | hit soft=%d | miss=%d | evizioni=%d | soft=%d",
+				s.entries(), s.bytes() / 1048576.0, s.maxBytes() / 1048576.0, s.hits(), s.softHits(), s.misses(),
+				s.evictions(), s.softEntries()));
+	}
+
 	private void listTablesInConsole() {
 		List<String> tables = tableSupplier.get();
 		if (tables == null || tables.isEmpty()) {
@@ -1130,7 +1742,7 @@ public final class TimeseriesWindow {
 
 	private void computeMetricsFromTables(String[] parts) {
 		if (parts.length < 4) {
-			appendConsoleLine("Uso: metrics <tabSim> <subbasinId> <tabObs> [dal] [al]");
+			appendConsoleLine("Uso: metrics <tabSim> <subbasinId[,id2,...]> <tabObs> [dal] [al]");
 			return;
 		}
 		String simulatedTable = parts[1];
@@ -1157,27 +1769,151 @@ public final class TimeseriesWindow {
 			return;
 		}
 
-		TimeSeries simulated = new TimeSeries(simulatedTable + " | basin " + subbasinId);
-		TimeSeries observed = new TimeSeries(streamGaugePrefix + " " + observedTable + " | basin " + subbasinId);
-		int simCount = loader.fillSeriesFromAnyInput(config, simulatedTable, subbasinId, simulated, false);
-		int obsCount = loader.fillSeriesFromAnyInput(config, observedTable, subbasinId, observed, true);
-		if (simCount <= 0) {
-			appendConsoleLine("Nessun dato simulato trovato in " + simulatedTable + " per basin " + subbasinId + ".");
-			return;
-		}
-		if (obsCount <= 0) {
-			appendConsoleLine("Nessun dato osservato trovato in " + observedTable + " per basin " + subbasinId + ".");
-			return;
+		Long fromTs = from;
+		Long toTs = to;
+		appendConsoleLine("Calcolo metriche in corso...");
+		onEdt(asyncLoader.submit(CONSOLE_CHANNEL, l -> subbasinId.contains(",")
+				? computeBatchMetrics(l, simulatedTable, parseBasinIds(subbasinId), observedTable, fromTs, toTs)
+				: computeSingleMetrics(l, simulatedTable, subbasinId, observedTable, fromTs, toTs)), lines -> {
+					for (String line : lines) {
+						appendConsoleLine(line);
+					}
+				});
+	}
+
+	/**
+	 * Runs on the I/O executor; returns the console lines to print.
+	 */
+	private List<String> computeSingleMetrics(TimeseriesLoader l, String simulatedTable, String subbasinId,
+			String observedTable, Long from, Long to) {
+		int chunkRows = ExplorerConfig.streamChunkRows();
+		double[] metrics;
+		try (SeriesCursor simulated = l.openSeriesCursor(config, simulatedTable, subbasinId, false, chunkRows);
+				SeriesCursor observed = l.openSeriesCursor(config, observedTable, subbasinId, true, chunkRows)) {
+			metrics = computeStreamingMetrics(simulated, observed, from, to);
+			if (simulated.rowsRead() <= 0) {
+				return List.of("Nessun dato simulato trovato in " + simulatedTable + " per basin " + subbasinId + ".");
+			}
+			if (observed.rowsRead() <= 0) {
+				return List.of("Nessun dato osservato trovato in " + observedTable + " per basin " + subbasinId + ".");
+			}
+		} catch (SQLException ex) {
+			return List.of("Errore lettura serie: " + ex.getMessage());
 		}
-		double[] metrics = computeMetrics(simulated, observed, from, to);
 		if (Double.isNaN(metrics[0])) {
-			appendConsoleLine("Metriche non calcolabili: servono dati in comune nel periodo selezionato.");
-			return;
+			return List.of("Metriche non calcolabili: servono dati in comune nel periodo selezionato.");
 		}
-		appendConsoleLine(String.format(Locale.ROOT, "Metriche [%s/%s vs %s/%s] -> KGE=%.4f, NSE=%.4f, NSElog=%.4f",
+		return List.of(String.format(Locale.ROOT, "Metriche [%s/%s vs %s/%s] -> KGE=%.4f, NSE=%.4f, NSElog=%.4f",
 				simulatedTable, subbasinId, observedTable, subbasinId, metrics[0], metrics[1], metrics[2]));
 	}
 
+	/**
+	 * Metrics of several subbasins against the same observed table; the
+	 * simulated series are read with one batch query. Runs on the I/O executor.
+	 */
+	private List<String> computeBatchMetrics(TimeseriesLoader l, String simulatedTable, List<String> basinIds,
+			String observedTable, Long from, Long to) {
+		TimeRange range = from == null && to == null ? null
+				: new TimeRange(from == null ? Long.MIN_VALUE : from, to == null ? Long.MAX_VALUE : to);
+		SeriesBlock observed = l.loadSeries(config, observedTable, null, true, range);
+		if (observed.isEmpty()) {
+			return List.of("Nessun dato osservato trovato in " + observedTable + ".");
+		}
+		List<String> lines = new ArrayList<>();
+		Map<String, SeriesBlock> simulated = l.loadSeriesBatch(config, simulatedTable, basinIds, range);
+		for (Map.Entry<String, SeriesBlock> e : simulated.entrySet()) {
+			if (e.getValue().isEmpty()) {
+				lines.add("Nessun dato simulato trovato in " + simulatedTable + " per basin " + e.getKey() + ".");
+				continue;
+			}
+			double[] metrics = computeBlockMetrics(e.getValue(), observed);
+			if (Double.isNaN(metrics[0])) {
+				lines.add("Metriche non calcolabili per basin " + e.getKey() + ".");
+				continue;
+			}
+			lines.add(String.format(Locale.ROOT, "Metriche [%s/%s vs %s] -> KGE=%.4f, NSE=%.4f, NSElog=%.4f",
+					simulatedTable, e.getKey(), observedTable, metrics[0], metrics[1], metrics[2]));
+		}
+		return lines;
+	}
+
+	private double[] computeBlockMetrics(SeriesBlock simulated, SeriesBlock observed) {
+		DischargeMetrics metrics = new DischargeMetrics();
+		int si = 0;
+		int oi = 0;
+		while (si < simulated.size() && oi < observed.size()) {
+			long ts = simulated.timestamp(si);
+			long to = observed.timestamp(oi);
+			if (ts == to) {
+				metrics.add(simulated.value(0, si++), observed.value(0, oi++));
+			} else if (ts < to) {
+				si++;
+			} else {
+				oi++;
+			}
+		}
+		return metrics.values();
+	}
+
+	/**
+	 * Adds one discharge line per subbasin, all read with a single batch query.
+	 */
+	private void overlaySeries(String table, List<String> basinIds) {
+		if (!"discharge".equalsIgnoreCase(activeType)) {
+			appendConsoleLine("overlay disponibile solo in modalità discharge.");
+			return;
+		}
+		appendConsoleLine("Caricamento di " + basinIds.size() + " sottobacini da " + table + "...");
+		new SwingWorker<Map<String, SeriesBlock>, Void>() {
+			@Override
+			protected Map<String, SeriesBlock> doInBackground() {
+				return loader.loadSeriesBatch(config, table, basinIds, null);
+			}
+
+			@Override
+			protected void done() {
+				Map<String, SeriesBlock> loaded;
+				try {
+					loaded = get();
+				} catch (Exception ex) {
+					appendConsoleLine("Errore lettura serie: " + ex.getMessage());
+					return;
+				}
+				int added = 0;
+				for (Map.Entry<String, SeriesBlock> e : loaded.entrySet()) {
+					SeriesBlock block = e.getValue();
+					if (block.isEmpty()) {
+						appendConsoleLine("Nessun dato per basin " + e.getKey() + ".");
+						continue;
+					}
+					ChartSeries series = new ChartSeries(table + " | basin " + e.getKey());
+					appendChunks(series, List.of(block));
+					dataset.addSeries(series);
+					TimeRange extent = new TimeRange(block.firstTimestamp(), block.lastTimestamp());
+					WindowedSeries windowed = new WindowedSeries(table, e.getKey(), false,
+							DISCHARGE_CHANNEL + "|" + (++dischargeLoads), extent);
+					windowed.fetched.add(extent);
+					windowed.rowsPerMs = block.size() / (double) Math.max(1L, extent.length());
+					windowedSeries.put(series, windowed);
+					added++;
+				}
+				applySeriesStyles();
+				reloadSeriesList();
+				appendConsoleLine("Sovrapposte " + added + " serie.");
+			}
+		}.execute();
+	}
+
+	private List<String> parseBasinIds(String csv) {
+		List<String> ids = new ArrayList<>();
+		for (String id : csv.split(",")) {
+			if (!id.isBlank() && !ids.contains(id.trim())) {
+				ids.add(id.trim());
+			}
+		}
+		return ids;
+	}
+
 	private void appendLog(String message) {
 		messageArea.append("> " + message + "\n");
 		messageArea.setCaretPosition(messageArea.getDocument().getLength());
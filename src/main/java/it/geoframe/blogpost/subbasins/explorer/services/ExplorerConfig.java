@@ -72,6 +72,22 @@ public final class ExplorerConfig {
 		return get("charts.state.aggregation.default", "mese");
 	}
 
+	/**
+	 * Initial aggregation of the fluxes chart, one of
+	 * {@link #stateAggregationOptions()}; fluxes are averaged per bucket.
+	 */
+	public static String fluxesAggregationDefault() {
+		return get("charts.fluxes.aggregation.default", "1h");
+	}
+
+	/**
+	 * Whether coarser state and fluxes buckets are computed by SQLite
+	 * instead of reading every hourly row.
+	 */
+	public static boolean aggregationPushdown() {
+		return Boolean.parseBoolean(get("charts.aggregation.pushdown", "true"));
+	}
+
 	public static String[] timeseriesBasinIdCandidates() {
 		String configured = get("tables.timeseries.columns.basin-id.candidates", "basin_id,basinid,id");
 		return configured.split(",");
@@ -82,11 +98,124 @@ public final class ExplorerConfig {
 		return get(key, defaultValue);
 	}
 
+	public static int sqlitePoolSize() {
+		return getInt("sqlite.pool.size", 4);
+	}
+
+	public static int sqlitePoolWaitSeconds() {
+		return getInt("sqlite.pool.wait.seconds", 30);
+	}
+
+	public static boolean sqliteReadImmutable() {
+		return Boolean.parseBoolean(get("sqlite.read.immutable", "false"));
+	}
+
+	public static long sqliteReadMmapSize() {
+		try {
+			return Long.parseLong(get("sqlite.read.mmap.size", "1073741824"));
+		} catch (NumberFormatException ex) {
+			return 1073741824L;
+		}
+	}
+
+	public static int sqliteReadCacheSizeKib() {
+		return getInt("sqlite.read.cache.size.kib", 65536);
+	}
+
+	public static String sqliteReadTempStore() {
+		return get("sqlite.read.temp.store", "default");
+	}
+
+	public static boolean sqliteReadQueryOnly() {
+		return Boolean.parseBoolean(get("sqlite.read.query.only", "true"));
+	}
+
+	public static int asyncLoaderThreads() {
+		return Math.max(1, getInt("io.async.threads", 4));
+	}
+
+	public static int asyncLoaderQueueSize() {
+		return Math.max(1, getInt("io.async.queue.size", 64));
+	}
+
+	/**
+	 * Threads used to scan legacy project folders and parse their CSV files.
+	 */
+	public static int legacyReaderThreads() {
+		return Math.max(1, getInt("io.legacy.threads", Math.min(8, Runtime.getRuntime().availableProcessors() * 2)));
+	}
+
+	public static int streamChunkRows() {
+		return Math.max(1, getInt("io.stream.chunk.rows", 8192));
+	}
+
+	/**
+	 * Days of discharge history fetched when a series is first added; the rest
+	 * is read on demand while panning or zooming. 0 loads the whole history.
+	 */
+	public static int dischargeInitialWindowDays() {
+		return Math.max(0, getInt("charts.discharge.initial.window.days", 365));
+	}
+
+	/**
+	 * Seconds between two checks of the inputs in follow mode.
+	 */
+	public static int followPollSeconds() {
+		return Math.max(1, getInt("charts.follow.poll.seconds", 5));
+	}
+
+	/**
+	 * Quiet time after the last edit of the project form before the project
+	 * is validated again.
+	 */
+	public static int validationDebounceMillis() {
+		return Math.max(0, getInt("ui.validation.debounce.ms", 400));
+	}
+
+	public static boolean sidecarEnabled() {
+		return Boolean.parseBoolean(get("cache.sidecar.enabled", "true"));
+	}
+
+	public static boolean seriesFileCacheEnabled() {
+		return Boolean.parseBoolean(get("cache.series.files.enabled", "true"));
+	}
+
+	/**
+	 * Heap budget of the in-memory series cache, in bytes; defaults to a
+	 * quarter of the maximum heap. 0 keeps series only through soft
+	 * references.
+	 */
+	public static long seriesCacheMaxBytes() {
+		long fallback = Runtime.getRuntime().maxMemory() / 4;
+		try {
+			return Math.max(0L, Long.parseLong(get("cache.series.maxBytes", String.valueOf(fallback))));
+		} catch (NumberFormatException ex) {
+			return fallback;
+		}
+	}
+
+	/**
+	 * Directory for derived data (sidecar indexes, series caches); defaults to
+	 * the cache folder next to the user configuration.
+	 */
+	public static Path cacheDirectory() {
+		String configured = get("cache.dir", "");
+		return configured.isEmpty() ? USER_CONFIG_PATH.getParent().resolve("cache") : Paths.get(configured);
+	}
+
 	private static String get(String key, String defaultValue) {
 		String v = PROPS.getProperty(key);
 		return (v == null || v.isBlank()) ? defaultValue : v.trim();
 	}
 
+	private static int getInt(String key, int defaultValue) {
+		try {
+			return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+		} catch (NumberFormatException ex) {
+			return defaultValue;
+		}
+	}
+
 	private static Properties loadProperties() {
 		Properties p = new Properties();
 		Path externalConfigPath = externalConfigPath();
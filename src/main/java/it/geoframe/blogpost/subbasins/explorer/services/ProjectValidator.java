@@ -1,5 +1,8 @@
 package it.geoframe.blogpost.subbasins.explorer.services;
 
+import it.geoframe.blogpost.subbasins.explorer.io.ProjectCatalog;
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesQualityScan;
+
 import org.geotools.api.data.DataStore;
 import org.geotools.api.data.DataStoreFinder;
 import java.io.BufferedReader;
@@ -7,18 +10,81 @@ import java.io.IOException;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.*;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Checks that the project inputs have the layout the explorer reads.
+ *
+ * Independent checks (SQLite tables, GeoPackage tables, GeoTools open) run
+ * concurrently. Each check result is kept for the session, keyed by check,
+ * size and modification time of its files and the configuration it reads, so
+ * an unchanged file is validated only once. The optional deep scan reads the
+ * measurement and simulation tables once and reports data-quality problems
+ * per basin as warnings.
+ */
 public final class ProjectValidator {
 
+	@FunctionalInterface
+	private interface CheckBody {
+		void run(List<String> info, List<String> errors, List<String> warnings);
+	}
+
+	private record Check(String name, List<Path> files, String config, CheckBody body) {
+	}
+
+	private record CheckKey(String name, List<Path> files, List<String> stamps, String config) {
+	}
+
+	private record CheckResult(List<String> info, List<String> errors, List<String> warnings) {
+	}
+
+	/** Basins named in a data-quality warning; the others are counted only. */
+	private static final int QUALITY_EXAMPLES = 5;
+	private static final Map<CheckKey, CheckResult> CHECK_RESULTS = new ConcurrentHashMap<>();
+	private static final ExecutorService CHECKS = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "project-check");
+		t.setDaemon(true);
+		return t;
+	});
+
 	private ProjectValidator() {
 	}
 
 	public static ValidationResult validate(ProjectConfig cfg) {
-		List<String> info = new ArrayList<>();
-		List<String> warnings = new ArrayList<>();
-		List<String> errors = new ArrayList<>();
+		return validate(cfg, message -> {
+		});
+	}
+
+	/**
+	 * Validates the project, handing every message to {@code listener} as soon
+	 * as its check completes. An interrupted validation stops between checks
+	 * and fails.
+	 */
+	public static ValidationResult validate(ProjectConfig cfg, Consumer<Message> listener) {
+		return validate(cfg, listener, false);
+	}
+
+	/**
+	 * As {@link #validate(ProjectConfig, Consumer)}; with {@code deepScan} the
+	 * measurement and simulation tables are also scanned for gaps, duplicate
+	 * timestamps, irregular steps, missing values and runs ending early.
+	 */
+	public static ValidationResult validate(ProjectConfig cfg, Consumer<Message> listener, boolean deepScan) {
+		List<String> info = new ReportingList(Level.INFO, listener);
+		List<String> warnings = new ReportingList(Level.WARNING, listener);
+		List<String> errors = new ReportingList(Level.ERROR, listener);
 
 		// 1) config + file existence
 		if (cfg == null) {
@@ -31,16 +97,45 @@ public final class ProjectValidator {
 			if (!errors.isEmpty())
 				return new ValidationResult(false, info, errors, warnings);
 
-			// 2) SQLite checks
-			validateSqlite(cfg.sqlitePath(), info, errors, warnings);
-
-			// 3) GeoPackage checks via JDBC (most deterministic)
-			validateGeoPackageSqliteSide(cfg.geopackagePath(), info, errors, warnings);
-
-			// 4) GeoTools open (sanity check dependencies)
-			validateGeoToolsOpen(cfg.geopackagePath(), info, errors, warnings);
+			Path sqlite = cfg.sqlitePath();
+			Path gpkg = cfg.geopackagePath();
+			List<Check> checks = new ArrayList<>(List.of(
+					// 2) SQLite checks
+					new Check("sqlite", List.of(sqlite), ExplorerConfig.sqliteMeasurementTable(),
+							(i, e, w) -> validateSqlite(sqlite, i, e, w)),
+					// 3) GeoPackage checks via JDBC (most deterministic)
+					new Check("geopackage", List.of(gpkg),
+							String.join("|", ExplorerConfig.geopackageBasinTable(),
+									ExplorerConfig.geopackageNetworkTable(),
+									ExplorerConfig.geopackageTopologyPrefix(),
+									ExplorerConfig.geopackageSimulationPrefix()),
+							(i, e, w) -> validateGeoPackageSqliteSide(gpkg, i, e, w)),
+					// 4) GeoTools open (sanity check dependencies)
+					new Check("geotools", List.of(gpkg), "", (i, e, w) -> validateGeoToolsOpen(gpkg, i, e, w))));
+			if (deepScan) {
+				String measurement = ExplorerConfig.sqliteMeasurementTable();
+				String simulationPrefix = ExplorerConfig.geopackageSimulationPrefix();
+				checks.add(new Check("deep-sqlite", List.of(sqlite), measurement,
+						(i, e, w) -> deepScan(sqlite, List.of(measurement), i, w, listener)));
+				checks.add(new Check("deep-geopackage", List.of(gpkg), simulationPrefix,
+						(i, e, w) -> deepScan(gpkg,
+								ProjectCatalog.of(gpkg).tableNamesStartingWith(gpkg, simulationPrefix), i, w,
+								listener)));
+			}
+			if (!runChecks(checks, info, errors, warnings))
+				return cancelled(info, errors, warnings);
 		}else {
-            validateLegacyFolder(cfg, info, errors, warnings);
+			Path root = cfg.legacyRootPath();
+			// the folder mtime does not change when a file is rewritten in place,
+			// so every file the check reads is part of the key
+			List<Path> files = root == null ? List.of()
+					: List.of(root, root.resolve("subbasins.csv"), root.resolve("subbasin_complete.shp"),
+							root.resolve("subbasin_complete.dbf"), root.resolve("network_complete.shp"),
+							root.resolve("network_compete.shp"));
+			Check legacy = new Check("legacy", files, cfg.legacyShpIdField() + "|" + cfg.legacyCsvIdColumn(),
+					(i, e, w) -> validateLegacyFolder(cfg, i, e, w));
+			if (!runChecks(List.of(legacy), info, errors, warnings))
+				return cancelled(info, errors, warnings);
 		}
 		boolean ok = errors.isEmpty();
 		if (ok) {
@@ -52,6 +147,123 @@ public final class ProjectValidator {
 		return new ValidationResult(ok, info, errors, warnings);
 	}
 
+	/**
+	 * Runs the checks concurrently and adds their messages in completion
+	 * order; false when interrupted while waiting, in which case the checks
+	 * still running are cancelled.
+	 */
+	private static boolean runChecks(List<Check> checks, List<String> info, List<String> errors,
+			List<String> warnings) {
+		ExecutorCompletionService<CheckResult> running = new ExecutorCompletionService<>(CHECKS);
+		List<Future<CheckResult>> submitted = new ArrayList<>();
+		for (Check check : checks) {
+			submitted.add(running.submit(() -> runCheck(check)));
+		}
+		for (int i = 0; i < checks.size(); i++) {
+			try {
+				CheckResult result = running.take().get();
+				// one add at a time, so that each line reaches the listener
+				result.info().forEach(info::add);
+				result.warnings().forEach(warnings::add);
+				result.errors().forEach(errors::add);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				submitted.forEach(f -> f.cancel(true));
+				return false;
+			} catch (ExecutionException ex) {
+				errors.add("Check failed: " + ex.getCause());
+			}
+		}
+		return true;
+	}
+
+	private static CheckResult runCheck(Check check) {
+		List<String> stamps = new ArrayList<>();
+		for (Path file : check.files()) {
+			stamps.add(stamp(file));
+		}
+		CheckKey key = new CheckKey(check.name(), check.files(), stamps, check.config());
+		CheckResult cached = CHECK_RESULTS.get(key);
+		if (cached != null) {
+			return cached;
+		}
+		List<String> info = new ArrayList<>();
+		List<String> errors = new ArrayList<>();
+		List<String> warnings = new ArrayList<>();
+		check.body().run(info, errors, warnings);
+		CheckResult result = new CheckResult(List.copyOf(info), List.copyOf(errors), List.copyOf(warnings));
+		if (Thread.currentThread().isInterrupted()) {
+			// cancelled while running: the body may have stopped half way
+			return result;
+		}
+		// results for previous versions of the same files are no longer needed
+		CHECK_RESULTS.keySet().removeIf(k -> k.name().equals(key.name()) && k.files().equals(key.files()));
+		CHECK_RESULTS.put(key, result);
+		return result;
+	}
+
+	private static String stamp(Path file) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+			return attrs.size() + ":" + attrs.lastModifiedTime().toMillis();
+		} catch (IOException ex) {
+			return "missing";
+		}
+	}
+
+	private static void deepScan(Path dbPath, List<String> tables, List<String> info, List<String> warnings,
+			Consumer<Message> listener) {
+		AtomicInteger done = new AtomicInteger();
+		List<SeriesQualityScan.TableQuality> scanned;
+		try {
+			scanned = SeriesQualityScan.scanAll(dbPath, tables,
+					q -> listener.accept(new Message(Level.PROGRESS, "— Deep scan " + dbPath.getFileName() + ": "
+							+ q.table() + " (" + done.incrementAndGet() + "/" + tables.size() + ")")));
+		} catch (InterruptedException ex) {
+			// runCheck does not keep the result of an interrupted check
+			Thread.currentThread().interrupt();
+			return;
+		}
+		for (SeriesQualityScan.TableQuality q : scanned) {
+			info.add("✅ Deep scan " + q.table() + ": " + q.basins().size() + " basins, " + q.rows() + " rows.");
+			long lastTs = Long.MIN_VALUE;
+			for (SeriesQualityScan.BasinQuality b : q.basins().values()) {
+				lastTs = Math.max(lastTs, b.lastTs());
+			}
+			long end = lastTs;
+			reportBasins(q, warnings, "basins ending before the others", b -> b.lastTs() < end,
+					b -> java.time.Instant.ofEpochMilli(b.lastTs()).toString());
+			reportBasins(q, warnings, "basins with gaps", b -> b.gaps() > 0, b -> b.gaps() + " gaps");
+			reportBasins(q, warnings, "basins with duplicate timestamps", b -> b.duplicates() > 0,
+					b -> b.duplicates() + " duplicates");
+			reportBasins(q, warnings, "basins with irregular time steps", b -> b.irregularSteps() > 0,
+					b -> b.irregularSteps() + " steps");
+			reportBasins(q, warnings, "basins with -9999/NULL values", b -> b.missing() > 0,
+					b -> String.format(Locale.ROOT, "%.1f%%", 100.0 * b.missingFraction()));
+		}
+	}
+
+	private static void reportBasins(SeriesQualityScan.TableQuality q, List<String> warnings, String what,
+			Predicate<SeriesQualityScan.BasinQuality> affected,
+			Function<SeriesQualityScan.BasinQuality, String> detail) {
+		List<String> examples = new ArrayList<>();
+		int count = 0;
+		for (SeriesQualityScan.BasinQuality b : q.basins().values()) {
+			if (affected.test(b) && count++ < QUALITY_EXAMPLES) {
+				examples.add(b.basinId() + ": " + detail.apply(b));
+			}
+		}
+		if (count > 0) {
+			warnings.add(q.table() + ": " + count + " " + what + " (" + String.join(", ", examples)
+					+ (count > QUALITY_EXAMPLES ? ", …" : "") + ").");
+		}
+	}
+
+	private static ValidationResult cancelled(List<String> info, List<String> errors, List<String> warnings) {
+		errors.add("Validation cancelled.");
+		return new ValidationResult(false, info, errors, warnings);
+	}
+
 	private static void checkFileExists(Path p, String label, List<String> info, List<String> errors) {
 		if (p == null) {
 			errors.add(label + " path is null.");
@@ -75,24 +287,26 @@ public final class ProjectValidator {
 	private static void validateSqlite(Path sqlitePath, List<String> info, List<String> errors, List<String> warnings) {
 		info.add("— Checking SQLite input…");
 		String measurementTable = ExplorerConfig.sqliteMeasurementTable();
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + sqlitePath)) {
-			info.add("✅ SQLite opened successfully.");
+		ProjectCatalog catalog = ProjectCatalog.of(sqlitePath);
+		if (catalog.tableNames(sqlitePath).isEmpty()) {
+			errors.add("SQLite: cannot open/read DB or no tables found: " + sqlitePath.getFileName());
+			return;
+		}
+		info.add("✅ SQLite opened successfully.");
 
-			if (!tableExists(c, measurementTable)) {
-				errors.add("SQLite: missing table '" + measurementTable + "'.");
-				return;
-			}
-			info.add("✅ SQLite table found: " + measurementTable);
+		Optional<ProjectCatalog.TableInfo> measurement = catalog.table(sqlitePath, measurementTable);
+		if (measurement.isEmpty()) {
+			errors.add("SQLite: missing table '" + measurementTable + "'.");
+			return;
+		}
+		info.add("✅ SQLite table found: " + measurementTable);
 
-			Set<String> cols = tableColumns(c, measurementTable);
-			requireColumns("SQLite.measurements", cols, Set.of("ts", "basin_id", "value"), info, errors);
+		Set<String> cols = lowerCase(measurement.get().columnNames());
+		requireColumns("SQLite.measurements", cols, Set.of("ts", "basin_id", "value"), info, errors);
 
-			// optional sanity warnings
-			if (!cols.contains("timestep"))
-				warnings.add("SQLite.measurements: 'timestep' column missing? (should be required)");
-		} catch (SQLException e) {
-			errors.add("SQLite: cannot open/read DB: " + e.getMessage());
-		}
+		// optional sanity warnings
+		if (!cols.contains("timestep"))
+			warnings.add("SQLite.measurements: 'timestep' column missing? (should be required)");
 	}
 
 	private static void validateGeoPackageSqliteSide(Path geopkgPath, List<String> info, List<String> errors,
@@ -102,38 +316,37 @@ public final class ProjectValidator {
 		String networkTable = ExplorerConfig.geopackageNetworkTable();
 		String topologyPrefix = ExplorerConfig.geopackageTopologyPrefix();
 		String simulationPrefix = ExplorerConfig.geopackageSimulationPrefix();
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + geopkgPath)) {
-			info.add("✅ GeoPackage opened as SQLite successfully.");
-
-			// Required layers/tables (as per your spec)
-			requireTable(c, basinTable, "GeoPackage", info, errors);
-			requireTable(c, networkTable, "GeoPackage", info, errors);
+		ProjectCatalog catalog = ProjectCatalog.of(geopkgPath);
+		if (catalog.tableNames(geopkgPath).isEmpty()) {
+			errors.add("GeoPackage: cannot open/read file or no tables found: " + geopkgPath.getFileName());
+			return;
+		}
+		info.add("✅ GeoPackage opened as SQLite successfully.");
 
-			boolean hasTopology = tableExists(c, topologyPrefix);
-			if (hasTopology || anyTableStartsWith(c, topologyPrefix)) {
-				info.add("✅ GeoPackage table found: " + topologyPrefix);
-			} else {
-				errors.add("GeoPackage: missing table with prefix '" + topologyPrefix + "'.");
-			}
+		// Required layers/tables (as per your spec)
+		requireTable(catalog, geopkgPath, basinTable, "GeoPackage", info, errors);
+		requireTable(catalog, geopkgPath, networkTable, "GeoPackage", info, errors);
 
-			// at least one table containing simulation+discharge (eg sim*_simulation_discharge)
-			List<String> sims = listSimulationDischargeTables(c, simulationPrefix, 10);
-			boolean hasSimulation = !sims.isEmpty();
-			if (hasSimulation) {
-				info.add("✅ GeoPackage simulation tables detected: " + sims + (sims.size() == 10 ? " …" : ""));
-			} else {
-				errors.add("GeoPackage: missing at least one table containing '" + simulationPrefix + "' and 'discharge'.");
-			}
+		if (!catalog.tableNamesStartingWith(geopkgPath, topologyPrefix).isEmpty()) {
+			info.add("✅ GeoPackage table found: " + topologyPrefix);
+		} else {
+			errors.add("GeoPackage: missing table with prefix '" + topologyPrefix + "'.");
+		}
 
-			// Optional: basic gpkg sanity
-			if (!tableExists(c, "gpkg_contents")) {
-				warnings.add("GeoPackage: 'gpkg_contents' not found. File may not be a valid GeoPackage.");
-			} else {
-				info.add("✅ GeoPackage core table found: gpkg_contents");
-			}
+		// at least one table containing simulation+discharge (eg sim*_simulation_discharge)
+		List<String> sims = listSimulationDischargeTables(catalog, geopkgPath, simulationPrefix, 10);
+		boolean hasSimulation = !sims.isEmpty();
+		if (hasSimulation) {
+			info.add("✅ GeoPackage simulation tables detected: " + sims + (sims.size() == 10 ? " …" : ""));
+		} else {
+			errors.add("GeoPackage: missing at least one table containing '" + simulationPrefix + "' and 'discharge'.");
+		}
 
-		} catch (SQLException e) {
-			errors.add("GeoPackage: cannot open/read file: " + e.getMessage());
+		// Optional: basic gpkg sanity
+		if (!catalog.hasTable(geopkgPath, "gpkg_contents")) {
+			warnings.add("GeoPackage: 'gpkg_contents' not found. File may not be a valid GeoPackage.");
+		} else {
+			info.add("✅ GeoPackage core table found: gpkg_contents");
 		}
 	}
 
@@ -172,103 +385,44 @@ public final class ProjectValidator {
 	}
 
 	// --- helpers ---
-	private static void requireTable(Connection c, String name, String label, List<String> info, List<String> errors)
-			throws SQLException {
-		if (!tableExists(c, name)) {
+	private static void requireTable(ProjectCatalog catalog, Path dbPath, String name, String label, List<String> info,
+			List<String> errors) {
+		if (!catalog.hasTable(dbPath, name)) {
 			errors.add(label + ": missing layer/table '" + name + "'.");
 		} else {
 			info.add("✅ " + label + " table found: " + name);
 		}
 	}
 
-	private static boolean tableExists(Connection c, String tableName) throws SQLException {
-		try (PreparedStatement ps = c.prepareStatement(
-				"SELECT name FROM sqlite_master WHERE type IN ('table','view') AND lower(name)=lower(?)")) {
-			ps.setString(1, tableName);
-			try (ResultSet rs = ps.executeQuery()) {
-				return rs.next();
-			}
-		}
-	}
-
-	private static boolean anyTableStartsWith(Connection c, String prefix) throws SQLException {
-		try (PreparedStatement ps = c.prepareStatement(
-				"SELECT name FROM sqlite_master WHERE type IN ('table','view') AND lower(name) LIKE lower(?)")) {
-			ps.setString(1, prefix + "%");
-			try (ResultSet rs = ps.executeQuery()) {
-				return rs.next();
-			}
-		}
-	}
-
-	private static List<String> listTablesStartingWith(Connection c, String prefix, int limit) throws SQLException {
-		List<String> out = new ArrayList<>();
-		try (PreparedStatement ps = c.prepareStatement(
-				"SELECT name FROM sqlite_master WHERE type IN ('table','view') AND lower(name) LIKE lower(?) ORDER BY name LIMIT ?")) {
-			ps.setString(1, prefix + "%");
-			ps.setInt(2, limit);
-			try (ResultSet rs = ps.executeQuery()) {
-				while (rs.next())
-					out.add(rs.getString(1));
-			}
-		}
-		return out;
-	}
-
 	public static List<String> listSimulationDischargeTables(Path sqliteDbPath, String simulationPrefix, int limit)
 			throws SQLException {
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + sqliteDbPath)) {
-			return listSimulationDischargeTables(c, simulationPrefix, limit);
-		}
+		return listSimulationDischargeTables(ProjectCatalog.of(sqliteDbPath), sqliteDbPath, simulationPrefix, limit);
 	}
 
 	public static List<String> listSimulationTables(Path sqliteDbPath, String simulationPrefix, int limit)
 			throws SQLException {
-		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + sqliteDbPath)) {
-			List<String> out = new ArrayList<>();
-			try (PreparedStatement ps = c.prepareStatement(
-					"SELECT name FROM sqlite_master WHERE type IN ('table','view') AND lower(name) LIKE lower(?) ORDER BY name LIMIT ?")) {
-				ps.setString(1, simulationPrefix + "%");
-				ps.setInt(2, limit);
-				try (ResultSet rs = ps.executeQuery()) {
-					while (rs.next()) {
-						out.add(rs.getString(1));
-					}
-				}
-			}
-			return out;
-		}
+		List<String> tables = ProjectCatalog.of(sqliteDbPath).tableNamesStartingWith(sqliteDbPath, simulationPrefix);
+		return tables.size() > limit ? tables.subList(0, limit) : tables;
 	}
 
-	private static List<String> listSimulationDischargeTables(Connection c, String simulationPrefix, int limit)
-			throws SQLException {
+	private static List<String> listSimulationDischargeTables(ProjectCatalog catalog, Path dbPath,
+			String simulationPrefix, int limit) {
 		List<String> out = new ArrayList<>();
-		try (PreparedStatement ps = c.prepareStatement(
-				"SELECT name FROM sqlite_master "
-						+ "WHERE type IN ('table','view') "
-						+ "AND lower(name) LIKE lower(?) "
-						+ "AND instr(lower(name), 'discharge') > 0 "
-						+ "ORDER BY name LIMIT ?")) {
-			ps.setString(1, simulationPrefix + "%");
-			ps.setInt(2, limit);
-			try (ResultSet rs = ps.executeQuery()) {
-				while (rs.next()) {
-					out.add(rs.getString(1));
-				}
+		for (String name : catalog.tableNamesStartingWith(dbPath, simulationPrefix)) {
+			if (out.size() >= limit) {
+				break;
+			}
+			if (name.toLowerCase(Locale.ROOT).contains("discharge")) {
+				out.add(name);
 			}
 		}
 		return out;
 	}
 
-	private static Set<String> tableColumns(Connection c, String tableName) throws SQLException {
+	private static Set<String> lowerCase(Set<String> names) {
 		Set<String> cols = new HashSet<>();
-		try (Statement st = c.createStatement();
-				ResultSet rs = st.executeQuery("PRAGMA table_info('" + tableName.replace("'", "''") + "')")) {
-			while (rs.next()) {
-				String name = rs.getString("name");
-				if (name != null)
-					cols.add(name.toLowerCase(Locale.ROOT));
-			}
+		for (String name : names) {
+			cols.add(name.toLowerCase(Locale.ROOT));
 		}
 		return cols;
 	}
@@ -288,6 +442,37 @@ public final class ProjectValidator {
 
 	public record ValidationResult(boolean ok, List<String> info, List<String> errors, List<String> warnings) {
 	}
+
+	/**
+	 * PROGRESS messages are only streamed to the listener, they are not part
+	 * of the result.
+	 */
+	public enum Level {
+		INFO, WARNING, ERROR, PROGRESS
+	}
+
+	public record Message(Level level, String text) {
+	}
+
+	/**
+	 * Message list that reports each line to the listener as it is added.
+	 */
+	private static final class ReportingList extends ArrayList<String> {
+		private static final long serialVersionUID = 1L;
+		private final transient Level level;
+		private final transient Consumer<Message> listener;
+
+		private ReportingList(Level level, Consumer<Message> listener) {
+			this.level = level;
+			this.listener = listener;
+		}
+
+		@Override
+		public boolean add(String text) {
+			listener.accept(new Message(level, text));
+			return super.add(text);
+		}
+	}
 	
 	
 	  private static void checkDirectoryExists(Path p, String label, List<String> info, List<String> errors) {
@@ -2,12 +2,17 @@ package it.geoframe.blogpost.subbasins.explorer.ui;
 
 import javax.swing.*;
 
+import it.geoframe.blogpost.subbasins.explorer.io.LegacyProjectImporter;
+import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfigStore;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectValidator;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectMode;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 public final class LoadFileController {
 
@@ -23,9 +28,20 @@ public final class LoadFileController {
 	private Path legacyRootPath;
 	private ProjectMode mode = ProjectMode.GEOPACKAGE;
 
+	// validation runs off the EDT, after a quiet time when triggered by typing
+	private final Timer validationTimer;
+	private SwingWorker<ProjectValidator.ValidationResult, ProjectValidator.Message> validation;
+	private ProjectConfig validatedConfig;
+	private ProjectValidator.ValidationResult validatedResult;
+	private boolean validatedDeepScan;
+	private boolean importing;
+	private String importReport;
+
 	public LoadFileController(LoadFileView view, Navigator navigator) {
 		this.view = view;
 		this.navigator = navigator;
+		this.validationTimer = new Timer(ExplorerConfig.validationDebounceMillis(), e -> revalidateAndUpdateUI());
+		this.validationTimer.setRepeats(false);
 		wire();
 		preloadIfPresent();
 		revalidateAndUpdateUI();
@@ -73,16 +89,20 @@ public final class LoadFileController {
 		});
 
 		view.legacyShpIdFieldInput().getDocument()
-				.addDocumentListener(new SimpleDocumentListener(this::revalidateAndUpdateUI));
+				.addDocumentListener(new SimpleDocumentListener(this::scheduleValidation));
 		view.legacyCsvIdFieldInput().getDocument()
-				.addDocumentListener(new SimpleDocumentListener(this::revalidateAndUpdateUI));
+				.addDocumentListener(new SimpleDocumentListener(this::scheduleValidation));
+
+		view.deepScanCheckBox().addActionListener(e -> revalidateAndUpdateUI());
+
+		view.importButton().addActionListener(e -> importLegacyProject());
 
 		view.continueButton().addActionListener(e -> {
 			ProjectConfig cfg = currentConfig();
-			var result = ProjectValidator.validate(cfg);
-			if (!result.ok()) {
+			if (validatedResult == null || !cfg.equals(validatedConfig) || validatedDeepScan != deepScan()
+					|| !validatedResult.ok()) {
 				// dovrebbe essere già disabilitato, ma doppio check
-				showResult(result);
+				revalidateAndUpdateUI();
 				return;
 			}
 			ProjectConfigStore.save(cfg);
@@ -113,8 +133,33 @@ public final class LoadFileController {
 		});
 	}
 
+	/**
+	 * Validates again once the user has stopped typing for
+	 * {@link ExplorerConfig#validationDebounceMillis()}.
+	 */
+	private void scheduleValidation() {
+		cancelValidation();
+		view.setContinueEnabled(false);
+		view.setImportEnabled(false);
+		validationTimer.restart();
+	}
+
+	private boolean deepScan() {
+		return mode == ProjectMode.GEOPACKAGE && view.deepScanCheckBox().isSelected();
+	}
+
+	private void cancelValidation() {
+		if (validation != null) {
+			validation.cancel(true);
+			validation = null;
+		}
+	}
+
 	private void revalidateAndUpdateUI() {
+		validationTimer.stop();
+		cancelValidation();
 		if (mode == ProjectMode.GEOPACKAGE) {
+			view.setImportEnabled(false);
 			if (geopackagePath == null || sqlitePath == null) {
 				view.setContinueEnabled(false);
 				view.setLogText("Select a GeoPackage and a SQLite file.");
@@ -123,20 +168,141 @@ public final class LoadFileController {
 		} else {
 			if (legacyRootPath == null) {
 				view.setContinueEnabled(false);
+				view.setImportEnabled(false);
 				view.setLogText("Select the legacy folder and fill the ID fields.");
 				return;
 
 			}
 		}
 		ProjectConfig cfg = currentConfig();
-		var result = ProjectValidator.validate(cfg);
+		boolean deepScan = deepScan();
+		view.setContinueEnabled(false);
+		view.setImportEnabled(false);
+		view.setLogText("Validating…\n");
+		validation = new SwingWorker<>() {
+
+			@Override
+			protected ProjectValidator.ValidationResult doInBackground() {
+				return ProjectValidator.validate(cfg, m -> publish(m), deepScan);
+			}
+
+			@Override
+			protected void process(List<ProjectValidator.Message> chunks) {
+				if (validation != this) {
+					return;
+				}
+				for (ProjectValidator.Message m : chunks) {
+					switch (m.level()) {
+					case WARNING -> view.appendLogLine("Warning: " + m.text());
+					case ERROR -> view.appendLogLine("Error: " + m.text());
+					default -> view.appendLogLine(m.text());
+					}
+				}
+			}
+
+			@Override
+			protected void done() {
+				if (validation != this || isCancelled()) {
+					return;
+				}
+				validation = null;
+				try {
+					ProjectValidator.ValidationResult result = get();
+					validatedConfig = cfg;
+					validatedResult = result;
+					validatedDeepScan = deepScan;
+					showResult(result);
+					view.setContinueEnabled(result.ok() && !importing);
+					view.setImportEnabled(mode == ProjectMode.LEGACY_FOLDER && result.ok() && !importing);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException ex) {
+					view.appendLogLine("❌ Validation failed: " + ex.getCause().getMessage());
+				}
+			}
+		};
+		validation.execute();
+	}
+
+	/**
+	 * Converts the legacy folder into a GeoPackage + SQLite project in the
+	 * background, then selects the new files.
+	 */
+	private void importLegacyProject() {
+		ProjectConfig cfg = currentConfig();
+		Path gpkg = chooseSaveFile("Save GeoPackage", legacyRootPath.getFileName() + ".gpkg");
+		if (gpkg == null) {
+			return;
+		}
+		String name = gpkg.getFileName().toString();
+		String stem = name.toLowerCase().endsWith(".gpkg") ? name.substring(0, name.length() - 5) : name;
+		Path sqlite = gpkg.resolveSibling(stem + "_measurement.sqlite");
+		if ((Files.exists(gpkg) || Files.exists(sqlite)) && JOptionPane.showConfirmDialog(view,
+				"Overwrite " + gpkg.getFileName() + " and " + sqlite.getFileName() + "?", "Convert to GeoPackage",
+				JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+			return;
+		}
+		validationTimer.stop();
+		cancelValidation();
+		importing = true;
+		view.setImportEnabled(false);
+		view.setContinueEnabled(false);
+		view.appendLogLine("Converting " + legacyRootPath + " to " + gpkg + " …");
+		new SwingWorker<LegacyProjectImporter.Result, LegacyProjectImporter.Progress>() {
 
-		showResult(result);
-		view.setContinueEnabled(result.ok());
+			@Override
+			protected LegacyProjectImporter.Result doInBackground() throws Exception {
+				return LegacyProjectImporter.importProject(cfg, gpkg, sqlite, p -> publish(p));
+			}
+
+			@Override
+			protected void process(List<LegacyProjectImporter.Progress> chunks) {
+				for (LegacyProjectImporter.Progress p : chunks) {
+					// a line every 10% of a step
+					if (p.total() > 0 && (p.done() == p.total() || p.done() % Math.max(1, p.total() / 10) == 0)) {
+						view.appendLogLine(" - " + p.step() + ": " + p.done() + "/" + p.total());
+					}
+				}
+			}
+
+			@Override
+			protected void done() {
+				importing = false;
+				try {
+					LegacyProjectImporter.Result result = get();
+					mode = ProjectMode.GEOPACKAGE;
+					geopackagePath = result.geopackage();
+					sqlitePath = result.sqlite();
+					view.setGeopackagePath(geopackagePath.toString());
+					view.setSqlitePath(sqlitePath.toString());
+					view.geopackageModeButton().setSelected(true);
+					view.setGeopackageEnabled(true);
+					view.setLegacyEnabled(false);
+					StringBuilder report = new StringBuilder("✅ Converted ").append(result.basins())
+							.append(" subbasins, ").append(result.tables()).append(" tables, ").append(result.rows())
+							.append(" rows.\n");
+					for (String w : result.warnings()) {
+						report.append(" - ").append(w).append("\n");
+					}
+					importReport = report.toString();
+					revalidateAndUpdateUI();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException ex) {
+					importReport = "❌ Conversion failed: " + ex.getCause().getMessage() + "\n";
+					revalidateAndUpdateUI();
+				}
+			}
+		}.execute();
 	}
 
 	private void showResult(ProjectValidator.ValidationResult result) {
 		StringBuilder sb = new StringBuilder();
+		if (importReport != null) {
+			// shown once, above the validation of the converted project
+			sb.append(importReport).append("\n");
+			importReport = null;
+		}
 		if (result.ok())
 			sb.append("✅ Validation OK\n\n");
 
@@ -179,6 +345,17 @@ public final class LoadFileController {
 		return null;
 	}
 	
+	private Path chooseSaveFile(String title, String suggestedName) {
+		JFileChooser fc = new JFileChooser();
+		fc.setDialogTitle(title);
+		fc.setSelectedFile(new java.io.File(suggestedName));
+		int res = fc.showSaveDialog(view);
+		if (res == JFileChooser.APPROVE_OPTION) {
+			return fc.getSelectedFile().toPath();
+		}
+		return null;
+	}
+
 	 private Path chooseDirectory(String title) {
 	        JFileChooser fc = new JFileChooser();
 	        fc.setDialogTitle(title);
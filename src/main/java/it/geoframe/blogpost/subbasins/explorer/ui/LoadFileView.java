@@ -30,6 +30,8 @@ public class LoadFileView extends JPanel {
     private final JTextField m_legacyCsvIdField = new JTextField();
     
     
+    private final JCheckBox m_deepScan = new JCheckBox("Deep data-quality scan (reads every series once)");
+
     private final JTextArea m_checkFileText = new JTextArea();
 
     private final JButton m_browseGeopButton = new JButton("Browse…");
@@ -37,6 +39,7 @@ public class LoadFileView extends JPanel {
     private final JButton m_browseLegacyRootButton = new JButton("Browse…");
     
     private final JButton m_continueButton = new JButton("Continue");
+    private final JButton m_importButton = new JButton("Convert to GeoPackage…");
 
     public LoadFileView() {
         buildUi();
@@ -68,6 +71,10 @@ public class LoadFileView extends JPanel {
 
         // Continue disabled until valid
         m_continueButton.setEnabled(false);
+        m_importButton.setEnabled(false);
+        m_deepScan.setOpaque(false);
+        m_deepScan.setToolTipText("Check gaps, duplicate timestamps, time steps and -9999 values of the measurement and simulation tables");
+        m_importButton.setToolTipText("Import the legacy folder into a GeoPackage + SQLite project");
         setGeopackageEnabled(true);
         setLegacyEnabled(false);
 
@@ -105,6 +112,8 @@ public class LoadFileView extends JPanel {
     public JButton browseSqliteButton() { return m_browseSqliteButton; }
     public JButton continueButton() { return m_continueButton; }
     public JButton browseLegacyRootButton() { return m_browseLegacyRootButton; }
+    public JButton importButton() { return m_importButton; }
+    public JCheckBox deepScanCheckBox() { return m_deepScan; }
     
     public JRadioButton geopackageModeButton() { return m_geopackageMode; }
     public JRadioButton legacyModeButton() { return m_legacyMode; }
@@ -136,6 +145,10 @@ public class LoadFileView extends JPanel {
         m_continueButton.setEnabled(enabled);
     }
 
+    public void setImportEnabled(boolean enabled) {
+        m_importButton.setEnabled(enabled);
+    }
+
     public void setLegacyRootPath(String path) {
         m_legacyRootField.setText(path == null ? "(not selected)" : path);
         m_legacyRootField.setToolTipText(path);
@@ -157,6 +170,7 @@ public class LoadFileView extends JPanel {
 
     
     public void setGeopackageEnabled(boolean enabled) {
+        m_deepScan.setEnabled(enabled);
         m_geopPathField.setEnabled(enabled);
         m_sqlitePathField.setEnabled(enabled);
         m_browseGeopButton.setEnabled(enabled);
@@ -214,6 +228,13 @@ public class LoadFileView extends JPanel {
         content.add(sectionRow(m_legacyCsvIdLabel, m_legacyCsvIdField, null));
 
 
+        content.add(Box.createVerticalStrut(12));
+        JPanel deepScanRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        deepScanRow.setOpaque(false);
+        deepScanRow.add(m_deepScan);
+        content.add(deepScanRow);
+        content.add(Box.createVerticalStrut(12));
+
         // Log area
         JLabel logLabel = new JLabel("Checks / log");
         logLabel.setFont(logLabel.getFont().deriveFont(Font.BOLD));
@@ -239,6 +260,11 @@ public class LoadFileView extends JPanel {
         right.setOpaque(false);
         right.add(m_continueButton);
 
+        JPanel left = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        left.setOpaque(false);
+        left.add(m_importButton);
+
+        actions.add(left, BorderLayout.WEST);
         actions.add(right, BorderLayout.EAST);
         content.add(actions);
 
@@ -7,7 +7,6 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.io.IOException;
-import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -71,7 +70,6 @@ import it.geoframe.blogpost.subbasins.explorer.services.ExplorerConfig;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfigStore;
 import it.geoframe.blogpost.subbasins.explorer.services.ProjectMode;
-import it.geoframe.blogpost.subbasins.explorer.services.ProjectValidator;
 import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesLoader;
 import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesRepository;
 import it.geoframe.blogpost.subbasins.explorer.model.ChartRequest;
@@ -108,6 +106,13 @@ public final class SubbasinExplorerPanel extends JPanel {
 		this.config = config;
 		buildUi();
 		SwingUtilities.invokeLater(this::loadMapLayers);
+		timeseriesLoader.prepareProject(config);
+	}
+
+	@Override
+	public void removeNotify() {
+		super.removeNotify();
+		timeseriesLoader.closeProject(config);
 	}
 
 	private void buildUi() {
@@ -212,7 +217,8 @@ public final class SubbasinExplorerPanel extends JPanel {
 			statusLabel.setText("Seleziona prima un sottobacino.");
 			return;
 		}
-		new ChartSetupDialog(this, config.mode(), loadSimulationTableNames(), this::openTimeseriesWindow).showDialog();
+		new ChartSetupDialog(this, config, timeseriesLoader, this::openTimeseriesWindow)
+				.showDialog();
 	}
 
 	private void openTimeseriesWindow(ChartRequest request) {
@@ -223,20 +229,6 @@ public final class SubbasinExplorerPanel extends JPanel {
 		timeseriesWindow.showForSelection(selectedSubbasinId, request.simulationTable(), request.chartType());
 	}
 
-	private String[] loadSimulationTableNames() {
-		if (config == null || config.mode() != ProjectMode.GEOPACKAGE || config.geopackagePath() == null) {
-			return new String[0];
-		}
-		try {
-			List<String> simulationTables = ProjectValidator.listSimulationTables(config.geopackagePath(),
-					ExplorerConfig.geopackageSimulationPrefix(), 500);
-			return simulationTables.toArray(String[]::new);
-		} catch (SQLException e) {
-			statusLabel.setText("Errore lettura tabelle simulazione: " + e.getMessage());
-			return new String[0];
-		}
-	}
-
 	private List<String> loadAllTableNamesFromInputs() {
 		return timeseriesLoader.listAllTableNames(config);
 	}
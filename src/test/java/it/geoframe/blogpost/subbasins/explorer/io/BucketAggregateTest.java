@@ -0,0 +1,33 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BucketAggregateTest {
+
+	@Test
+	void differenceSubtractsTheSecondColumn() {
+		BucketAggregate delta = BucketAggregate.difference("canopy_delta", "canopy_final", "canopy_initial");
+
+		assertEquals(BucketAggregate.Kind.SUM, delta.kind());
+		assertEquals(List.of("canopy_final"), delta.plus());
+		assertEquals(List.of("canopy_initial"), delta.minus());
+	}
+
+	@Test
+	void stepDeltaTakesExactlyOneColumn() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new BucketAggregate("swe", BucketAggregate.Kind.STEP_DELTA, List.of("a", "b"), List.of()));
+		assertThrows(IllegalArgumentException.class, () -> BucketAggregate.sum("empty"));
+	}
+
+	@Test
+	void fixedBucketsFloorNegativeTimestamps() {
+		assertEquals("((\"ts\" / 86400000 - (\"ts\" % 86400000 < 0)) * 86400000)",
+				BucketAggregate.bucketStart("\"ts\"", "24H"));
+	}
+}
@@ -0,0 +1,18 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LegacyProjectImporterTest {
+
+	@Test
+	void observationsNeedAnObsWordOrTheGaugePrefix() {
+		assertTrue(LegacyProjectImporter.isObservation("discharge_obs"));
+		assertTrue(LegacyProjectImporter.isObservation("OBS-Q"));
+		assertTrue(LegacyProjectImporter.isObservation("observed_discharge_12"));
+		assertFalse(LegacyProjectImporter.isObservation("globsnow_swe"));
+		assertFalse(LegacyProjectImporter.isObservation("robson_discharge"));
+	}
+}
@@ -0,0 +1,93 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Manual benchmark of the basin row read done by the loader, with the plain
+ * read-only profile and with the one configured in explorer.properties. Not a
+ * unit test: run it against a real simulation table, e.g.
+ *
+ * <pre>
+ * java -cp target/test-classes:target/classes:... \
+ *     it.geoframe.blogpost.subbasins.explorer.io.LoadRowsBenchmark \
+ *     /data/project.gpkg sim_state basin_id 42 ts swe,canopy_aet,rootzone_aet [runs]
+ * </pre>
+ *
+ * The first run of each profile is reported separately since it includes
+ * reading the pages from disk.
+ */
+public final class LoadRowsBenchmark {
+
+	private LoadRowsBenchmark() {
+	}
+
+	public static void main(String[] args) throws SQLException {
+		if (args.length < 6) {
+			System.err.println("Usage: LoadRowsBenchmark <db> <table> <basinColumn> <basinId> <tsColumn> "
+					+ "<col1,col2,...> [runs]");
+			System.exit(1);
+		}
+		Path db = Paths.get(args[0]);
+		String sql = buildQuery(args[1], args[2], args[4], args[5].split(","));
+		String basinId = args[3];
+		int runs = args.length > 6 ? Integer.parseInt(args[6]) : 5;
+
+		run("plain", SqliteReadProfile.plain(), db, sql, basinId, runs);
+		run("configured", SqliteReadProfile.fromConfig(), db, sql, basinId, runs);
+	}
+
+	private static void run(String label, SqliteReadProfile profile, Path db, String sql, String basinId, int runs)
+			throws SQLException {
+		try (Connection c = profile.open(db)) {
+			long first = 0;
+			long total = 0;
+			long rows = 0;
+			for (int i = 0; i <= runs; i++) {
+				long start = System.nanoTime();
+				rows = readAll(c, sql, basinId);
+				long elapsed = System.nanoTime() - start;
+				if (i == 0) {
+					first = elapsed;
+				} else {
+					total += elapsed;
+				}
+			}
+			System.out.println(String.format(Locale.ROOT, "%-10s %s -> rows=%d first=%.1f ms mean=%.1f ms", label,
+					profile, rows, first / 1e6, total / 1e6 / Math.max(1, runs)));
+		}
+	}
+
+	private static long readAll(Connection c, String sql, String basinId) throws SQLException {
+		long rows = 0;
+		double checksum = 0;
+		try (PreparedStatement ps = c.prepareStatement(sql)) {
+			ps.setString(1, basinId);
+			try (ResultSet rs = ps.executeQuery()) {
+				int columns = rs.getMetaData().getColumnCount();
+				while (rs.next()) {
+					rows++;
+					checksum += rs.getLong(1);
+					for (int i = 2; i <= columns; i++) {
+						checksum += rs.getDouble(i);
+					}
+				}
+			}
+		}
+		return checksum == Double.MIN_VALUE ? -1 : rows;
+	}
+
+	private static String buildQuery(String table, String basinColumn, String tsColumn, String[] columns) {
+		StringBuilder sql = new StringBuilder("SELECT \"").append(tsColumn).append('"');
+		for (String col : columns) {
+			sql.append(", \"").append(col.trim()).append('"');
+		}
+		return sql.append(" FROM \"").append(table).append("\" WHERE \"").append(basinColumn).append("\"=? ORDER BY \"")
+				.append(tsColumn).append('"').toString();
+	}
+}
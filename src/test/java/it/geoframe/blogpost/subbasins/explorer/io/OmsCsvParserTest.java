@@ -0,0 +1,47 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+class OmsCsvParserTest {
+
+	private static final String FILE = "@T,Table\r\n" + "Created,2021-03-01 10:00\r\n" + "@H,datetime,swe,rootzone_aet\r\n"
+			+ "Type,Date,Double,Double\r\n" + "Format,yyyy-MM-dd HH:mm,,\r\n" + ",2000-01-01 00:00,1.25,-9999\r\n"
+			+ ",2000-01-01 01:00,-3.5e-2,0.125\r\n" + ",2000-01-01 02:00,,7\r\n";
+
+	@Test
+	void readsFirstValueColumnAsSingleSeries() throws IOException {
+		SeriesBlock block = OmsCsvParser.parse(write(FILE));
+
+		assertEquals(3, block.size());
+		assertEquals(946684800000L, block.timestamp(0));
+		assertEquals(946684800000L + 3_600_000L, block.timestamp(1));
+		assertEquals(1.25, block.value(SeriesCursor.VALUE, 0));
+		assertEquals(-0.035, block.value(SeriesCursor.VALUE, 1), 1e-15);
+		assertTrue(Double.isNaN(block.value(SeriesCursor.VALUE, 2)));
+	}
+
+	@Test
+	void readsNamedColumnsIgnoringCase() throws IOException {
+		SeriesBlock block = OmsCsvParser.parse(write(FILE), "ROOTZONE_AET", "missing");
+
+		assertEquals(3, block.size());
+		assertTrue(Double.isNaN(block.value("ROOTZONE_AET", 0)));
+		assertEquals(0.125, block.value("ROOTZONE_AET", 1));
+		assertEquals(7.0, block.value("ROOTZONE_AET", 2));
+		assertTrue(Double.isNaN(block.value("missing", 1)));
+	}
+
+	private static Path write(String content) throws IOException {
+		Path file = Files.createTempFile("oms", ".csv");
+		file.toFile().deleteOnExit();
+		Files.writeString(file, content);
+		return file;
+	}
+}
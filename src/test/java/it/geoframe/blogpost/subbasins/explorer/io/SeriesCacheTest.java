@@ -0,0 +1,50 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class SeriesCacheTest {
+
+	@Test
+	void evictsLeastRecentlyUsedBeyondBudget() {
+		SeriesBlock a = block(10);
+		SeriesBlock b = block(10);
+		SeriesBlock c = block(10);
+		// 10 rows x (ts + value) x 8 bytes = 160 bytes per block
+		SeriesCache cache = new SeriesCache(2 * a.sizeInBytes());
+		cache.put("a", a);
+		cache.put("b", b);
+		cache.get("a");
+		cache.put("c", c);
+
+		SeriesCache.Stats stats = cache.stats();
+		assertEquals(2, stats.entries());
+		assertEquals(1, stats.evictions());
+		assertEquals(2 * a.sizeInBytes(), stats.bytes());
+		assertSame(a, cache.get("a"));
+		assertSame(c, cache.get("c"));
+	}
+
+	@Test
+	void evictedBlocksAreServedFromSoftReferences() {
+		SeriesBlock a = block(10);
+		SeriesCache cache = new SeriesCache(a.sizeInBytes());
+		cache.put("a", a);
+		cache.put("b", block(10));
+
+		assertSame(a, cache.get("a"));
+		SeriesCache.Stats stats = cache.stats();
+		assertEquals(1, stats.softHits());
+		assertEquals(1, stats.entries());
+	}
+
+	private static SeriesBlock block(int rows) {
+		SeriesBlock.Builder b = SeriesBlock.builder(rows, SeriesCursor.VALUE);
+		for (int i = 0; i < rows; i++) {
+			b.addRow(i * 1000L, i);
+		}
+		return b.build();
+	}
+}
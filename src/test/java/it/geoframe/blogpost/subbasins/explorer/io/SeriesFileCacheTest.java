@@ -0,0 +1,53 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SeriesFileCacheTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void blockReadBeforeAChangeIsNotStored() throws IOException {
+		Path db = dir.resolve("out.sqlite");
+		Files.write(db, new byte[4096]);
+		SourceStamp beforeRead = SourceStamp.of(db);
+		// a writer commits while the rows are being read
+		Files.write(dir.resolve("out.sqlite-wal"), new byte[512]);
+
+		SeriesFileCache.write(db, beforeRead, "q", "1", block());
+
+		assertFalse(SeriesFileCache.read(db, "q", "1", SeriesCursor.VALUE).isPresent());
+	}
+
+	@Test
+	void blockOfAnUnchangedSourceIsServed() throws IOException {
+		Path db = dir.resolve("out.sqlite");
+		Files.write(db, new byte[4096]);
+
+		SeriesFileCache.write(db, SourceStamp.of(db), "q", "1", block());
+
+		Optional<SeriesBlock> cached = SeriesFileCache.read(db, "q", "1", SeriesCursor.VALUE);
+		assertTrue(cached.isPresent());
+		assertEquals(3, cached.get().size());
+		assertEquals(2.5, cached.get().value(0, 2), 0.0);
+	}
+
+	private static SeriesBlock block() {
+		SeriesBlock.Builder b = SeriesBlock.builder(3, SeriesCursor.VALUE);
+		b.addRow(0L, 0.5);
+		b.addRow(1_000L, 1.5);
+		b.addRow(2_000L, 2.5);
+		return b.build();
+	}
+}
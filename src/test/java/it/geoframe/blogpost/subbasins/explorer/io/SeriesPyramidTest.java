@@ -0,0 +1,50 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+class SeriesPyramidTest {
+
+	private static final long HOUR = 3_600_000L;
+
+	@Test
+	void bucketsKeepMinMaxMeanAndCount() {
+		SeriesBlock.Builder b = SeriesBlock.builder(SeriesCursor.VALUE);
+		double[] values = { 1, 5, Double.NaN, 3, 2, 2, 2, 2 };
+		for (int i = 0; i < values.length; i++) {
+			b.addRow(i * HOUR, values[i]);
+		}
+		SeriesPyramid pyramid = SeriesPyramid.build(b.build());
+		SeriesBlock level = pyramid.level(1, new TimeRange(0, Long.MAX_VALUE));
+
+		assertEquals(2, level.size());
+		assertEquals(1.0, level.value(SeriesPyramid.MIN, 0));
+		assertEquals(5.0, level.value(SeriesPyramid.MAX, 0));
+		assertEquals(3.0, level.value(SeriesPyramid.MEAN, 0));
+		assertEquals(3.0, level.value(SeriesPyramid.COUNT, 0));
+		assertEquals(4 * HOUR, level.timestamp(1));
+	}
+
+	@Test
+	void queryPicksFinestLevelWithinBucketBudget() {
+		int rows = 100_000;
+		SeriesBlock.Builder b = SeriesBlock.builder(rows, SeriesCursor.VALUE);
+		for (int i = 0; i < rows; i++) {
+			b.addRow(i * HOUR, Math.sin(i / 24.0));
+		}
+		SeriesPyramid pyramid = SeriesPyramid.of(SeriesPyramid.build(b.build()).packed());
+		TimeRange all = new TimeRange(0, (rows - 1) * HOUR);
+
+		Optional<SeriesBlock> overview = pyramid.query(all, 1500);
+		assertTrue(overview.isPresent());
+		assertTrue(overview.get().size() <= 1500);
+		assertTrue(overview.get().size() > 1500 / 4);
+		assertEquals(-1.0, overview.get().value(SeriesPyramid.MIN, 0), 1e-3);
+
+		assertTrue(pyramid.query(new TimeRange(0, 1000 * HOUR), 1500).isEmpty());
+	}
+}
@@ -0,0 +1,87 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SeriesQualityScanTest {
+
+	private static final long HOUR = 3_600_000L;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void findsUsualStepGapsAndDuplicates() {
+		SeriesQualityScan.Accumulator acc = new SeriesQualityScan.Accumulator();
+		acc.start("12");
+		long[] ts = { 0, HOUR, 2 * HOUR, 2 * HOUR, 3 * HOUR, 6 * HOUR, 7 * HOUR, 7 * HOUR + HOUR / 2 };
+		for (int i = 0; i < ts.length; i++) {
+			acc.add(ts[i], i == 1);
+		}
+		SeriesQualityScan.BasinQuality q = acc.finish();
+
+		assertEquals("12", q.basinId());
+		assertEquals(8, q.rows());
+		assertEquals(0, q.firstTs());
+		assertEquals(7 * HOUR + HOUR / 2, q.lastTs());
+		assertEquals(HOUR, q.stepMillis());
+		assertEquals(1, q.duplicates());
+		assertEquals(1, q.gaps());
+		assertEquals(1, q.irregularSteps());
+		assertEquals(1.0 / 8, q.missingFraction(), 1e-12);
+		assertTrue(q.hasIssues());
+	}
+
+	@Test
+	void restartsForEachBasin() {
+		SeriesQualityScan.Accumulator acc = new SeriesQualityScan.Accumulator();
+		acc.start("1");
+		acc.add(0, true);
+		acc.add(5 * HOUR, true);
+		acc.finish();
+		acc.start("2");
+		for (int i = 0; i < 2000; i++) {
+			acc.add(i * HOUR, false);
+		}
+		SeriesQualityScan.BasinQuality q = acc.finish();
+
+		assertEquals(2000, q.rows());
+		assertEquals(HOUR, q.stepMillis());
+		assertFalse(q.hasIssues());
+	}
+
+	@Test
+	void interruptedScanReturnsNoPartialList() throws SQLException {
+		Path db = dir.resolve("scan.sqlite");
+		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db); Statement st = c.createStatement()) {
+			st.execute("CREATE TABLE q (ts INTEGER, basin_id TEXT, value REAL)");
+			st.execute("INSERT INTO q VALUES (0, '1', 1.0), (3600000, '1', 2.0)");
+		}
+		CountDownLatch release = new CountDownLatch(1);
+		Thread.currentThread().interrupt();
+		try {
+			assertThrows(InterruptedException.class, () -> SeriesQualityScan.scanAll(db, List.of("q"), q -> {
+				try {
+					release.await();
+				} catch (InterruptedException ignored) {
+				}
+			}));
+		} finally {
+			Thread.interrupted();
+			release.countDown();
+		}
+	}
+}
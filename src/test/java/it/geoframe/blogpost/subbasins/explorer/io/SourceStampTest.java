@@ -0,0 +1,36 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SourceStampTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void commitToTheWalChangesTheStamp() throws IOException {
+		Path db = dir.resolve("out.sqlite");
+		Files.write(db, new byte[4096]);
+		SourceStamp before = SourceStamp.of(db);
+		assertEquals(before, SourceStamp.of(db));
+
+		Files.write(dir.resolve("out.sqlite-wal"), new byte[512]);
+
+		assertNotEquals(before, SourceStamp.of(db));
+		assertNotEquals(before.token(), SourceStamp.of(db).token());
+	}
+
+	@Test
+	void missingSourceDoesNotExist() {
+		assertFalse(SourceStamp.of(dir.resolve("missing.sqlite")).exists());
+	}
+}
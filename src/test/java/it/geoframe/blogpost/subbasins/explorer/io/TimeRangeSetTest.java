@@ -0,0 +1,53 @@
+package it.geoframe.blogpost.subbasins.explorer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TimeRangeSetTest {
+
+	@Test
+	void addMergesOverlappingAndAdjacentRanges() {
+		TimeRangeSet set = new TimeRangeSet();
+		set.add(new TimeRange(100, 200));
+		set.add(new TimeRange(300, 400));
+		set.add(new TimeRange(201, 250));
+		set.add(new TimeRange(240, 310));
+
+		assertEquals(List.of(new TimeRange(100, 400)), set.ranges());
+	}
+
+	@Test
+	void openEndedRangesMergeWithTheirNeighbours() {
+		TimeRangeSet set = new TimeRangeSet();
+		set.add(new TimeRange(500, 600));
+		set.add(new TimeRange(601, Long.MAX_VALUE));
+		set.add(new TimeRange(Long.MIN_VALUE, 99));
+		set.add(new TimeRange(100, 200));
+
+		assertEquals(List.of(new TimeRange(Long.MIN_VALUE, 200), new TimeRange(500, Long.MAX_VALUE)), set.ranges());
+
+		set.add(new TimeRange(Long.MIN_VALUE, 10));
+		set.add(new TimeRange(300, Long.MAX_VALUE));
+		assertEquals(List.of(new TimeRange(Long.MIN_VALUE, 200), new TimeRange(300, Long.MAX_VALUE)), set.ranges());
+
+		set.add(new TimeRange(201, 299));
+		assertEquals(List.of(new TimeRange(Long.MIN_VALUE, Long.MAX_VALUE)), set.ranges());
+		assertTrue(set.covers(new TimeRange(Long.MIN_VALUE, Long.MAX_VALUE)));
+	}
+
+	@Test
+	void missingReturnsOnlyUncoveredGaps() {
+		TimeRangeSet set = new TimeRangeSet();
+		set.add(new TimeRange(100, 200));
+		set.add(new TimeRange(300, 400));
+
+		assertEquals(List.of(new TimeRange(50, 99), new TimeRange(201, 299), new TimeRange(401, 500)),
+				set.missing(new TimeRange(50, 500)));
+		assertEquals(List.of(new TimeRange(201, 250)), set.missing(new TimeRange(150, 250)));
+		assertTrue(set.covers(new TimeRange(120, 180)));
+	}
+}
@@ -0,0 +1,155 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.geoframe.blogpost.subbasins.explorer.io.BucketAggregate;
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesBlock;
+import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesLoader;
+import it.geoframe.blogpost.subbasins.explorer.io.TimeseriesRepository;
+import it.geoframe.blogpost.subbasins.explorer.services.ProjectConfig;
+
+/**
+ * Buckets computed by SQLite ({@link TimeseriesLoader#loadBucketAggregates})
+ * against the in-memory aggregation of the same rows.
+ */
+class BucketPushdownTest {
+
+	private static final long HOUR = 3_600_000L;
+	private static final String TABLE = "sim_state";
+	private static final String[] AGGREGATIONS = { "1h", "12h", "24h", "settimana", "mese", "anno" };
+	private static final StateSeriesCalculator.StateColumns COLUMNS = new StateSeriesCalculator.StateColumns("swe",
+			"rootzone_aet", "canopy_aet", "canopy_final", "canopy_initial", "rootzone_final", "rootzone_initial",
+			"runoff_final", "runoff_initial", "ground_final", "ground_initial");
+	private static final String[] STATE_COLUMNS = { "swe", "rootzone_aet", "canopy_aet", "canopy_final",
+			"canopy_initial", "rootzone_final", "rootzone_initial", "runoff_final", "runoff_initial", "ground_final",
+			"ground_initial" };
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void sqliteBucketsMatchTheInMemoryAggregation() throws SQLException {
+		Path db = dir.resolve("project.gpkg");
+		// from mid November 1969 to March 1970: weeks, months and years across the epoch
+		SeriesBlock rows = writeTable(db, LocalDate.of(1969, 11, 15), 120 * 24);
+		ProjectConfig config = ProjectConfig.geopackage(db, dir.resolve("missing.sqlite"));
+		TimeseriesLoader loader = new TimeseriesLoader(new TimeseriesRepository());
+		try {
+			SeriesBlock deltas = StateSeriesCalculator.computeDeltas(rows, COLUMNS);
+			SeriesBlock.Builder fluxRows = SeriesBlock.builder(rows.size(), "rootzone_aet", "canopy_final");
+			for (int i = 0; i < rows.size(); i++) {
+				fluxRows.addRow(rows.timestamp(i), rows.value(1, i), rows.value(3, i));
+			}
+			SeriesBlock fluxes = fluxRows.build();
+			List<BucketAggregate> means = List.of(BucketAggregate.mean("rootzone_aet", "rootzone_aet"),
+					BucketAggregate.mean("canopy_final", "canopy_final"));
+			for (String aggregation : AGGREGATIONS) {
+				Optional<SeriesBlock> state = loader.loadBucketAggregates(config, TABLE, "1", aggregation,
+						StateSeriesCalculator.bucketAggregates(COLUMNS));
+				assertTrue(state.isPresent(), aggregation);
+				assertSameBuckets(StateSeriesCalculator.aggregate(deltas, aggregation), state.get(), aggregation);
+
+				Optional<SeriesBlock> mean = loader.loadBucketAggregates(config, TABLE, "1", aggregation, means);
+				assertTrue(mean.isPresent(), aggregation);
+				assertSameBuckets(TimeBuckets.aggregate(fluxes, aggregation, TimeBuckets.Statistic.MEAN), mean.get(),
+						aggregation);
+			}
+		} finally {
+			loader.closeProject(config);
+		}
+	}
+
+	private static void assertSameBuckets(SeriesBlock expected, SeriesBlock actual, String aggregation) {
+		assertEquals(expected.size(), actual.size(), aggregation);
+		assertEquals(expected.columnCount(), actual.columnCount(), aggregation);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.timestamp(i), actual.timestamp(i));
+			for (int c = 0; c < expected.columnCount(); c++) {
+				assertEquals(expected.value(c, i), actual.value(c, i), 1e-6);
+			}
+		}
+	}
+
+	/**
+	 * Hourly rows of basin 1, returned as read back by the loader (NULL as
+	 * NaN, -9999 kept), plus a second basin that must not leak into the
+	 * buckets. SWE is missing on the first row and at midnight of the first
+	 * day of every month, so its steps cross bucket borders; a few rows are
+	 * -9999 or have a missing canopy value.
+	 */
+	private static SeriesBlock writeTable(Path db, LocalDate from, int hours) throws SQLException {
+		long start = from.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+		SeriesBlock.Builder out = SeriesBlock.builder(hours, STATE_COLUMNS);
+		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db)) {
+			try (Statement st = c.createStatement()) {
+				StringBuilder create = new StringBuilder("CREATE TABLE ").append(TABLE)
+						.append(" (ts INTEGER NOT NULL, basin_id TEXT NOT NULL");
+				for (String col : STATE_COLUMNS) {
+					create.append(", ").append(col).append(" REAL");
+				}
+				st.execute(create.append(')').toString());
+			}
+			c.setAutoCommit(false);
+			try (PreparedStatement ps = c
+					.prepareStatement("INSERT INTO " + TABLE + " VALUES (?, ?" + ", ?".repeat(STATE_COLUMNS.length)
+							+ ")")) {
+				for (String basin : new String[] { "1", "2" }) {
+					for (int i = 0; i < hours; i++) {
+						long ts = start + i * HOUR;
+						ps.setLong(1, ts);
+						ps.setString(2, basin);
+						if (basin.equals("1")) {
+							out.add(ts);
+						}
+						for (int col = 0; col < STATE_COLUMNS.length; col++) {
+							double v = value(basin, i, col, ts);
+							if (Double.isNaN(v)) {
+								ps.setNull(col + 3, Types.REAL);
+							} else {
+								ps.setDouble(col + 3, v);
+							}
+							if (basin.equals("1")) {
+								out.set(col, v);
+							}
+						}
+						ps.addBatch();
+					}
+				}
+				ps.executeBatch();
+			}
+			c.commit();
+		}
+		return out.build();
+	}
+
+	private static double value(String basin, int hour, int column, long ts) {
+		boolean monthStart = TimeBuckets.bucketStart(ts, "mese") == ts;
+		if (column == 0 && (hour == 0 || monthStart || hour % 37 == 5)) {
+			return Double.NaN;
+		}
+		if (column == 1 && hour % 101 == 7) {
+			return -9999.0;
+		}
+		if (column == 3 && hour % 53 == 11) {
+			return Double.NaN;
+		}
+		double scale = basin.equals("1") ? 1.0 : 100.0;
+		return scale * (column + 1) * (1.5 + Math.sin(hour * 0.05 + column));
+	}
+}
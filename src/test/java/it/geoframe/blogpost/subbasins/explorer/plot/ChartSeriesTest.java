@@ -0,0 +1,60 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ChartSeriesTest {
+
+	@Test
+	void appendsSkippingMissingValuesAndReplacingRepeatedTimestamps() {
+		ChartSeries series = new ChartSeries("q");
+		series.addAll(new long[] { 1, 2, 3 }, new double[] { 10, Double.NaN, 30 }, 3);
+		series.addAll(new long[] { 3, 4 }, new double[] { 31, 40 }, 2);
+
+		assertArrayEquals(new long[] { 1, 3, 4 }, timestamps(series));
+		assertEquals(31, series.value(1), 1e-12);
+		assertEquals(40, series.value(2), 1e-12);
+	}
+
+	@Test
+	void mergesRowsReadBeforeOrInsideTheHeldRange() {
+		ChartSeries series = new ChartSeries("q");
+		series.addAll(new long[] { 10, 20, 30 }, new double[] { 1, 2, 3 }, 3);
+		series.addAll(new long[] { 5, 20, 25, 40 }, new double[] { 0.5, 2.5, Double.NaN, 4 }, 4);
+
+		assertArrayEquals(new long[] { 5, 10, 20, 30, 40 }, timestamps(series));
+		assertEquals(2.5, series.value(2), 1e-12);
+		assertEquals(2, series.indexOf(20));
+		assertEquals(-4, series.indexOf(25));
+	}
+
+	@Test
+	void overviewRefusesRowsUntilCleared() {
+		ChartSeries series = new ChartSeries("q");
+		series.addAll(new long[] { 1, 2 }, new double[] { 1, 2 }, 2);
+		series.setOverview(new long[] { 0, 50 }, new double[] { -1, 9 }, 2);
+
+		assertTrue(series.isOverview());
+		assertArrayEquals(new long[] { 0, 50 }, timestamps(series));
+		assertThrows(IllegalStateException.class,
+				() -> series.addAll(new long[] { 60 }, new double[] { 3 }, 1));
+
+		series.clear();
+		series.addAll(new long[] { 60 }, new double[] { 3 }, 1);
+		assertFalse(series.isOverview());
+		assertEquals(1, series.size());
+	}
+
+	private static long[] timestamps(ChartSeries series) {
+		long[] out = new long[series.size()];
+		for (int i = 0; i < out.length; i++) {
+			out[i] = series.timestamp(i);
+		}
+		return out;
+	}
+}
@@ -0,0 +1,42 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class DecimationTest {
+
+	@Test
+	void keepsFirstLowestHighestAndLastRowOfEachBucket() {
+		long[] ts = new long[64];
+		double[] v = new double[64];
+		for (int i = 0; i < ts.length; i++) {
+			ts[i] = i;
+			v[i] = i % 32 == 5 ? 100 : i % 32 == 9 ? -100 : 0;
+		}
+		int[] rows = Decimation.envelope(ts.length, i -> ts[i], i -> v[i], i -> v[i], 32);
+
+		assertArrayEquals(new long[] { 0, 5, 9, 31, 32, 37, 41, 63 }, toLong(rows));
+	}
+
+	@Test
+	void drawsEveryRowWhenBucketsAreNotDenser() {
+		long[] ts = { 0, 10, 20, 30, 40 };
+		int[] rows = Decimation.envelope(ts.length, i -> ts[i], i -> 1.0, i -> 1.0, 8);
+
+		assertEquals(0, rows.length);
+		assertEquals(0L, Decimation.bucketMillis(1000, 1000));
+		assertEquals(8L, Decimation.bucketMillis(15_000, 1000));
+		assertNull(new Decimation().rows(0, 8L, ts.length, i -> ts[i], i -> 1.0, i -> 1.0));
+	}
+
+	private static long[] toLong(int[] rows) {
+		long[] out = new long[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			out[i] = rows[i];
+		}
+		return out;
+	}
+}
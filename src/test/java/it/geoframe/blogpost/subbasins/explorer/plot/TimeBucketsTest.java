@@ -0,0 +1,70 @@
+package it.geoframe.blogpost.subbasins.explorer.plot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import it.geoframe.blogpost.subbasins.explorer.io.SeriesBlock;
+
+class TimeBucketsTest {
+
+	private static final long HOUR = 3_600_000L;
+
+	@Test
+	void monthBoundariesCoverTheSpanAcrossYears() {
+		long[] bounds = TimeBuckets.boundaries(utcMs(2023, 11, 20), utcMs(2024, 1, 31), "mese");
+
+		assertArrayEquals(new long[] { utcMs(2023, 11, 1), utcMs(2023, 12, 1), utcMs(2024, 1, 1), utcMs(2024, 2, 1) },
+				bounds);
+	}
+
+	@Test
+	void bucketStartWeekStartsOnMonday() {
+		long wed = utcMs(2024, 1, 10); // Wed
+		long expectedMonday = utcMs(2024, 1, 8);
+		assertEquals(expectedMonday, TimeBuckets.bucketStart(wed, "settimana"));
+	}
+
+	@Test
+	void statisticsSkipMissingValuesExceptTheSum() {
+		long day = utcMs(2024, 3, 1);
+		SeriesBlock rows = SeriesBlock.builder("q")
+				.addRow(day, 4)
+				.addRow(day + HOUR, Double.NaN)
+				.addRow(day + 2 * HOUR, 2)
+				.addRow(day + 30 * HOUR, 7)
+				.build();
+
+		SeriesBlock mean = TimeBuckets.aggregate(rows, "24h", TimeBuckets.Statistic.MEAN);
+		assertEquals(2, mean.size());
+		assertEquals(day, mean.timestamp(0));
+		assertEquals(3d, mean.value(0, 0), 1e-12);
+		assertEquals(7d, mean.value(0, 1), 1e-12);
+		assertEquals(2d, TimeBuckets.aggregate(rows, "24h", TimeBuckets.Statistic.MIN).value(0, 0), 1e-12);
+		assertEquals(4d, TimeBuckets.aggregate(rows, "24h", TimeBuckets.Statistic.MAX).value(0, 0), 1e-12);
+		assertEquals(2d, TimeBuckets.aggregate(rows, "24h", TimeBuckets.Statistic.COUNT).value(0, 0), 1e-12);
+		assertEquals(Double.NaN, TimeBuckets.aggregate(rows, "24h", TimeBuckets.Statistic.SUM).value(0, 0), 0d);
+	}
+
+	@Test
+	void skipsEmptyBucketsAndFloorsTimestampsBefore1970() {
+		long ts = utcMs(1965, 6, 15) + 5 * HOUR + 1;
+		SeriesBlock rows = SeriesBlock.builder("q")
+				.addRow(ts, 1)
+				.addRow(ts + 40 * 24 * HOUR, 2)
+				.build();
+
+		SeriesBlock daily = TimeBuckets.aggregate(rows, "24h", TimeBuckets.Statistic.SUM);
+		assertEquals(2, daily.size());
+		assertEquals(utcMs(1965, 6, 15), daily.timestamp(0));
+		assertEquals(utcMs(1965, 7, 25), daily.timestamp(1));
+	}
+
+	private static long utcMs(int y, int m, int d) {
+		return LocalDate.of(y, m, d).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+}